@@ -0,0 +1,20 @@
+package com.example.backend.config;
+
+import com.example.backend.search.ExactSearchEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SearchConfig {
+
+    // 0 means one thread per available processor
+    @Value("${app.search.exact.threads:0}")
+    private int exactSearchThreads;
+
+    @Bean
+    public ExactSearchEngine exactSearchEngine() {
+        int threads = exactSearchThreads > 0 ? exactSearchThreads : Runtime.getRuntime().availableProcessors();
+        return new ExactSearchEngine(threads);
+    }
+}
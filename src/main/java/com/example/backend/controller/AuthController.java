@@ -64,13 +64,12 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<Map<String, String>> logout() {
-        // In a stateless JWT implementation, logout is typically handled on the client side
-        // by removing the token from storage. For enhanced security, you could maintain
-        // a blacklist of tokens on the server side.
-
+    public ResponseEntity<Map<String, String>> logout(@RequestBody(required = false) Map<String, String> request) {
+        // The refresh token, if sent, is revoked server-side; the client discards its access token
         logger.info("Logout endpoint called");
 
+        authService.logout(request != null ? request.get("refreshToken") : null);
+
         return ResponseEntity.ok(Map.of("message", "Logged out successfully"));
     }
 
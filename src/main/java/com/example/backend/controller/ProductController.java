@@ -1,6 +1,10 @@
 package com.example.backend.controller;
 
 import com.example.backend.dto.ProductDto;
+import com.example.backend.dto.SemanticSearchRequest;
+import com.example.backend.dto.SemanticSearchResponse;
+import com.example.backend.exception.BadRequestException;
+import com.example.backend.search.SearchMode;
 import com.example.backend.service.ProductService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
@@ -165,9 +169,40 @@ public class ProductController {
     }
 
     @PostMapping("/semantic-search")
-    public List<ProductDto> semanticSearch(@RequestBody Map<String, String> body) throws ExecutionException, InterruptedException {
-        String query = body.get("query");
-        return productService.semanticSearch(query);
+    public SemanticSearchResponse semanticSearch(@RequestBody SemanticSearchRequest request) throws ExecutionException, InterruptedException {
+        checkMode(request);
+        return productService.semanticSearchPage(request);
+    }
+
+    @GetMapping("/lexical-search")
+    public List<ProductDto> lexicalSearch(@RequestParam String query,
+                                          @RequestParam(required = false) Integer k,
+                                          @RequestParam(required = false) String category,
+                                          @RequestParam(required = false) BigDecimal minPrice,
+                                          @RequestParam(required = false) BigDecimal maxPrice,
+                                          @RequestParam(required = false) Boolean inStock) {
+        SemanticSearchRequest request = new SemanticSearchRequest(query, null);
+        request.setK(k);
+        request.setCategory(category);
+        request.setMinPrice(minPrice);
+        request.setMaxPrice(maxPrice);
+        request.setInStock(inStock);
+        return productService.lexicalSearch(request);
+    }
+
+    @PostMapping("/hybrid-search")
+    public List<ProductDto> hybridSearch(@RequestBody SemanticSearchRequest request) throws InterruptedException {
+        checkMode(request);
+        return productService.hybridSearch(request);
+    }
+
+    // Rejected before the query is embedded rather than surfacing as a server error
+    private static void checkMode(SemanticSearchRequest request) {
+        try {
+            SearchMode.from(request.getMode(), null);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
     }
 
 }
\ No newline at end of file
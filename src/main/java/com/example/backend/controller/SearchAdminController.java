@@ -0,0 +1,124 @@
+package com.example.backend.controller;
+
+import com.example.backend.exception.BadRequestException;
+import com.example.backend.service.EmbeddingStore;
+import com.example.backend.service.IvfPqIndexService;
+import com.example.backend.service.SearchConsistencyChecker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/search")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class SearchAdminController {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchAdminController.class);
+
+    private final EmbeddingStore embeddingStore;
+    private final IvfPqIndexService ivfPqIndexService;
+    private final SearchConsistencyChecker searchConsistencyChecker;
+
+    @Value("${app.search.two-stage.rerank-depth:200}")
+    private int defaultRerankDepth;
+
+    @Value("${app.search.quantization.rerank-depth:200}")
+    private int defaultQuantizedRerankDepth;
+
+    public SearchAdminController(EmbeddingStore embeddingStore, IvfPqIndexService ivfPqIndexService,
+                                 SearchConsistencyChecker searchConsistencyChecker) {
+        this.embeddingStore = embeddingStore;
+        this.ivfPqIndexService = ivfPqIndexService;
+        this.searchConsistencyChecker = searchConsistencyChecker;
+    }
+
+    /**
+     * Recall@k of two-stage search against the exact scan, to pick a prefix dimension and re-rank depth.
+     */
+    @GetMapping("/two-stage/recall")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<EmbeddingStore.TwoStageRecall> twoStageRecall(
+            @RequestParam(defaultValue = "100") int samples,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(required = false) Integer rerankDepth) {
+        if (!embeddingStore.isTwoStageReady()) {
+            throw new BadRequestException("Two-stage search is not enabled");
+        }
+        if (samples < 1 || samples > 10_000 || k < 1 || k > 1000) {
+            throw new BadRequestException("samples must be between 1 and 10000 and k between 1 and 1000");
+        }
+        int depth = rerankDepth != null ? rerankDepth : defaultRerankDepth;
+        logger.debug("Measuring two-stage recall@{} over {} samples with re-rank depth {}", k, samples, depth);
+
+        return ResponseEntity.ok(embeddingStore.measureTwoStageRecall(samples, k, Math.max(k, depth)));
+    }
+
+    /**
+     * Memory per product and recall@k of quantised search against the exact scan.
+     */
+    @GetMapping("/quantization")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<EmbeddingStore.QuantizationReport> quantization(
+            @RequestParam(defaultValue = "100") int samples,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(required = false) Integer rerankDepth) {
+        if (!embeddingStore.isQuantizedReady()) {
+            throw new BadRequestException("Quantised search is not enabled");
+        }
+        if (samples < 1 || samples > 10_000 || k < 1 || k > 1000) {
+            throw new BadRequestException("samples must be between 1 and 10000 and k between 1 and 1000");
+        }
+        int depth = rerankDepth != null ? rerankDepth : defaultQuantizedRerankDepth;
+        logger.debug("Measuring quantised recall@{} over {} samples with re-rank depth {}", k, samples, depth);
+
+        return ResponseEntity.ok(embeddingStore.measureQuantization(samples, k, Math.max(k, depth)));
+    }
+
+    @GetMapping("/ivf-pq")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<IvfPqIndexService.Status> ivfPqStatus() {
+        return ResponseEntity.ok(ivfPqIndexService.status());
+    }
+
+    /**
+     * Retrains and rebuilds the IVF-PQ index in the background; searches use the current index until the new
+     * one is swapped in.
+     */
+    @PostMapping("/ivf-pq/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<IvfPqIndexService.Status> rebuildIvfPq() {
+        if (!ivfPqIndexService.isEnabled()) {
+            throw new BadRequestException("The IVF-PQ index is not enabled");
+        }
+        if (!embeddingStore.isReady()) {
+            throw new BadRequestException("The embedding store is not open");
+        }
+        if (!ivfPqIndexService.rebuildAsync()) {
+            logger.info("IVF-PQ rebuild requested while one is already running");
+        }
+        return ResponseEntity.accepted().body(ivfPqIndexService.status());
+    }
+
+    /**
+     * Compares the ids in each in-memory search index with the database, and the vectors of the embedding store
+     * and the HNSW graph with the stored embeddings.
+     */
+    @GetMapping("/consistency")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SearchConsistencyChecker.Report> consistency() {
+        return ResponseEntity.ok(searchConsistencyChecker.check(false));
+    }
+
+    /**
+     * As {@link #consistency()}, then re-applies every drifted id from the database.
+     */
+    @PostMapping("/consistency/repair")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SearchConsistencyChecker.Report> repairConsistency() {
+        logger.info("Repairing search index drift");
+        return ResponseEntity.ok(searchConsistencyChecker.check(true));
+    }
+}
@@ -27,6 +27,9 @@ public class ProductDto {
     private LocalDateTime updatedAt;
     private String createdByUsername;
 
+    // PENDING until the embedding has been generated; read-only
+    private String embeddingStatus;
+
     // Constructors
     public ProductDto() {}
 
@@ -45,6 +48,14 @@ public class ProductDto {
         this.createdByUsername = createdByUsername;
     }
 
+    public ProductDto(Long id, String name, String description, BigDecimal price,
+                     String category, Integer stockQuantity, Boolean isActive,
+                     LocalDateTime createdAt, LocalDateTime updatedAt, String createdByUsername,
+                     String embeddingStatus) {
+        this(id, name, description, price, category, stockQuantity, isActive, createdAt, updatedAt, createdByUsername);
+        this.embeddingStatus = embeddingStatus;
+    }
+
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -75,4 +86,7 @@ public class ProductDto {
 
     public String getCreatedByUsername() { return createdByUsername; }
     public void setCreatedByUsername(String createdByUsername) { this.createdByUsername = createdByUsername; }
-}
\ No newline at end of file
+
+    public String getEmbeddingStatus() { return embeddingStatus; }
+    public void setEmbeddingStatus(String embeddingStatus) { this.embeddingStatus = embeddingStatus; }
+}
@@ -0,0 +1,71 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+
+import java.math.BigDecimal;
+
+public class SemanticSearchRequest {
+
+    private String query;
+
+    // hnsw | exact | two-stage | quantized | ivf-pq | database; defaults to app.search.mode
+    private String mode;
+
+    // Number of results per page; defaults to 10
+    private Integer k;
+
+    // Minimum cosine similarity; defaults to app.search.similarity-threshold
+    @JsonAlias("minScore")
+    private Double threshold;
+
+    // Chunks scored concurrently by exact search; defaults to app.search.exact.parallelism
+    private Integer parallelism;
+
+    // Optional filters, as for /products/filter; only active products are ever returned
+    private String category;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Boolean inStock;
+
+    // nextCursor of the previous page; query, mode, threshold and filters then come from the first request
+    private String cursor;
+
+    // Constructors
+    public SemanticSearchRequest() {}
+
+    public SemanticSearchRequest(String query, String mode) {
+        this.query = query;
+        this.mode = mode;
+    }
+
+    // Getters and Setters
+    public String getQuery() { return query; }
+    public void setQuery(String query) { this.query = query; }
+
+    public String getMode() { return mode; }
+    public void setMode(String mode) { this.mode = mode; }
+
+    public Integer getK() { return k; }
+    public void setK(Integer k) { this.k = k; }
+
+    public Double getThreshold() { return threshold; }
+    public void setThreshold(Double threshold) { this.threshold = threshold; }
+
+    public Integer getParallelism() { return parallelism; }
+    public void setParallelism(Integer parallelism) { this.parallelism = parallelism; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public BigDecimal getMinPrice() { return minPrice; }
+    public void setMinPrice(BigDecimal minPrice) { this.minPrice = minPrice; }
+
+    public BigDecimal getMaxPrice() { return maxPrice; }
+    public void setMaxPrice(BigDecimal maxPrice) { this.maxPrice = maxPrice; }
+
+    public Boolean getInStock() { return inStock; }
+    public void setInStock(Boolean inStock) { this.inStock = inStock; }
+
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+}
@@ -0,0 +1,26 @@
+package com.example.backend.dto;
+
+import java.util.List;
+
+public class SemanticSearchResponse {
+
+    private List<ProductDto> results;
+
+    // Pass back as "cursor" for the next page; null on the last page
+    private String nextCursor;
+
+    // Constructors
+    public SemanticSearchResponse() {}
+
+    public SemanticSearchResponse(List<ProductDto> results, String nextCursor) {
+        this.results = results;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and Setters
+    public List<ProductDto> getResults() { return results; }
+    public void setResults(List<ProductDto> results) { this.results = results; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,7 @@
+package com.example.backend.entity;
+
+public enum EmbeddingStatus {
+    PENDING,
+    READY,
+    FAILED
+}
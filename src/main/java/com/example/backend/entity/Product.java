@@ -7,7 +7,6 @@ import jakarta.validation.constraints.NotNull;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Entity
 @Table(name = "products")
@@ -48,8 +47,9 @@ public class Product {
     @JoinColumn(name = "created_by")
     private User createdBy;
 
-    @Column(name = "embedding", columnDefinition = "float8[]")
-    private List<Double> embedding;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "embedding_status", nullable = false, length = 16)
+    private EmbeddingStatus embeddingStatus = EmbeddingStatus.PENDING;
 
     // Constructors
     public Product() {}
@@ -103,7 +103,6 @@ public class Product {
     public User getCreatedBy() { return createdBy; }
     public void setCreatedBy(User createdBy) { this.createdBy = createdBy; }
 
-    public List<Double> getEmbedding() { return embedding; }
-    public void setEmbedding(List<Double> embedding) { this.embedding = embedding; }
-
-}
\ No newline at end of file
+    public EmbeddingStatus getEmbeddingStatus() { return embeddingStatus; }
+    public void setEmbeddingStatus(EmbeddingStatus embeddingStatus) { this.embeddingStatus = embeddingStatus; }
+}
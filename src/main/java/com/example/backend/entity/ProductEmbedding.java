@@ -0,0 +1,57 @@
+package com.example.backend.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "product_embeddings")
+public class ProductEmbedding {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Convert(converter = FloatVectorConverter.class)
+    @Column(name = "embedding", nullable = false)
+    private float[] embedding;
+
+    // SHA-256 of the model id and the text the embedding was computed from
+    @Column(name = "content_fingerprint", length = 64)
+    private String contentFingerprint;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public ProductEmbedding() {}
+
+    public ProductEmbedding(Long productId, float[] embedding) {
+        this.productId = productId;
+        this.embedding = embedding;
+    }
+
+    public ProductEmbedding(Long productId, float[] embedding, String contentFingerprint) {
+        this(productId, embedding);
+        this.contentFingerprint = contentFingerprint;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public float[] getEmbedding() { return embedding; }
+    public void setEmbedding(float[] embedding) { this.embedding = embedding; }
+
+    public String getContentFingerprint() { return contentFingerprint; }
+    public void setContentFingerprint(String contentFingerprint) { this.contentFingerprint = contentFingerprint; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,12 @@
+package com.example.backend.event;
+
+import com.example.backend.entity.ProductEmbedding;
+
+import java.util.List;
+
+/**
+ * Published by {@code EmbeddingJobWorker} inside the transaction that saved a batch of embeddings; the vector
+ * indexes pick them up once it commits.
+ */
+public record EmbeddingsWrittenEvent(List<ProductEmbedding> embeddings) {
+}
@@ -0,0 +1,22 @@
+package com.example.backend.event;
+
+import com.example.backend.entity.Product;
+
+/**
+ * Published by {@code ProductService} inside the transaction that wrote a product. In-memory search
+ * structures apply it only once that transaction commits, so a rolled-back write never reaches them.
+ */
+public record ProductChangedEvent(Change change, Product product) {
+
+    public enum Change {
+        CREATED,
+        UPDATED,
+        DELETED,
+        // Only the active flag changed; the text and the embedding are untouched
+        ACTIVE_CHANGED
+    }
+
+    public long productId() {
+        return product.getId();
+    }
+}
@@ -1,12 +1,14 @@
 package com.example.backend.filter;
 
 import com.example.backend.service.JwtService;
+import com.example.backend.service.TokenRevocationService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -26,10 +28,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
 
-    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userDetailsService) {
+    // Build the Authentication from the verified token's claims instead of loading the user on every request
+    @Value("${jwt.stateless-authentication:true}")
+    private boolean statelessAuthentication;
+
+    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userDetailsService,
+                                   TokenRevocationService tokenRevocationService) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
@@ -53,27 +62,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
             // Extract JWT token
             final String jwt = authHeader.substring(BEARER_PREFIX.length());
-            final String username = jwtService.extractUsername(jwt);
-
-            // Validate token and set authentication
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = 
-                            new UsernamePasswordAuthenticationToken(
-                                    userDetails,
-                                    null,
-                                    userDetails.getAuthorities()
-                            );
-
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-
-                    logger.debug("Authentication set for user: {}", username);
-                } else {
-                    logger.warn("Invalid JWT token for user: {}", username);
-                }
+            if (statelessAuthentication) {
+                authenticateFromClaims(jwt, request);
+            } else {
+                authenticateFromUser(jwt, request);
             }
         } catch (Exception e) {
             logger.error("JWT authentication error: {}", e.getMessage());
@@ -83,4 +75,64 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    // Loads the user on every request, so deactivation and role changes apply immediately
+    private void authenticateFromUser(String jwt, HttpServletRequest request) {
+        JwtService.VerifiedToken token = verifyAccessToken(jwt);
+        final String username = token != null ? token.subject() : null;
+
+        // Token is verified; check it still belongs to an enabled user and set authentication
+        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+
+            if (username.equals(userDetails.getUsername()) && userDetails.isEnabled()) {
+                UsernamePasswordAuthenticationToken authToken = 
+                        new UsernamePasswordAuthenticationToken(
+                                userDetails,
+                                null,
+                                userDetails.getAuthorities()
+                        );
+
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+
+                logger.debug("Authentication set for user: {}", username);
+            } else {
+                logger.warn("Invalid JWT token for user: {}", username);
+            }
+        }
+    }
+
+    /**
+     * Trusts the signed {@code authorities} claim; deactivation and role changes reach it through
+     * {@link TokenRevocationService} cutoffs rather than a user lookup.
+     */
+    private void authenticateFromClaims(String jwt, HttpServletRequest request) {
+        JwtService.VerifiedToken token = verifyAccessToken(jwt);
+        String username = token != null ? token.subject() : null;
+        if (username == null || SecurityContextHolder.getContext().getAuthentication() != null) {
+            return;
+        }
+        if (tokenRevocationService.isRevoked(username, token.issuedAt())) {
+            logger.warn("Revoked JWT token for user: {}", username);
+            return;
+        }
+
+        UsernamePasswordAuthenticationToken authToken =
+                new UsernamePasswordAuthenticationToken(username, null, token.authorities());
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+
+        logger.debug("Authentication set from token claims for user: {}", username);
+    }
+
+    // Only refresh tokens carry a jti; they are for /auth/refresh and must not pass as bearer credentials
+    private JwtService.VerifiedToken verifyAccessToken(String jwt) {
+        JwtService.VerifiedToken token = jwtService.verify(jwt);
+        if (token.id() != null) {
+            logger.warn("Refresh token used as a bearer token for user: {}", token.subject());
+            return null;
+        }
+        return token;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.EmbeddingJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmbeddingJobRepository extends JpaRepository<EmbeddingJob, Long> {
+
+    // Rows locked by another node's claim are skipped rather than waited on
+    @Query(value = """
+        SELECT * FROM embedding_jobs
+        WHERE next_attempt_at <= :now
+        ORDER BY next_attempt_at
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<EmbeddingJob> lockDueJobs(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Hands claimed jobs back for the next poll without counting the attempt
+    @Modifying
+    @Query("UPDATE EmbeddingJob j SET j.attempts = j.attempts - 1, j.nextAttemptAt = :now WHERE j.id IN :ids")
+    int release(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Query("SELECT DISTINCT j.productId FROM EmbeddingJob j WHERE j.productId IN :productIds")
+    List<Long> findQueuedProductIds(@Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT MIN(j.createdAt) FROM EmbeddingJob j")
+    LocalDateTime findOldestCreatedAt();
+}
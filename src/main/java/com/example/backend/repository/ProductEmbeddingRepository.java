@@ -0,0 +1,61 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.ProductEmbedding;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProductEmbeddingRepository extends JpaRepository<ProductEmbedding, Long> {
+
+    // Fingerprints only, without loading the vectors
+    @Query("SELECT e.contentFingerprint FROM ProductEmbedding e WHERE e.productId = :productId")
+    Optional<String> findContentFingerprint(@Param("productId") Long productId);
+
+    @Query("SELECT e.productId, e.contentFingerprint FROM ProductEmbedding e WHERE e.productId IN :productIds")
+    List<Object[]> findContentFingerprints(@Param("productIds") Collection<Long> productIds);
+
+    // (updated_at, product_id) of the most recently written embeddings, without loading the vectors
+    @Query("SELECT e.updatedAt, e.productId FROM ProductEmbedding e ORDER BY e.updatedAt DESC, e.productId DESC")
+    List<Object[]> findLatestWatermarks(Pageable pageable);
+
+    // Keyset page of embeddings written after (updatedAt, productId)
+    @Query("SELECT e FROM ProductEmbedding e WHERE e.updatedAt > :updatedAt "
+            + "OR (e.updatedAt = :updatedAt AND e.productId > :productId) ORDER BY e.updatedAt, e.productId")
+    List<ProductEmbedding> findWrittenAfter(@Param("updatedAt") LocalDateTime updatedAt,
+                                            @Param("productId") Long productId, Pageable pageable);
+
+    @Query("SELECT e.productId FROM ProductEmbedding e WHERE e.productId > :afterId ORDER BY e.productId")
+    List<Long> findProductIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // (product_id, score) of the k active products closest to a unit query vector, ranked by PostgreSQL
+    // (see V9__Add_database_vector_search.sql), decoding each bytea as it is scored; the query is a
+    // real[] literal such as {0.1,0.2}
+    @Query(value = """
+        SELECT product_id, score FROM (
+            SELECT e.product_id, float4_le_dot(e.embedding, CAST(:query AS real[])) AS score
+            FROM product_embeddings e
+            JOIN products p ON p.id = e.product_id
+            WHERE p.is_active = true
+              AND (CAST(:category AS text) IS NULL OR p.category = CAST(:category AS text))
+              AND (CAST(:minPrice AS numeric) IS NULL OR p.price >= CAST(:minPrice AS numeric))
+              AND (CAST(:maxPrice AS numeric) IS NULL OR p.price <= CAST(:maxPrice AS numeric))
+              AND (:inStock = false OR p.stock_quantity > 0)
+        ) scored
+        WHERE score >= :minScore
+        ORDER BY score DESC, product_id
+        LIMIT :k
+        """, nativeQuery = true)
+    List<Object[]> findTopKByDotProduct(@Param("query") String query, @Param("k") int k,
+                                        @Param("minScore") double minScore, @Param("category") String category,
+                                        @Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice,
+                                        @Param("inStock") boolean inStock);
+}
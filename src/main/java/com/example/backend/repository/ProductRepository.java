@@ -3,12 +3,16 @@ package com.example.backend.repository;
 import com.example.backend.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -54,6 +58,21 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
         """, nativeQuery = true)
     List<Object[]> getCategoryStatistics();
 
+    // Keyset page of (id, isActive) without loading the products
+    @Query("SELECT p.id, p.isActive FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Object[]> findIdsAndActiveAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Keyset page of products updated after (updatedAt, id)
+    @Query("SELECT p FROM Product p WHERE p.updatedAt > :updatedAt "
+            + "OR (p.updatedAt = :updatedAt AND p.id > :id) ORDER BY p.updatedAt, p.id")
+    List<Product> findUpdatedAfter(@Param("updatedAt") LocalDateTime updatedAt, @Param("id") Long id,
+                                   Pageable pageable);
+
+    // Row locks taken in id order, so an edit cannot commit between reading the products and writing them
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> lockAllById(@Param("ids") Collection<Long> ids);
+
     // Pageable queries
     @Query("SELECT p FROM Product p WHERE p.isActive = true AND " +
            "(:category IS NULL OR p.category = :category) AND " +
@@ -63,6 +82,4 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
                                           @Param("minPrice") BigDecimal minPrice,
                                           @Param("maxPrice") BigDecimal maxPrice,
                                           Pageable pageable);
-
-    List<Product> findByEmbeddingIsNotNull();
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    // Returns 0 if the id was already revoked; a concurrent insert of the same id waits for the other
+    // transaction, so only one of two racing rotations succeeds
+    @Modifying
+    @Query(value = """
+        INSERT INTO revoked_tokens (jti, username, reason, expires_at, revoked_at)
+        VALUES (:jti, :username, :reason, :expiresAt, :revokedAt)
+        ON CONFLICT (jti) DO NOTHING
+        """, nativeQuery = true)
+    int insertIfAbsent(@Param("jti") String jti, @Param("username") String username,
+                       @Param("reason") String reason, @Param("expiresAt") LocalDateTime expiresAt,
+                       @Param("revokedAt") LocalDateTime revokedAt);
+
+    // (jti, expiresAt) of unexpired tokens revoked since the given time
+    @Query("SELECT r.jti, r.expiresAt FROM RevokedToken r WHERE r.revokedAt > :since AND r.expiresAt > :now")
+    List<Object[]> findRevokedSince(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
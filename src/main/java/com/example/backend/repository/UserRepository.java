@@ -23,6 +23,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findByIsActiveTrue();
 
     // Custom JPQL queries
+
+    // The user and its roles in one statement, instead of a second select for the EAGER roles
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.roles WHERE u.username = :username")
+    Optional<User> findWithRolesByUsername(@Param("username") String username);
+
     @Query("SELECT u FROM User u WHERE LOWER(u.firstName) LIKE LOWER(CONCAT('%', :name, '%')) " +
             "OR LOWER(u.lastName) LIKE LOWER(CONCAT('%', :name, '%'))")
     List<User> findByName(@Param("name") String name);
@@ -34,6 +39,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findUsersCreatedBetween(@Param("startDate") LocalDateTime startDate, 
                                        @Param("endDate") LocalDateTime endDate);
 
+    // (username, tokensValidAfter) of users whose tokens were cut off since the given time
+    @Query("SELECT u.username, u.tokensValidAfter FROM User u WHERE u.tokensValidAfter > :since")
+    List<Object[]> findTokenCutoffsSince(@Param("since") LocalDateTime since);
+
     @Query("SELECT COUNT(u) FROM User u WHERE u.isActive = true")
     long countActiveUsers();
 
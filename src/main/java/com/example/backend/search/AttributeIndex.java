@@ -0,0 +1,205 @@
+package com.example.backend.search;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-attribute bitmaps over products for pre-filtering vector and lexical search: one bitmap per
+ * category, one per power-of-two price bucket (in cents), and the active and in-stock sets. A filter is
+ * evaluated by intersecting bitmaps word by word; only the two boundary price buckets are checked
+ * against exact prices.
+ * <p>
+ * Products get a dense ordinal, reused after removal. Lookups by id go through a concurrent map so a
+ * {@link FilterBitmap} can be tested from scan threads without taking the index lock.
+ */
+public class AttributeIndex {
+
+    private static final int PRICE_BUCKETS = 64;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinalById = new ConcurrentHashMap<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final Map<String, BitSet> byCategory = new HashMap<>();
+    private final BitSet[] byPriceBucket = new BitSet[PRICE_BUCKETS];
+    private final BitSet active = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private long[] idByOrdinal = new long[1024];
+    private long[] priceByOrdinal = new long[1024];
+    private String[] categoryByOrdinal = new String[1024];
+    private int nextOrdinal;
+
+    public AttributeIndex() {
+        for (int i = 0; i < PRICE_BUCKETS; i++) {
+            byPriceBucket[i] = new BitSet();
+        }
+    }
+
+    /**
+     * Indexes a product's filterable attributes, replacing any previous values for the same id.
+     */
+    public void put(long id, String category, BigDecimal price, Integer stockQuantity, Boolean isActive) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinalById.get(id);
+            int ordinal;
+            if (existing != null) {
+                ordinal = existing;
+                clear(ordinal);
+            } else {
+                ordinal = freeOrdinals.isEmpty() ? nextOrdinal++ : freeOrdinals.pop();
+                ensureCapacity(ordinal);
+            }
+            idByOrdinal[ordinal] = id;
+
+            long cents = cents(price, RoundingMode.HALF_UP);
+            priceByOrdinal[ordinal] = cents;
+            byPriceBucket[bucket(cents)].set(ordinal);
+            if (category != null) {
+                categoryByOrdinal[ordinal] = category;
+                byCategory.computeIfAbsent(category, c -> new BitSet()).set(ordinal);
+            }
+            if (Boolean.TRUE.equals(isActive)) {
+                active.set(ordinal);
+            }
+            if (stockQuantity != null && stockQuantity > 0) {
+                inStock.set(ordinal);
+            }
+            ordinalById.put(id, ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.remove(id);
+            if (ordinal == null) {
+                return false;
+            }
+            clear(ordinal);
+            freeOrdinals.push(ordinal);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Active products matching every given criterion; {@code null} criteria are ignored and both price
+     * bounds are inclusive.
+     */
+    public FilterBitmap filter(String category, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStockOnly) {
+        lock.readLock().lock();
+        try {
+            BitSet bits = (BitSet) active.clone();
+            if (category != null) {
+                BitSet categoryBits = byCategory.get(category);
+                if (categoryBits == null) {
+                    return new FilterBitmap(new BitSet(), ordinalById, idByOrdinal);
+                }
+                bits.and(categoryBits);
+            }
+            if (Boolean.TRUE.equals(inStockOnly)) {
+                bits.and(inStock);
+            }
+            if (minPrice != null || maxPrice != null) {
+                bits.and(priceRange(minPrice == null ? 0 : cents(minPrice, RoundingMode.CEILING),
+                        maxPrice == null ? Long.MAX_VALUE : cents(maxPrice, RoundingMode.FLOOR)));
+            }
+            return new FilterBitmap(bits, ordinalById, idByOrdinal);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        return ordinalById.size();
+    }
+
+    /**
+     * Ids of the indexed products, ascending.
+     */
+    public long[] ids() {
+        return ordinalById.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    /**
+     * Ids of the products indexed as active, ascending.
+     */
+    public long[] activeIds() {
+        lock.readLock().lock();
+        try {
+            return active.stream().mapToLong(ordinal -> idByOrdinal[ordinal]).sorted().toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet priceRange(long min, long max) {
+        BitSet range = new BitSet();
+        if (min > max) {
+            return range;
+        }
+        int low = bucket(min);
+        int high = bucket(max);
+        for (int b = low + 1; b < high; b++) {
+            range.or(byPriceBucket[b]);
+        }
+        // Boundary buckets straddle the bounds, so their members are checked one by one
+        for (int b : low == high ? new int[]{low} : new int[]{low, high}) {
+            BitSet bucket = byPriceBucket[b];
+            for (int ordinal = bucket.nextSetBit(0); ordinal >= 0; ordinal = bucket.nextSetBit(ordinal + 1)) {
+                long price = priceByOrdinal[ordinal];
+                if (price >= min && price <= max) {
+                    range.set(ordinal);
+                }
+            }
+        }
+        return range;
+    }
+
+    private void clear(int ordinal) {
+        byPriceBucket[bucket(priceByOrdinal[ordinal])].clear(ordinal);
+        String category = categoryByOrdinal[ordinal];
+        if (category != null) {
+            BitSet categoryBits = byCategory.get(category);
+            categoryBits.clear(ordinal);
+            if (categoryBits.isEmpty()) {
+                byCategory.remove(category);
+            }
+            categoryByOrdinal[ordinal] = null;
+        }
+        active.clear(ordinal);
+        inStock.clear(ordinal);
+    }
+
+    private void ensureCapacity(int ordinal) {
+        if (ordinal >= idByOrdinal.length) {
+            int capacity = idByOrdinal.length * 2;
+            idByOrdinal = Arrays.copyOf(idByOrdinal, capacity);
+            priceByOrdinal = Arrays.copyOf(priceByOrdinal, capacity);
+            categoryByOrdinal = Arrays.copyOf(categoryByOrdinal, capacity);
+        }
+    }
+
+    private static long cents(BigDecimal price, RoundingMode rounding) {
+        if (price == null) {
+            return 0;
+        }
+        return Math.max(0, price.setScale(2, rounding).unscaledValue().longValue());
+    }
+
+    // 0 for free items, then one bucket per power of two: [1, 2), [2, 4), ...
+    private static int bucket(long cents) {
+        return 64 - Long.numberOfLeadingZeros(cents);
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.backend.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory inverted index over product name, description and category, scored with Okapi BM25.
+ * <p>
+ * Fields are folded into one document with integer boosts applied to term frequencies (name 3,
+ * category 2, description 1). Every add gets a fresh, increasing document ordinal, so postings are only
+ * ever appended and stay delta-encoded ({@link PostingList}); replaced and removed documents are
+ * tombstoned and dropped by {@link #compact()} once they outnumber the live ones.
+ * Searches share a read lock, writes take the write lock.
+ */
+public class Bm25Index {
+
+    private static final int NAME_BOOST = 3;
+    private static final int CATEGORY_BOOST = 2;
+    private static final int DESCRIPTION_BOOST = 1;
+    private static final int MIN_COMPACT_DELETES = 1024;
+
+    private final float k1;
+    private final float b;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Long, Integer> ordinalById = new HashMap<>();
+    private long[] idByOrdinal = new long[1024];
+    private int[] lengthByOrdinal = new int[1024];
+    private BitSet live = new BitSet();
+    private int nextOrdinal;
+    private long totalLength;
+
+    public Bm25Index() {
+        this(1.2f, 0.75f);
+    }
+
+    public Bm25Index(float k1, float b) {
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    /**
+     * Indexes a product, replacing any previous version with the same id.
+     */
+    public void add(long id, String name, String description, String category) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = addTerms(frequencies, name, NAME_BOOST)
+                + addTerms(frequencies, category, CATEGORY_BOOST)
+                + addTerms(frequencies, description, DESCRIPTION_BOOST);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            int ordinal = nextOrdinal++;
+            ensureCapacity(ordinal);
+            idByOrdinal[ordinal] = id;
+            lengthByOrdinal[ordinal] = length;
+            live.set(ordinal);
+            ordinalById.put(id, ordinal);
+            totalLength += length;
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new PostingList()).add(ordinal, frequency));
+
+            if (nextOrdinal - ordinalById.size() > Math.max(MIN_COMPACT_DELETES, ordinalById.size())) {
+                compactLocked();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Top {@code k} documents by BM25 score for the query terms, best first. Documents matching no term
+     * are not returned.
+     */
+    public List<SearchHit> search(String query, int k) {
+        return search(query, k, null);
+    }
+
+    /**
+     * As {@link #search(String, int)}, returning only ids accepted by {@code filter} ({@code null} accepts all).
+     */
+    public List<SearchHit> search(String query, int k, LongPredicate filter) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String token : TextTokenizer.tokenize(query)) {
+            terms.add(term(token));
+        }
+
+        lock.readLock().lock();
+        try {
+            int documents = ordinalById.size();
+            if (terms.isEmpty() || documents == 0) {
+                return List.of();
+            }
+            float averageLength = (float) totalLength / documents;
+            float[] scores = new float[nextOrdinal];
+
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                // Tombstoned postings inflate df slightly until the next compaction
+                int df = Math.min(list.count(), documents);
+                float idf = (float) Math.log(1 + (documents - df + 0.5) / (df + 0.5));
+                list.forEach((doc, frequency) -> {
+                    if (live.get(doc)) {
+                        float norm = k1 * (1 - b + b * lengthByOrdinal[doc] / averageLength);
+                        scores[doc] += idf * frequency * (k1 + 1) / (frequency + norm);
+                    }
+                });
+            }
+
+            TopK top = new TopK(k);
+            for (int doc = 0; doc < scores.length; doc++) {
+                if (scores[doc] > 0 && scores[doc] > top.threshold()
+                        && (filter == null || filter.test(idByOrdinal[doc]))) {
+                    top.offer(idByOrdinal[doc], scores[doc]);
+                }
+            }
+            return top.toHits();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the indexed documents, ascending.
+     */
+    public long[] ids() {
+        lock.readLock().lock();
+        try {
+            return ordinalById.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int terms() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long postingBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (PostingList list : postings.values()) {
+                bytes += list.bytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the postings without tombstoned documents and renumbers the live ones densely.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            compactLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactLocked() {
+        int[] remap = new int[nextOrdinal];
+        int next = 0;
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            remap[ordinal] = live.get(ordinal) ? next++ : -1;
+        }
+
+        Map<String, PostingList> compacted = new HashMap<>();
+        postings.forEach((term, list) -> {
+            PostingList rewritten = new PostingList();
+            // The remap is monotonic, so the rewritten list is still in increasing order
+            list.forEach((doc, frequency) -> {
+                if (remap[doc] >= 0) {
+                    rewritten.add(remap[doc], frequency);
+                }
+            });
+            if (rewritten.count() > 0) {
+                rewritten.trim();
+                compacted.put(term, rewritten);
+            }
+        });
+
+        long[] ids = new long[Math.max(1024, next)];
+        int[] lengths = new int[ids.length];
+        BitSet compactedLive = new BitSet(next);
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            if (remap[ordinal] >= 0) {
+                ids[remap[ordinal]] = idByOrdinal[ordinal];
+                lengths[remap[ordinal]] = lengthByOrdinal[ordinal];
+                compactedLive.set(remap[ordinal]);
+                ordinalById.put(idByOrdinal[ordinal], remap[ordinal]);
+            }
+        }
+        postings = compacted;
+        idByOrdinal = ids;
+        lengthByOrdinal = lengths;
+        live = compactedLive;
+        nextOrdinal = next;
+    }
+
+    private boolean removeLocked(long id) {
+        Integer ordinal = ordinalById.remove(id);
+        if (ordinal == null) {
+            return false;
+        }
+        live.clear(ordinal);
+        totalLength -= lengthByOrdinal[ordinal];
+        return true;
+    }
+
+    private void ensureCapacity(int ordinal) {
+        if (ordinal >= idByOrdinal.length) {
+            int capacity = idByOrdinal.length * 2;
+            idByOrdinal = Arrays.copyOf(idByOrdinal, capacity);
+            lengthByOrdinal = Arrays.copyOf(lengthByOrdinal, capacity);
+        }
+    }
+
+    private static int addTerms(Map<String, Integer> frequencies, String text, int boost) {
+        List<String> tokens = TextTokenizer.tokenize(text);
+        for (String token : tokens) {
+            frequencies.merge(term(token), boost, Integer::sum);
+        }
+        return tokens.size() * boost;
+    }
+
+    // Minimal plural folding so "headphone" matches "headphones"; no full stemming
+    static String term(String token) {
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.backend.search;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exact top-k search over a {@link MappedVectorStore}, split into slot ranges scored in parallel on a
+ * dedicated {@link ForkJoinPool}. Every chunk keeps its own {@link TopK} and the heaps are merged
+ * on join, so a query allocates a handful of heaps rather than one object per candidate.
+ * <p>
+ * The per-request {@code parallelism} sets how many chunks the slots are cut into, capped by the
+ * pool size; chunks never get smaller than {@link #MIN_CHUNK_SLOTS} so small stores stay on one thread.
+ * <p>
+ * With a {@link FilterBitmap} the scan tests each slot's id before reading its vector. A filter matching
+ * under {@code 1 / SUBSET_RATIO} of the store is not scanned at all: its ids are looked up and scored
+ * directly, so the more selective the filter the cheaper the query.
+ */
+public class ExactSearchEngine implements AutoCloseable {
+
+    static final int MIN_CHUNK_SLOTS = 1024;
+    static final int SUBSET_RATIO = 16;
+
+    private final ForkJoinPool pool;
+
+    public ExactSearchEngine(int threads) {
+        this.pool = new ForkJoinPool(Math.max(1, threads), pool -> {
+            var worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            worker.setName("exact-search-" + worker.getPoolIndex());
+            worker.setDaemon(true);
+            return worker;
+        }, null, false);
+    }
+
+    public int maxParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * @param unitQuery   unit-normalised query, as the stored vectors are
+     * @param parallelism number of chunks to score concurrently; clamped to {@code [1, maxParallelism()]}
+     */
+    public List<SearchHit> search(MappedVectorStore store, float[] unitQuery, int k, double minScore, int parallelism) {
+        return search(store, unitQuery, k, minScore, parallelism, null);
+    }
+
+    /**
+     * @param filter ids allowed in the results, or {@code null} for all
+     */
+    public List<SearchHit> search(MappedVectorStore store, float[] unitQuery, int k, double minScore, int parallelism,
+                                  FilterBitmap filter) {
+        if (unitQuery.length != store.dimension()) {
+            throw new IllegalArgumentException(
+                    "Expected query of dimension " + store.dimension() + " but got " + unitQuery.length);
+        }
+        if (filter != null && (long) filter.cardinality() * SUBSET_RATIO < store.size()) {
+            return searchSubset(store, unitQuery, k, (float) minScore, filter);
+        }
+        int slots = store.slotCount();
+        int chunks = Math.max(1, Math.min(parallelism, maxParallelism()));
+        int chunkSlots = Math.max(MIN_CHUNK_SLOTS, (slots + chunks - 1) / chunks);
+        ScanTask task = new ScanTask(store, unitQuery, k, (float) minScore, filter, chunkSlots, 0, slots);
+        TopK top = slots <= chunkSlots ? task.compute() : pool.invoke(task);
+        return top.toHits();
+    }
+
+    private static List<SearchHit> searchSubset(MappedVectorStore store, float[] query, int k, float minScore,
+                                                FilterBitmap filter) {
+        TopK top = new TopK(k);
+        float[] vector = new float[query.length];
+        filter.forEachId(id -> {
+            if (store.get(id, vector)) {
+                float score = Vectors.dot(query, vector);
+                if (score >= minScore && score > top.threshold()) {
+                    top.offer(id, score);
+                }
+            }
+        });
+        return top.toHits();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static final class ScanTask extends RecursiveTask<TopK> {
+
+        private final MappedVectorStore store;
+        private final float[] query;
+        private final int k;
+        private final float minScore;
+        private final FilterBitmap filter;
+        private final int chunkSlots;
+        private final int from;
+        private final int to;
+
+        ScanTask(MappedVectorStore store, float[] query, int k, float minScore, FilterBitmap filter, int chunkSlots,
+                 int from, int to) {
+            this.store = store;
+            this.query = query;
+            this.k = k;
+            this.minScore = minScore;
+            this.filter = filter;
+            this.chunkSlots = chunkSlots;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= chunkSlots) {
+                return scan();
+            }
+            int middle = from + (to - from) / 2;
+            ScanTask right = new ScanTask(store, query, k, minScore, filter, chunkSlots, middle, to);
+            right.fork();
+            TopK left = new ScanTask(store, query, k, minScore, filter, chunkSlots, from, middle).compute();
+            left.merge(right.join());
+            return left;
+        }
+
+        private TopK scan() {
+            TopK top = new TopK(k);
+            float[] vector = new float[query.length];
+            for (int slot = from; slot < to; slot++) {
+                long id = store.idAt(slot);
+                if (id == 0 || filter != null && !filter.test(id)) {
+                    continue;
+                }
+                store.read(slot, vector);
+                float score = Vectors.dot(query, vector);
+                if (score >= minScore && score > top.threshold()) {
+                    top.offer(id, score);
+                }
+            }
+            return top;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.backend.search;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * The result of {@link AttributeIndex#filter}: a bitmap over product ordinals. Testing an id costs one map
+ * lookup and one bit read, so scans check it before touching the vector.
+ * <p>
+ * It is a snapshot of the bitmaps, but ids are resolved against the live index; a product written after
+ * the filter was taken may be matched against its new attributes, so callers re-check loaded products.
+ */
+public final class FilterBitmap implements LongPredicate {
+
+    private final BitSet bits;
+    private final Map<Long, Integer> ordinalById;
+    private final long[] idByOrdinal;
+    private final int cardinality;
+
+    FilterBitmap(BitSet bits, Map<Long, Integer> ordinalById, long[] idByOrdinal) {
+        this.bits = bits;
+        this.ordinalById = ordinalById;
+        this.idByOrdinal = idByOrdinal;
+        this.cardinality = bits.cardinality();
+    }
+
+    @Override
+    public boolean test(long id) {
+        Integer ordinal = ordinalById.get(id);
+        return ordinal != null && bits.get(ordinal);
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public void forEachId(LongConsumer consumer) {
+        for (int ordinal = bits.nextSetBit(0); ordinal >= 0 && ordinal < idByOrdinal.length;
+             ordinal = bits.nextSetBit(ordinal + 1)) {
+            consumer.accept(idByOrdinal[ordinal]);
+        }
+    }
+}
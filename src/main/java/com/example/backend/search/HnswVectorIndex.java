@@ -0,0 +1,574 @@
+package com.example.backend.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Hierarchical Navigable Small World graph (Malkov &amp; Yashunin) over unit-normalised vectors.
+ * <p>
+ * {@code m} bounds the out-degree on the upper layers (layer 0 allows {@code 2 * m}),
+ * {@code efConstruction} is the candidate list size used while linking a new node and
+ * {@code efSearch} the one used at query time; larger values trade latency for recall.
+ * Removals are tombstones: the node keeps routing traffic but is never returned. Re-inserting an id leaves
+ * one too, so the owner rebuilds the graph once {@link #tombstones()} grows too large.
+ * Filtered searches work the same way: rejected nodes are traversed but never enter the result list, so
+ * the walk keeps going until {@code ef} accepted nodes are found.
+ * Searches and the neighbour search of an insert share a read lock; linking a node in and removals take
+ * the write lock.
+ * <p>
+ * {@link #writeSnapshot} saves the whole graph, vectors included, so a restart can {@link #readSnapshot} it
+ * instead of re-inserting every vector. Layout (little-endian): a {@value #SNAPSHOT_HEADER_BYTES}-byte header
+ * (magic, version, CRC32C and length of the payload, watermark), then the parameters and, per node,
+ * {@code [long id][byte deleted][int level][float x dimension]} followed by {@code [int count][int x count]}
+ * links for each level.
+ */
+public class HnswVectorIndex implements VectorIndex {
+
+    public static final int SNAPSHOT_MAGIC = 0x484E5357; // "HNSW"
+    public static final int SNAPSHOT_VERSION = 1;
+
+    static final int SNAPSHOT_HEADER_BYTES = 64;
+
+    private static final Comparator<Candidate> BY_SCORE = Comparator.comparingDouble(Candidate::score);
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+    private volatile int efSearch;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<Long, Integer> nodeById = new HashMap<>();
+    private int dimension;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswVectorIndex(int m, int efConstruction, int efSearch) {
+        this(m, efConstruction, efSearch, new Random());
+    }
+
+    public HnswVectorIndex(int m, int efConstruction, int efSearch, Random random) {
+        if (m < 2) {
+            throw new IllegalArgumentException("m must be at least 2");
+        }
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.random = random;
+    }
+
+    /**
+     * Inserts in two phases: the neighbour search, which is most of the work, shares the read lock with
+     * queries, and only linking the node in takes the write lock. Nodes inserted between the two phases are
+     * not considered as neighbours, which costs a little recall, never correctness.
+     */
+    @Override
+    public void add(long id, float[] vector) {
+        float[] normalized = Vectors.normalize(vector);
+        int level = randomLevel();
+
+        Plan plan;
+        lock.readLock().lock();
+        try {
+            checkDimension(vector.length);
+            plan = plan(normalized, level);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            checkDimension(vector.length);
+            dimension = vector.length;
+            // A new top layer moved the entry point: the upper-layer candidates are from the wrong graph
+            if (plan.entryPoint() != entryPoint || plan.maxLevel() != maxLevel) {
+                plan = plan(normalized, level);
+            }
+
+            Integer previous = nodeById.remove(id);
+            if (previous != null) {
+                nodes.get(previous).deleted = true;
+            }
+
+            int nodeIndex = nodes.size();
+            Node node = new Node(id, normalized, level);
+            nodes.add(node);
+            nodeById.put(id, nodeIndex);
+
+            if (entryPoint < 0) {
+                entryPoint = nodeIndex;
+                maxLevel = level;
+                return;
+            }
+
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                for (Candidate neighbour : selectNeighbours(plan.candidates().get(l), m)) {
+                    node.addLink(l, neighbour.node());
+                    link(neighbour.node(), l, nodeIndex);
+                }
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = nodeIndex;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer nodeIndex = nodeById.remove(id);
+            if (nodeIndex == null) {
+                return false;
+            }
+            nodes.get(nodeIndex).deleted = true;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<SearchHit> search(float[] query, int k, double minScore, LongPredicate filter) {
+        return search(query, k, minScore, efSearch, filter);
+    }
+
+    public List<SearchHit> search(float[] query, int k, double minScore, int ef) {
+        return search(query, k, minScore, ef, null);
+    }
+
+    public List<SearchHit> search(float[] query, int k, double minScore, int ef, LongPredicate filter) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            float[] normalized = Vectors.normalize(query);
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(normalized, current, l);
+            }
+
+            List<Candidate> candidates = searchLayer(normalized, current, Math.max(ef, k), 0, filter);
+            List<SearchHit> hits = new ArrayList<>(k);
+            for (Candidate candidate : candidates) {
+                if (hits.size() == k || candidate.score() < minScore) {
+                    break;
+                }
+                Node node = nodes.get(candidate.node());
+                if (!node.deleted) {
+                    hits.add(new SearchHit(node.id, candidate.score()));
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodeById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Removed or replaced nodes still held in the graph.
+     */
+    public int tombstones() {
+        lock.readLock().lock();
+        try {
+            return nodes.size() - nodeById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether {@code id} is live with {@code vector}, so adding it again would only leave a tombstone.
+     */
+    public boolean holds(long id, float[] vector) {
+        float[] normalized = Vectors.normalize(vector);
+        lock.readLock().lock();
+        try {
+            Integer nodeIndex = nodeById.get(id);
+            return nodeIndex != null && Arrays.equals(nodes.get(nodeIndex).vector, normalized);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of every live node in ascending order.
+     */
+    public long[] ids() {
+        lock.readLock().lock();
+        try {
+            return nodeById.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    public void setEfSearch(int efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * Writes the graph to {@code path}, recording {@code watermark} as the last embedding it reflects. Only
+     * copying the links and tombstones takes the read lock; vectors are never modified once inserted, so they
+     * are shared with the copy, and the file is written without the lock, leaving writers and the readers
+     * queued behind them unblocked while it streams to disk.
+     */
+    public void writeSnapshot(Path path, SnapshotWatermark watermark) throws IOException {
+        int snapshotEfSearch;
+        int snapshotDimension;
+        int snapshotEntryPoint;
+        int snapshotMaxLevel;
+        List<NodeCopy> copies;
+        lock.readLock().lock();
+        try {
+            snapshotEfSearch = efSearch;
+            snapshotDimension = dimension;
+            snapshotEntryPoint = entryPoint;
+            snapshotMaxLevel = maxLevel;
+            copies = new ArrayList<>(nodes.size());
+            for (Node node : nodes) {
+                int[][] links = new int[node.links.length][];
+                for (int l = 0; l < links.length; l++) {
+                    links[l] = Arrays.copyOf(node.links[l], node.linkCounts[l]);
+                }
+                copies.add(new NodeCopy(node.id, node.deleted, node.vector, links));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        try (SnapshotWriter out = new SnapshotWriter(path, SNAPSHOT_HEADER_BYTES)) {
+            out.putInt(m);
+            out.putInt(efConstruction);
+            out.putInt(snapshotEfSearch);
+            out.putInt(snapshotDimension);
+            out.putInt(snapshotEntryPoint);
+            out.putInt(snapshotMaxLevel);
+            out.putInt(copies.size());
+            for (NodeCopy node : copies) {
+                out.putLong(node.id());
+                out.putByte((byte) (node.deleted() ? 1 : 0));
+                out.putInt(node.links().length - 1);
+                out.putFloats(node.vector());
+                for (int[] links : node.links()) {
+                    out.putInt(links.length);
+                    out.putInts(links, links.length);
+                }
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, SNAPSHOT_MAGIC);
+            header.putInt(4, SNAPSHOT_VERSION);
+            header.putLong(8, out.checksum());
+            header.putLong(16, out.payloadBytes());
+            header.putLong(24, watermark.updatedAt().toEpochSecond(ZoneOffset.UTC));
+            header.putInt(32, watermark.updatedAt().getNano());
+            header.putLong(36, watermark.productId());
+            out.finish(header);
+        }
+    }
+
+    /**
+     * Loads a graph written by {@link #writeSnapshot}.
+     *
+     * @throws IOException if the file is truncated, has an unknown format or fails its checksum
+     */
+    public static Snapshot readSnapshot(Path path) throws IOException {
+        try (SnapshotReader in = new SnapshotReader(path)) {
+            if (in.size() < SNAPSHOT_HEADER_BYTES) {
+                throw new IOException("Snapshot " + path + " is truncated");
+            }
+            in.seek(0);
+            if (in.getInt() != SNAPSHOT_MAGIC || in.getInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Snapshot " + path + " has an unknown format");
+            }
+            long checksum = in.getLong();
+            long payloadBytes = in.getLong();
+            LocalDateTime updatedAt = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+            SnapshotWatermark watermark = new SnapshotWatermark(updatedAt, in.getLong());
+            if (in.size() != SNAPSHOT_HEADER_BYTES + payloadBytes || in.checksum(SNAPSHOT_HEADER_BYTES) != checksum) {
+                throw new IOException("Snapshot " + path + " fails its checksum");
+            }
+
+            in.seek(SNAPSHOT_HEADER_BYTES);
+            HnswVectorIndex index = new HnswVectorIndex(in.getInt(), in.getInt(), in.getInt());
+            index.dimension = in.getInt();
+            index.entryPoint = in.getInt();
+            index.maxLevel = in.getInt();
+            int count = in.getInt();
+            for (int nodeIndex = 0; nodeIndex < count; nodeIndex++) {
+                long id = in.getLong();
+                boolean deleted = in.get() != 0;
+                Node node = index.new Node(id, new float[index.dimension], in.getInt());
+                in.getFloats(node.vector);
+                for (int l = 0; l < node.links.length; l++) {
+                    node.linkCounts[l] = in.getInt();
+                    in.getInts(node.links[l], node.linkCounts[l]);
+                }
+                node.deleted = deleted;
+                index.nodes.add(node);
+                if (!deleted) {
+                    index.nodeById.put(id, nodeIndex);
+                }
+            }
+            return new Snapshot(index, watermark);
+        } catch (RuntimeException e) {
+            throw new IOException("Snapshot " + path + " is corrupt: " + e.getMessage(), e);
+        }
+    }
+
+    public record Snapshot(HnswVectorIndex index, SnapshotWatermark watermark) {
+    }
+
+    private void checkDimension(int length) {
+        if (dimension != 0 && length != dimension) {
+            throw new IllegalArgumentException("Expected vector of dimension " + dimension + " but got " + length);
+        }
+    }
+
+    /**
+     * Candidate neighbours of a new node on each of its layers that already exist, indexed by layer.
+     * Reads the graph only, so it runs under either lock.
+     */
+    private Plan plan(float[] vector, int level) {
+        List<List<Candidate>> candidates = new ArrayList<>();
+        if (entryPoint < 0) {
+            return new Plan(entryPoint, maxLevel, candidates);
+        }
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(vector, current, l);
+        }
+        int top = Math.min(level, maxLevel);
+        candidates.addAll(Collections.nCopies(top + 1, List.of()));
+        for (int l = top; l >= 0; l--) {
+            List<Candidate> layer = searchLayer(vector, current, efConstruction, l, null);
+            candidates.set(l, layer);
+            current = layer.get(0).node();
+        }
+        return new Plan(entryPoint, maxLevel, candidates);
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - random.nextDouble();
+        return (int) (-Math.log(r) * levelMultiplier);
+    }
+
+    private float similarity(float[] query, int nodeIndex) {
+        return Vectors.dot(query, nodes.get(nodeIndex).vector);
+    }
+
+    /**
+     * Walks greedily towards the query on a single layer, used to descend the upper layers.
+     */
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = similarity(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            Node node = nodes.get(current);
+            int[] links = node.links[level];
+            for (int i = 0; i < node.linkCounts[level]; i++) {
+                float score = similarity(query, links[i]);
+                if (score > best) {
+                    best = score;
+                    current = links[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search on one layer; returns up to {@code ef} candidates, best first. With a filter only
+     * live nodes it accepts are returned, but every node can be expanded.
+     */
+    private List<Candidate> searchLayer(float[] query, int entry, int ef, int level, LongPredicate filter) {
+        BitSet visited = new BitSet(nodes.size());
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>(BY_SCORE.reversed());
+        PriorityQueue<Candidate> results = new PriorityQueue<>(BY_SCORE);
+
+        Candidate start = new Candidate(entry, similarity(query, entry));
+        visited.set(entry);
+        frontier.add(start);
+        if (accepts(filter, entry)) {
+            results.add(start);
+        }
+
+        while (!frontier.isEmpty()) {
+            Candidate closest = frontier.poll();
+            if (results.size() >= ef && closest.score() < results.peek().score()) {
+                break;
+            }
+            Node node = nodes.get(closest.node());
+            if (node.links.length <= level) {
+                continue;
+            }
+            int[] links = node.links[level];
+            for (int i = 0; i < node.linkCounts[level]; i++) {
+                int neighbour = links[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float score = similarity(query, neighbour);
+                if (results.size() < ef || score > results.peek().score()) {
+                    Candidate candidate = new Candidate(neighbour, score);
+                    frontier.add(candidate);
+                    if (accepts(filter, neighbour)) {
+                        results.add(candidate);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Candidate> ordered = new ArrayList<>(results);
+        ordered.sort(BY_SCORE.reversed());
+        return ordered;
+    }
+
+    private boolean accepts(LongPredicate filter, int nodeIndex) {
+        if (filter == null) {
+            return true;
+        }
+        Node node = nodes.get(nodeIndex);
+        return !node.deleted && filter.test(node.id);
+    }
+
+    /**
+     * Neighbour selection heuristic: keep a candidate only if it is closer to the base node than to any
+     * neighbour already chosen, so links spread across clusters; top up with the pruned ones if short.
+     */
+    private List<Candidate> selectNeighbours(List<Candidate> candidates, int limit) {
+        List<Candidate> selected = new ArrayList<>(limit);
+        List<Candidate> pruned = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (selected.size() >= limit) {
+                break;
+            }
+            float[] vector = nodes.get(candidate.node()).vector;
+            boolean diverse = true;
+            for (Candidate chosen : selected) {
+                if (similarity(vector, chosen.node()) > candidate.score()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            } else {
+                pruned.add(candidate);
+            }
+        }
+        for (int i = 0; i < pruned.size() && selected.size() < limit; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected;
+    }
+
+    private void link(int from, int level, int to) {
+        Node node = nodes.get(from);
+        int capacity = level == 0 ? maxM0 : m;
+        if (node.linkCounts[level] < capacity) {
+            node.addLink(level, to);
+            return;
+        }
+
+        List<Candidate> candidates = new ArrayList<>(capacity + 1);
+        candidates.add(new Candidate(to, similarity(node.vector, to)));
+        for (int i = 0; i < node.linkCounts[level]; i++) {
+            int neighbour = node.links[level][i];
+            candidates.add(new Candidate(neighbour, similarity(node.vector, neighbour)));
+        }
+        candidates.sort(BY_SCORE.reversed());
+
+        List<Candidate> kept = selectNeighbours(candidates, capacity);
+        node.linkCounts[level] = 0;
+        for (Candidate candidate : kept) {
+            node.addLink(level, candidate.node());
+        }
+    }
+
+    private record Candidate(int node, float score) {
+    }
+
+    private record Plan(int entryPoint, int maxLevel, List<List<Candidate>> candidates) {
+    }
+
+    // A node as it was when a snapshot was taken; links are trimmed to their counts
+    private record NodeCopy(long id, boolean deleted, float[] vector, int[][] links) {
+    }
+
+    private final class Node {
+        final long id;
+        final float[] vector;
+        final int[][] links;
+        final int[] linkCounts;
+        boolean deleted;
+
+        Node(long id, float[] vector, int level) {
+            this.id = id;
+            this.vector = vector;
+            this.links = new int[level + 1][];
+            this.linkCounts = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                links[l] = new int[l == 0 ? maxM0 : m];
+            }
+        }
+
+        void addLink(int level, int target) {
+            links[level][linkCounts[level]++] = target;
+        }
+    }
+}
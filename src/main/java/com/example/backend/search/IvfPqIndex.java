@@ -0,0 +1,490 @@
+package com.example.backend.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Inverted-file index with product-quantised residuals (IVF-PQ) in a memory-mapped file, for catalogs whose
+ * vectors or HNSW graph do not fit on the heap. Every vector is assigned to its closest of {@code lists} coarse
+ * centroids and stored in that list as the PQ code of its residual; a query scores its {@code nprobe} closest
+ * lists only, as {@code query.centroid + sum(lookup[subspace][code])}.
+ * <p>
+ * Layout (little-endian): a {@value #HEADER_BYTES}-byte header (magic, version, dimension, lists, subspaces,
+ * count), centroids {@code float[lists x dimension]}, codebooks {@code float[dimension x 256]}, list starts
+ * {@code long[lists + 1]}, ids {@code long[count]} sorted, then records {@code [long id][byte x subspaces]}
+ * grouped by list. Centroids and codebooks are read onto the heap; ids and lists stay in the mapping and are
+ * paged in as lists are probed. Every list is mapped by {@link #open}, so searches still holding an index that
+ * has been closed, because a rebuild replaced it, keep reading valid mappings.
+ * <p>
+ * The file is written once by {@link #build}. Vectors added or removed afterwards live in a heap overlay,
+ * encoded with the trained codebooks, until the next build.
+ */
+public class IvfPqIndex implements VectorIndex, Closeable {
+
+    public static final int MAGIC = 0x49564650; // "IVFP"
+    public static final int VERSION = 1;
+
+    static final int HEADER_BYTES = 64;
+
+    private final Path path;
+    private final int dimension;
+    private final int subspaces;
+    private final int recordBytes;
+    private final int nprobe;
+    private final FileChannel channel;
+    private final float[][] centroids;
+    private final ProductQuantizer quantizer;
+    private final long[] listStarts;
+    private final LongBuffer sortedIds;
+    private final long recordsStart;
+    private final MappedByteBuffer[] lists;
+
+    private final Map<Long, Entry> overlay = new ConcurrentHashMap<>();
+    // Ids whose record in the file is stale: removed, or re-added to the overlay
+    private final Set<Long> hidden = ConcurrentHashMap.newKeySet();
+    private volatile int size;
+
+    /**
+     * Training and layout parameters for {@link #build}.
+     *
+     * @param lists          coarse centroids, each owning one inverted list
+     * @param subspaces      PQ sub-vectors per vector, i.e. code bytes; must divide the dimension
+     * @param trainingSample vectors sampled for k-means training
+     * @param iterations     k-means iterations for both the centroids and the codebooks
+     */
+    public record Params(int lists, int subspaces, int trainingSample, int iterations) {
+    }
+
+    private record Entry(int list, byte[] code) {
+    }
+
+    private IvfPqIndex(Path path, FileChannel channel, int dimension, int subspaces, int nprobe, float[][] centroids,
+                       ProductQuantizer quantizer, long[] listStarts, LongBuffer sortedIds, long recordsStart,
+                       MappedByteBuffer[] lists) {
+        this.path = path;
+        this.channel = channel;
+        this.dimension = dimension;
+        this.subspaces = subspaces;
+        this.recordBytes = Long.BYTES + subspaces;
+        this.nprobe = nprobe;
+        this.centroids = centroids;
+        this.quantizer = quantizer;
+        this.listStarts = listStarts;
+        this.sortedIds = sortedIds;
+        this.recordsStart = recordsStart;
+        this.lists = lists;
+        this.size = sortedIds.capacity();
+    }
+
+    /**
+     * Trains centroids and codebooks on a random sample of {@code vectors}, encodes every vector and writes the
+     * index to {@code path}, replacing any existing file. {@code vectors} is called twice, once to sample and
+     * once to encode, and may reuse the array it passes. Records are staged in a scratch file next to
+     * {@code path} so no more than the sample and the id column are held on the heap.
+     */
+    public static IvfPqIndex build(Path path, int dimension, Params params, int nprobe,
+                                   Consumer<BiConsumer<Long, float[]>> vectors, Random random) throws IOException {
+        float[][] sample = sample(dimension, params.trainingSample(), vectors, random);
+        float[][] centroids = KMeans.train(sample, 0, dimension, params.lists(), params.iterations(), true, random);
+        for (float[] vector : sample) {
+            subtract(vector, centroids[KMeans.nearest(centroids, vector, 0, true)]);
+        }
+        ProductQuantizer quantizer = ProductQuantizer.train(sample, params.subspaces(), params.iterations(), random);
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path scratch = path.resolveSibling(path.getFileName() + ".records");
+        int[] listSizes = new int[centroids.length];
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(scratch)))) {
+                byte[] code = new byte[params.subspaces()];
+                vectors.accept((id, vector) -> {
+                    float[] residual = Vectors.normalize(vector);
+                    int list = KMeans.nearest(centroids, residual, 0, true);
+                    subtract(residual, centroids[list]);
+                    quantizer.encode(residual, code, 0);
+                    try {
+                        out.writeInt(list);
+                        out.writeLong(id);
+                        out.write(code);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    listSizes[list]++;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            write(path, dimension, centroids, quantizer, listSizes, scratch);
+        } finally {
+            Files.deleteIfExists(scratch);
+        }
+        return open(path, dimension, nprobe);
+    }
+
+    /**
+     * Opens an index written by {@link #build}.
+     *
+     * @throws IOException if the file is missing, corrupt, was written with another dimension, or has a list
+     *                     too large to map
+     */
+    public static IvfPqIndex open(Path path, int dimension, int nprobe) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("IVF-PQ index " + path + " is truncated");
+            }
+            ByteBuffer header = map(channel, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("IVF-PQ index " + path + " has an unknown format");
+            }
+            if (header.getInt(8) != dimension) {
+                throw new IOException("IVF-PQ index " + path + " has dimension " + header.getInt(8)
+                        + ", expected " + dimension);
+            }
+            int listCount = header.getInt(12);
+            int subspaces = header.getInt(16);
+            int count = header.getInt(20);
+
+            long position = HEADER_BYTES;
+            float[][] centroids = new float[listCount][dimension];
+            ByteBuffer section = map(channel, position, (long) listCount * dimension * Float.BYTES);
+            for (float[] centroid : centroids) {
+                section.asFloatBuffer().get(centroid);
+                section.position(section.position() + dimension * Float.BYTES);
+            }
+            position += (long) listCount * dimension * Float.BYTES;
+
+            int subDimension = dimension / subspaces;
+            float[][] codebooks = new float[subspaces][ProductQuantizer.CODEWORDS * subDimension];
+            section = map(channel, position, (long) dimension * ProductQuantizer.CODEWORDS * Float.BYTES);
+            for (float[] codebook : codebooks) {
+                section.asFloatBuffer().get(codebook);
+                section.position(section.position() + codebook.length * Float.BYTES);
+            }
+            position += (long) dimension * ProductQuantizer.CODEWORDS * Float.BYTES;
+
+            long[] listStarts = new long[listCount + 1];
+            map(channel, position, (long) listStarts.length * Long.BYTES).asLongBuffer().get(listStarts);
+            position += (long) listStarts.length * Long.BYTES;
+
+            if ((long) count * Long.BYTES > Integer.MAX_VALUE) {
+                throw new IOException("IVF-PQ index " + path + " holds too many ids to map");
+            }
+            LongBuffer sortedIds = map(channel, position, (long) count * Long.BYTES).asLongBuffer();
+            position += (long) count * Long.BYTES;
+
+            int recordBytes = Long.BYTES + subspaces;
+            if (channel.size() < position + (long) count * recordBytes || listStarts[listCount] != count) {
+                throw new IOException("IVF-PQ index " + path + " is truncated");
+            }
+            // Mapping reserves address space only; pages are read as lists are probed
+            MappedByteBuffer[] lists = new MappedByteBuffer[listCount];
+            for (int list = 0; list < listCount; list++) {
+                if ((listStarts[list + 1] - listStarts[list]) * recordBytes > Integer.MAX_VALUE) {
+                    throw new IOException("IVF-PQ index " + path + " has a list too large to map");
+                }
+                lists[list] = map(channel, position + listStarts[list] * recordBytes,
+                        (listStarts[list + 1] - listStarts[list]) * recordBytes);
+            }
+            return new IvfPqIndex(path, channel, dimension, subspaces, nprobe, centroids,
+                    new ProductQuantizer(dimension, subspaces, codebooks), listStarts, sortedIds, position,
+                    lists);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void add(long id, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(
+                    "Expected vector of dimension " + dimension + " but got " + vector.length);
+        }
+        float[] residual = Vectors.normalize(vector);
+        int list = KMeans.nearest(centroids, residual, 0, true);
+        subtract(residual, centroids[list]);
+        byte[] code = new byte[subspaces];
+        quantizer.encode(residual, code, 0);
+
+        synchronized (this) {
+            boolean live = isLive(id);
+            if (inFile(id)) {
+                hidden.add(id);
+            }
+            overlay.put(id, new Entry(list, code));
+            if (!live) {
+                size++;
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean remove(long id) {
+        boolean live = isLive(id);
+        overlay.remove(id);
+        if (inFile(id)) {
+            hidden.add(id);
+        }
+        if (live) {
+            size--;
+        }
+        return live;
+    }
+
+    @Override
+    public List<SearchHit> search(float[] query, int k, double minScore, LongPredicate filter) {
+        return search(query, k, minScore, filter, nprobe);
+    }
+
+    /**
+     * As {@link #search(float[], int, double, LongPredicate)}, probing the {@code probes} lists whose centroids
+     * are closest to the query. Scores are PQ approximations of the cosine similarity.
+     */
+    public List<SearchHit> search(float[] query, int k, double minScore, LongPredicate filter, int probes) {
+        float[] unitQuery = Vectors.normalize(query);
+        TopK closest = new TopK(Math.max(1, Math.min(probes, centroids.length)));
+        for (int list = 0; list < centroids.length; list++) {
+            closest.offer(list, Vectors.dot(unitQuery, centroids[list]));
+        }
+        float[] table = quantizer.lookupTable(unitQuery);
+        float[] base = new float[centroids.length];
+        boolean[] probed = new boolean[centroids.length];
+        boolean anyHidden = !hidden.isEmpty();
+
+        TopK top = new TopK(k);
+        byte[] code = new byte[subspaces];
+        for (SearchHit hit : closest.toHits()) {
+            int list = (int) hit.id();
+            probed[list] = true;
+            base[list] = (float) hit.score();
+            MappedByteBuffer records = lists[list];
+            for (int position = 0; position < records.capacity(); position += recordBytes) {
+                long id = records.getLong(position);
+                if (anyHidden && hidden.contains(id) || filter != null && !filter.test(id)) {
+                    continue;
+                }
+                records.get(position + Long.BYTES, code);
+                float score = base[list] + ProductQuantizer.score(table, code);
+                if (score >= minScore && score > top.threshold()) {
+                    top.offer(id, score);
+                }
+            }
+        }
+        for (Map.Entry<Long, Entry> added : overlay.entrySet()) {
+            Entry entry = added.getValue();
+            if (probed[entry.list()] && (filter == null || filter.test(added.getKey()))) {
+                float score = base[entry.list()] + ProductQuantizer.score(table, entry.code());
+                if (score >= minScore && score > top.threshold()) {
+                    top.offer(added.getKey(), score);
+                }
+            }
+        }
+        return top.toHits();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    public int lists() {
+        return centroids.length;
+    }
+
+    public int subspaces() {
+        return subspaces;
+    }
+
+    public int nprobe() {
+        return nprobe;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public long fileBytes() {
+        return recordsStart + (long) sortedIds.capacity() * recordBytes;
+    }
+
+    /**
+     * Vectors added or replaced since the file was built, held on the heap.
+     */
+    public int overlaySize() {
+        return overlay.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean isLive(long id) {
+        return overlay.containsKey(id) || inFile(id) && !hidden.contains(id);
+    }
+
+    private boolean inFile(long id) {
+        int low = 0;
+        int high = sortedIds.capacity() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = sortedIds.get(mid);
+            if (value < id) {
+                low = mid + 1;
+            } else if (value > id) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static float[][] sample(int dimension, int capacity, Consumer<BiConsumer<Long, float[]>> vectors,
+                                    Random random) {
+        float[][] reservoir = new float[capacity][];
+        int[] seen = new int[1];
+        vectors.accept((id, vector) -> {
+            if (vector.length != dimension) {
+                throw new IllegalArgumentException(
+                        "Expected vector of dimension " + dimension + " but got " + vector.length);
+            }
+            int slot = seen[0] < capacity ? seen[0] : random.nextInt(seen[0] + 1);
+            if (slot < capacity) {
+                reservoir[slot] = Vectors.normalize(vector);
+            }
+            seen[0]++;
+        });
+        if (seen[0] == 0) {
+            throw new IllegalStateException("No embeddings to train the IVF-PQ index on");
+        }
+        return Arrays.copyOf(reservoir, Math.min(seen[0], capacity));
+    }
+
+    private static void write(Path path, int dimension, float[][] centroids, ProductQuantizer quantizer,
+                              int[] listSizes, Path scratch) throws IOException {
+        int subspaces = quantizer.subspaces();
+        int recordBytes = Long.BYTES + subspaces;
+        long[] listStarts = new long[centroids.length + 1];
+        for (int list = 0; list < centroids.length; list++) {
+            listStarts[list + 1] = listStarts[list] + listSizes[list];
+        }
+        int count = (int) listStarts[centroids.length];
+
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(centroids.length).putInt(subspaces)
+                    .putInt(count);
+            writeFully(out, header.clear());
+            for (float[] centroid : centroids) {
+                writeFloats(out, centroid);
+            }
+            for (float[] codebook : quantizer.codebooks()) {
+                writeFloats(out, codebook);
+            }
+            ByteBuffer starts = ByteBuffer.allocate(listStarts.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            starts.asLongBuffer().put(listStarts);
+            writeFully(out, starts);
+
+            long idsStart = out.position();
+            long recordsStart = idsStart + (long) count * Long.BYTES;
+            long[] ids = new long[count];
+            long[] next = Arrays.copyOf(listStarts, centroids.length);
+            ByteBuffer record = ByteBuffer.allocate(recordBytes).order(ByteOrder.LITTLE_ENDIAN);
+            byte[] code = new byte[subspaces];
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(scratch)))) {
+                for (int i = 0; i < count; i++) {
+                    int list = in.readInt();
+                    long id = in.readLong();
+                    in.readFully(code);
+                    ids[i] = id;
+                    record.clear();
+                    record.putLong(id).put(code).flip();
+                    long position = recordsStart + next[list]++ * recordBytes;
+                    while (record.hasRemaining()) {
+                        position += out.write(record, position);
+                    }
+                }
+            } catch (EOFException e) {
+                throw new IOException("Scratch file " + scratch + " ended early", e);
+            }
+
+            Arrays.sort(ids);
+            ByteBuffer idColumn = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            long position = idsStart;
+            for (long id : ids) {
+                if (!idColumn.hasRemaining()) {
+                    position += writeAt(out, idColumn.flip(), position);
+                    idColumn.clear();
+                }
+                idColumn.putLong(id);
+            }
+            writeAt(out, idColumn.flip(), position);
+            out.force(true);
+        }
+    }
+
+    private static void writeFloats(FileChannel out, float[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(values);
+        writeFully(out, buffer);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static long writeAt(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += out.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static void subtract(float[] vector, float[] centroid) {
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] -= centroid[i];
+        }
+    }
+}
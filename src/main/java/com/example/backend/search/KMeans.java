@@ -0,0 +1,106 @@
+package com.example.backend.search;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Lloyd's k-means over a sub-range {@code [offset, offset + length)} of each training vector, used to train the
+ * coarse IVF centroids (spherical, on whole unit vectors) and the product-quantisation codebooks (euclidean,
+ * on sub-vectors). Centroids start on distinct random samples; a centroid left empty is re-seeded on a random
+ * sample. The assignment step runs in parallel.
+ */
+public final class KMeans {
+
+    private KMeans() {
+    }
+
+    /**
+     * @param spherical assign by largest dot product and keep centroids unit length, instead of nearest
+     *                  euclidean distance
+     * @return {@code min(k, points.length)} centroids of {@code length} components each
+     */
+    public static float[][] train(float[][] points, int offset, int length, int k, int iterations,
+                                  boolean spherical, Random random) {
+        if (points.length == 0) {
+            throw new IllegalArgumentException("k-means needs at least one training point");
+        }
+        int clusters = Math.min(k, points.length);
+        float[][] centroids = new float[clusters][];
+        int[] order = IntStream.range(0, points.length).toArray();
+        for (int c = 0; c < clusters; c++) {
+            int pick = c + random.nextInt(points.length - c);
+            int swap = order[c];
+            order[c] = order[pick];
+            order[pick] = swap;
+            centroids[c] = slice(points[order[c]], offset, length);
+        }
+
+        int[] assignment = new int[points.length];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            float[][] current = centroids;
+            float[] halfNorms = spherical ? null : halfNorms(current);
+            IntStream.range(0, points.length).parallel()
+                    .forEach(p -> assignment[p] = nearest(current, halfNorms, points[p], offset));
+
+            float[][] sums = new float[clusters][length];
+            int[] counts = new int[clusters];
+            for (int p = 0; p < points.length; p++) {
+                float[] sum = sums[assignment[p]];
+                for (int i = 0; i < length; i++) {
+                    sum[i] += points[p][offset + i];
+                }
+                counts[assignment[p]]++;
+            }
+            for (int c = 0; c < clusters; c++) {
+                if (counts[c] == 0) {
+                    sums[c] = slice(points[random.nextInt(points.length)], offset, length);
+                } else {
+                    for (int i = 0; i < length; i++) {
+                        sums[c][i] /= counts[c];
+                    }
+                }
+                if (spherical) {
+                    sums[c] = Vectors.normalize(sums[c]);
+                }
+            }
+            centroids = sums;
+        }
+        return centroids;
+    }
+
+    /**
+     * Index of the centroid closest to {@code point[offset, offset + centroid length)}.
+     */
+    public static int nearest(float[][] centroids, float[] point, int offset, boolean spherical) {
+        return nearest(centroids, spherical ? null : halfNorms(centroids), point, offset);
+    }
+
+    // argmin |x - c|^2 == argmax (x.c - |c|^2 / 2); spherical centroids all have the same norm
+    private static int nearest(float[][] centroids, float[] halfNorms, float[] point, int offset) {
+        int best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < centroids.length; c++) {
+            float dot = Vectors.dot(centroids[c], point, offset);
+            float score = halfNorms == null ? dot : dot - halfNorms[c];
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private static float[] halfNorms(float[][] centroids) {
+        float[] halfNorms = new float[centroids.length];
+        for (int c = 0; c < centroids.length; c++) {
+            halfNorms[c] = Vectors.dot(centroids[c], centroids[c]) / 2;
+        }
+        return halfNorms;
+    }
+
+    private static float[] slice(float[] point, int offset, int length) {
+        float[] copy = new float[length];
+        System.arraycopy(point, offset, copy, 0, length);
+        return copy;
+    }
+}
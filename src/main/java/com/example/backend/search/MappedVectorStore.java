@@ -0,0 +1,288 @@
+package com.example.backend.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Fixed-dimension float32 vectors in a memory-mapped file, keyed by product id.
+ * <p>
+ * Layout: a {@value #HEADER_BYTES}-byte header (magic, version, dimension, slot count, the
+ * {@code product_embeddings} watermark the file was last reconciled to) followed by
+ * fixed-size records of {@code [long id][float x dimension]}. A record whose id is {@value #FREE_SLOT}
+ * is free and gets reused by the next insert. The file is mapped in 64 MB segments of whole records,
+ * so catalogs larger than 2 GB still work and vectors never live on the Java heap.
+ * <p>
+ * Writes are serialised on the store; reads are lock-free and may observe a vector mid-update.
+ */
+public class MappedVectorStore implements Closeable {
+
+    public static final int MAGIC = 0x454D4253; // "EMBS"
+    // Version 2: vectors are unit-normalised
+    public static final int VERSION = 2;
+
+    static final int HEADER_BYTES = 64;
+    static final long FREE_SLOT = 0L;
+    private static final long MAX_SEGMENT_BYTES = 64L << 20;
+
+    private final Path path;
+    private final int dimension;
+    private final int recordBytes;
+    private final int recordsPerSegment;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    // One float view per segment, so vectors are copied with absolute bulk gets and puts and no view per read
+    private final List<FloatBuffer> floatSegments = new CopyOnWriteArrayList<>();
+    private final Map<Long, Integer> slotById = new ConcurrentHashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private volatile int slotCount;
+
+    private MappedVectorStore(Path path, int dimension, FileChannel channel) throws IOException {
+        this.path = path;
+        this.dimension = dimension;
+        this.recordBytes = Long.BYTES + dimension * Float.BYTES;
+        this.recordsPerSegment = (int) Math.max(1, MAX_SEGMENT_BYTES / recordBytes);
+        this.channel = channel;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        this.header.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Creates an empty store at {@code path}, replacing any existing file.
+     */
+    public static MappedVectorStore create(Path path, int dimension) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedVectorStore store = new MappedVectorStore(path, dimension, channel);
+        store.header.putInt(0, MAGIC);
+        store.header.putInt(4, VERSION);
+        store.header.putInt(8, dimension);
+        store.header.putInt(12, 0);
+        return store;
+    }
+
+    /**
+     * Opens an existing store, rebuilding the id-to-slot map from the records on disk.
+     *
+     * @throws IOException if the file is missing, corrupt or was written with another dimension
+     */
+    public static MappedVectorStore open(Path path, int dimension) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedVectorStore store = null;
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Embedding store " + path + " is truncated");
+            }
+            store = new MappedVectorStore(path, dimension, channel);
+            if (store.header.getInt(0) != MAGIC || store.header.getInt(4) != VERSION) {
+                throw new IOException("Embedding store " + path + " has an unknown format");
+            }
+            if (store.header.getInt(8) != dimension) {
+                throw new IOException("Embedding store " + path + " has dimension " + store.header.getInt(8)
+                        + ", expected " + dimension);
+            }
+            int count = store.header.getInt(12);
+            if (channel.size() < HEADER_BYTES + (long) count * store.recordBytes) {
+                throw new IOException("Embedding store " + path + " is truncated");
+            }
+            store.slotCount = count;
+            for (int slot = 0; slot < count; slot++) {
+                long id = store.idAt(slot);
+                if (id == FREE_SLOT) {
+                    store.freeSlots.add(slot);
+                } else {
+                    store.slotById.put(id, slot);
+                }
+            }
+            return store;
+        } catch (IOException | RuntimeException e) {
+            if (store == null) {
+                channel.close();
+            } else {
+                store.close();
+            }
+            throw e;
+        }
+    }
+
+    public synchronized void put(long id, float[] vector) {
+        if (id == FREE_SLOT) {
+            throw new IllegalArgumentException("Id " + FREE_SLOT + " is reserved");
+        }
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(
+                    "Expected vector of dimension " + dimension + " but got " + vector.length);
+        }
+        Integer slot = slotById.get(id);
+        if (slot == null) {
+            slot = freeSlots.isEmpty() ? appendSlot() : freeSlots.poll();
+        }
+        int offset = offset(slot);
+        floatSegment(slot).put((offset + Long.BYTES) / Float.BYTES, vector);
+        segment(slot).putLong(offset, id);
+        slotById.put(id, slot);
+    }
+
+    public synchronized boolean remove(long id) {
+        Integer slot = slotById.remove(id);
+        if (slot == null) {
+            return false;
+        }
+        segment(slot).putLong(offset(slot), FREE_SLOT);
+        freeSlots.add(slot);
+        return true;
+    }
+
+    public boolean contains(long id) {
+        return slotById.containsKey(id);
+    }
+
+    /**
+     * Copies the vector stored for {@code id} into {@code target}.
+     *
+     * @return {@code false} if there is no vector for {@code id}
+     */
+    public boolean get(long id, float[] target) {
+        Integer slot = slotById.get(id);
+        if (slot == null) {
+            return false;
+        }
+        read(slot, target);
+        return true;
+    }
+
+    /**
+     * Copies the vector in {@code slot} into {@code target}, which must have length {@link #dimension()}.
+     */
+    public void read(int slot, float[] target) {
+        floatSegment(slot).get((offset(slot) + Long.BYTES) / Float.BYTES, target, 0, dimension);
+    }
+
+    /**
+     * Returns the product id in {@code slot}, or {@value #FREE_SLOT} if the slot is free.
+     */
+    public long idAt(int slot) {
+        return segment(slot).getLong(offset(slot));
+    }
+
+    /**
+     * Number of slots in use or free; iterate {@code 0..slotCount()} and skip free slots to scan the store.
+     */
+    public int slotCount() {
+        return slotCount;
+    }
+
+    public int size() {
+        return slotById.size();
+    }
+
+    /**
+     * Watermark recorded by {@link #setWatermark}; {@link SnapshotWatermark#NONE} for files that never had one.
+     */
+    public SnapshotWatermark watermark() {
+        LocalDateTime updatedAt = LocalDateTime.ofEpochSecond(header.getLong(16), header.getInt(24), ZoneOffset.UTC);
+        return new SnapshotWatermark(updatedAt, header.getLong(32));
+    }
+
+    public synchronized void setWatermark(SnapshotWatermark watermark) {
+        header.putLong(16, watermark.updatedAt().toEpochSecond(ZoneOffset.UTC));
+        header.putInt(24, watermark.updatedAt().getNano());
+        header.putLong(32, watermark.productId());
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public long mappedBytes() {
+        return HEADER_BYTES + (long) slotCount * recordBytes;
+    }
+
+    /**
+     * Fraction of mapped segments whose pages are all resident in physical memory.
+     */
+    public double residentRatio() {
+        List<MappedByteBuffer> mapped = segments;
+        if (mapped.isEmpty()) {
+            return 1.0;
+        }
+        long loaded = mapped.stream().filter(MappedByteBuffer::isLoaded).count();
+        return (double) loaded / mapped.size();
+    }
+
+    public synchronized void force() {
+        header.force();
+        segments.forEach(MappedByteBuffer::force);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private int appendSlot() {
+        int slot = slotCount;
+        slotCount = slot + 1;
+        header.putInt(12, slotCount);
+        return slot;
+    }
+
+    private int offset(int slot) {
+        return (slot % recordsPerSegment) * recordBytes;
+    }
+
+    private MappedByteBuffer segment(int slot) {
+        int index = slot / recordsPerSegment;
+        if (index < segments.size()) {
+            return segments.get(index);
+        }
+        return mapSegment(index);
+    }
+
+    private FloatBuffer floatSegment(int slot) {
+        int index = slot / recordsPerSegment;
+        if (index >= floatSegments.size()) {
+            mapSegment(index);
+        }
+        return floatSegments.get(index);
+    }
+
+    private synchronized MappedByteBuffer mapSegment(int index) {
+        try {
+            while (segments.size() <= index) {
+                long position = HEADER_BYTES + (long) segments.size() * recordsPerSegment * recordBytes;
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, position,
+                        (long) recordsPerSegment * recordBytes);
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                segments.add(segment);
+                floatSegments.add(segment.asFloatBuffer());
+            }
+            return segments.get(index);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not map embedding store segment " + index + " of " + path, e);
+        }
+    }
+}
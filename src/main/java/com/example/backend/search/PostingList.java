@@ -0,0 +1,78 @@
+package com.example.backend.search;
+
+import java.util.Arrays;
+
+/**
+ * Append-only posting list of (document ordinal, term frequency) pairs, stored as variable-length
+ * integers with the ordinals delta-encoded. Ordinals must be appended in increasing order.
+ * Most gaps and frequencies fit one byte, against eight for an uncompressed pair of ints.
+ */
+final class PostingList {
+
+    @FunctionalInterface
+    interface PostingConsumer {
+        void accept(int doc, int frequency);
+    }
+
+    private byte[] data = new byte[8];
+    private int length;
+    private int count;
+    private int lastDoc = -1;
+
+    void add(int doc, int frequency) {
+        if (doc <= lastDoc) {
+            throw new IllegalArgumentException("Postings must be added in increasing document order");
+        }
+        writeVarInt(doc - lastDoc - 1);
+        writeVarInt(frequency);
+        lastDoc = doc;
+        count++;
+    }
+
+    void forEach(PostingConsumer consumer) {
+        int position = 0;
+        int doc = -1;
+        while (position < length) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            int frequency = 0;
+            shift = 0;
+            do {
+                b = data[position++];
+                frequency |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            doc += gap + 1;
+            consumer.accept(doc, frequency);
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    int bytes() {
+        return length;
+    }
+
+    void trim() {
+        data = Arrays.copyOf(data, Math.max(length, 1));
+    }
+
+    private void writeVarInt(int value) {
+        if (length + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+        }
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.backend.search;
+
+import java.util.Arrays;
+
+/**
+ * Two-stage search over Matryoshka embeddings. Stage one scores every product on a renormalised
+ * {@code prefixDimension}-component prefix, packed back to back in one heap array; stage two re-scores the
+ * best {@code rerankDepth} of those against the full vectors in a {@link MappedVectorStore}. With 256 of
+ * 3072 components the scan touches a twelfth of the memory the exact scan does.
+ */
+public class PrefixVectorIndex extends RerankingVectorIndex {
+
+    private final int prefixDimension;
+
+    private float[] prefixes = new float[0];
+
+    public PrefixVectorIndex(int prefixDimension) {
+        if (prefixDimension < 1) {
+            throw new IllegalArgumentException("prefixDimension must be at least 1");
+        }
+        this.prefixDimension = prefixDimension;
+    }
+
+    @Override
+    public void put(long id, float[] vector) {
+        if (vector.length < prefixDimension) {
+            throw new IllegalArgumentException(
+                    "Expected vector of at least " + prefixDimension + " components but got " + vector.length);
+        }
+        super.put(id, vector);
+    }
+
+    public int prefixDimension() {
+        return prefixDimension;
+    }
+
+    @Override
+    protected void encode(int ordinal, float[] vector) {
+        System.arraycopy(Vectors.prefix(vector, prefixDimension), 0, prefixes, ordinal * prefixDimension,
+                prefixDimension);
+    }
+
+    @Override
+    protected void grow(int capacity) {
+        prefixes = Arrays.copyOf(prefixes, capacity * prefixDimension);
+    }
+
+    @Override
+    protected CoarseScorer scorer(float[] unitQuery) {
+        float[] prefixQuery = Vectors.prefix(unitQuery, prefixDimension);
+        return ordinal -> Vectors.dot(prefixQuery, prefixes, ordinal * prefixDimension);
+    }
+
+    @Override
+    protected long codeBytes() {
+        return (long) prefixDimension * Float.BYTES;
+    }
+}
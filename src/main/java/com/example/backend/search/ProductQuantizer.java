@@ -0,0 +1,118 @@
+package com.example.backend.search;
+
+import java.util.Random;
+
+/**
+ * Product quantisation: a vector is split into {@code subspaces} equal sub-vectors and each is replaced by the
+ * index of its nearest codeword in a per-subspace codebook of {@value #CODEWORDS} entries, so a vector encodes
+ * to {@code subspaces} bytes. Inner products with a query are approximated by summing a per-query lookup table
+ * of query-sub-vector x codeword dot products.
+ */
+public final class ProductQuantizer {
+
+    public static final int CODEWORDS = 256;
+
+    private final int dimension;
+    private final int subspaces;
+    private final int subDimension;
+    // [subspace][codeword * subDimension + i]
+    private final float[][] codebooks;
+
+    public ProductQuantizer(int dimension, int subspaces, float[][] codebooks) {
+        if (subspaces < 1 || dimension % subspaces != 0) {
+            throw new IllegalArgumentException(
+                    "subspaces must divide the dimension " + dimension + " but was " + subspaces);
+        }
+        this.dimension = dimension;
+        this.subspaces = subspaces;
+        this.subDimension = dimension / subspaces;
+        this.codebooks = codebooks;
+        for (float[] codebook : codebooks) {
+            if (codebook.length != CODEWORDS * subDimension) {
+                throw new IllegalArgumentException("Codebook must hold " + CODEWORDS + " codewords of "
+                        + subDimension + " components");
+            }
+        }
+    }
+
+    /**
+     * Trains one k-means codebook per subspace. With fewer than {@value #CODEWORDS} training vectors the
+     * unused codewords repeat the trained ones.
+     */
+    public static ProductQuantizer train(float[][] vectors, int subspaces, int iterations, Random random) {
+        int dimension = vectors[0].length;
+        if (subspaces < 1 || dimension % subspaces != 0) {
+            throw new IllegalArgumentException(
+                    "subspaces must divide the dimension " + dimension + " but was " + subspaces);
+        }
+        int subDimension = dimension / subspaces;
+        float[][] codebooks = new float[subspaces][CODEWORDS * subDimension];
+        for (int s = 0; s < subspaces; s++) {
+            float[][] centroids = KMeans.train(vectors, s * subDimension, subDimension, CODEWORDS, iterations,
+                    false, random);
+            for (int c = 0; c < CODEWORDS; c++) {
+                System.arraycopy(centroids[c % centroids.length], 0, codebooks[s], c * subDimension, subDimension);
+            }
+        }
+        return new ProductQuantizer(dimension, subspaces, codebooks);
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int subspaces() {
+        return subspaces;
+    }
+
+    public float[][] codebooks() {
+        return codebooks;
+    }
+
+    public void encode(float[] vector, byte[] target, int offset) {
+        for (int s = 0; s < subspaces; s++) {
+            float[] codebook = codebooks[s];
+            int best = 0;
+            float bestDistance = Float.POSITIVE_INFINITY;
+            for (int c = 0; c < CODEWORDS; c++) {
+                float distance = 0;
+                for (int i = 0; i < subDimension; i++) {
+                    float d = vector[s * subDimension + i] - codebook[c * subDimension + i];
+                    distance += d * d;
+                }
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = c;
+                }
+            }
+            target[offset + s] = (byte) best;
+        }
+    }
+
+    /**
+     * Dot products of each query sub-vector with every codeword of its subspace, laid out
+     * {@code [subspace * CODEWORDS + codeword]}.
+     */
+    public float[] lookupTable(float[] query) {
+        float[] table = new float[subspaces * CODEWORDS];
+        float[] subQuery = new float[subDimension];
+        for (int s = 0; s < subspaces; s++) {
+            System.arraycopy(query, s * subDimension, subQuery, 0, subDimension);
+            for (int c = 0; c < CODEWORDS; c++) {
+                table[s * CODEWORDS + c] = Vectors.dot(subQuery, codebooks[s], c * subDimension);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Approximate dot product of the query behind {@code table} with the vector encoded as {@code code}.
+     */
+    public static float score(float[] table, byte[] code) {
+        float sum = 0;
+        for (int s = 0; s < code.length; s++) {
+            sum += table[s * CODEWORDS + (code[s] & 0xFF)];
+        }
+        return sum;
+    }
+}
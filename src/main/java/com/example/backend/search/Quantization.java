@@ -0,0 +1,40 @@
+package com.example.backend.search;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Compressed representations of the embedding store used for the coarse pass of quantised search.
+ */
+public enum Quantization {
+
+    /** No quantised copy is kept. */
+    NONE,
+
+    /** One byte per component, scaled to the per-dimension min/max of the stored vectors. */
+    INT8,
+
+    /** One sign bit per component, pre-scored by Hamming distance. */
+    BINARY;
+
+    /**
+     * Parses {@code app.search.quantization.mode}; blank means {@link #NONE}.
+     */
+    public static Quantization from(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        try {
+            return Quantization.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown app.search.quantization.mode '" + value
+                    + "'; expected one of " + Arrays.stream(values()).map(Quantization::label)
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+
+    // The spelling accepted in configuration, e.g. int8
+    public String label() {
+        return name().toLowerCase();
+    }
+}
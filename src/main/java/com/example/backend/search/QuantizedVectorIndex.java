@@ -0,0 +1,100 @@
+package com.example.backend.search;
+
+import java.util.Arrays;
+
+/**
+ * Quantised copy of the embedding store for a coarse first pass, re-ranked exactly on the full vectors.
+ * {@link Quantization#INT8} keeps one byte per component (a quarter of float32), {@link Quantization#BINARY}
+ * one bit (a thirty-second), scored as {@code 1 - 2 * hamming / dimension} with XOR and popcount.
+ */
+public class QuantizedVectorIndex extends RerankingVectorIndex {
+
+    private final Quantization quantization;
+    private final int dimension;
+    private final int words;
+    private final ScalarQuantizer quantizer;
+
+    private byte[] int8Codes = new byte[0];
+    private long[] signBits = new long[0];
+
+    private QuantizedVectorIndex(Quantization quantization, int dimension, ScalarQuantizer quantizer) {
+        this.quantization = quantization;
+        this.dimension = dimension;
+        this.words = (dimension + Long.SIZE - 1) / Long.SIZE;
+        this.quantizer = quantizer;
+    }
+
+    public static QuantizedVectorIndex int8(ScalarQuantizer quantizer) {
+        return new QuantizedVectorIndex(Quantization.INT8, quantizer.dimension(), quantizer);
+    }
+
+    public static QuantizedVectorIndex binary(int dimension) {
+        if (dimension < 1) {
+            throw new IllegalArgumentException("dimension must be at least 1");
+        }
+        return new QuantizedVectorIndex(Quantization.BINARY, dimension, null);
+    }
+
+    @Override
+    public void put(long id, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(
+                    "Expected vector of " + dimension + " components but got " + vector.length);
+        }
+        super.put(id, vector);
+    }
+
+    public Quantization quantization() {
+        return quantization;
+    }
+
+    @Override
+    protected void encode(int ordinal, float[] vector) {
+        if (quantization == Quantization.INT8) {
+            quantizer.encode(vector, int8Codes, ordinal * dimension);
+        } else {
+            signBits(vector, signBits, ordinal * words);
+        }
+    }
+
+    @Override
+    protected void grow(int capacity) {
+        if (quantization == Quantization.INT8) {
+            int8Codes = Arrays.copyOf(int8Codes, capacity * dimension);
+        } else {
+            signBits = Arrays.copyOf(signBits, capacity * words);
+        }
+    }
+
+    @Override
+    protected CoarseScorer scorer(float[] unitQuery) {
+        if (quantization == Quantization.INT8) {
+            ScalarQuantizer.Query query = quantizer.query(unitQuery);
+            return ordinal -> query.score(int8Codes, ordinal * dimension);
+        }
+        long[] queryBits = new long[words];
+        signBits(unitQuery, queryBits, 0);
+        return ordinal -> {
+            int offset = ordinal * words;
+            int hamming = 0;
+            for (int w = 0; w < words; w++) {
+                hamming += Long.bitCount(queryBits[w] ^ signBits[offset + w]);
+            }
+            return 1f - 2f * hamming / dimension;
+        };
+    }
+
+    @Override
+    protected long codeBytes() {
+        return quantization == Quantization.INT8 ? dimension : (long) words * Long.BYTES;
+    }
+
+    private void signBits(float[] vector, long[] target, int offset) {
+        Arrays.fill(target, offset, offset + words, 0L);
+        for (int i = 0; i < dimension; i++) {
+            if (vector[i] > 0) {
+                target[offset + i / Long.SIZE] |= 1L << (i % Long.SIZE);
+            }
+        }
+    }
+}
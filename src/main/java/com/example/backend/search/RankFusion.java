@@ -0,0 +1,33 @@
+package com.example.backend.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reciprocal rank fusion (Cormack et al.): each ranking contributes {@code 1 / (rankConstant + rank)} per
+ * document, with ranks starting at 1. Only positions matter, so BM25 scores and cosine similarities can be
+ * combined without calibrating one against the other.
+ */
+public final class RankFusion {
+
+    public static final int DEFAULT_RANK_CONSTANT = 60;
+
+    private RankFusion() {
+    }
+
+    public static List<SearchHit> reciprocalRank(List<List<SearchHit>> rankings, int k, int rankConstant) {
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        for (List<SearchHit> ranking : rankings) {
+            for (int i = 0; i < ranking.size(); i++) {
+                scores.merge(ranking.get(i).id(), 1.0 / (rankConstant + i + 1), Double::sum);
+            }
+        }
+        List<SearchHit> fused = new ArrayList<>(scores.size());
+        scores.forEach((id, score) -> fused.add(new SearchHit(id, score)));
+        // Stable sort: ties keep the order of the first ranking they appeared in
+        fused.sort((a, b) -> Double.compare(b.score(), a.score()));
+        return fused.size() > k ? new ArrayList<>(fused.subList(0, k)) : fused;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.backend.search;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Base for indexes that keep a compact copy of every embedding on the heap, scan all of it to pick candidates,
+ * and re-score the best {@code rerankDepth} candidates against the full vectors in a {@link MappedVectorStore}.
+ * Subclasses own the packed code arrays, addressed by a dense ordinal per product; freed ordinals are reused.
+ * <p>
+ * Searches share a read lock, writes take the write lock.
+ */
+public abstract class RerankingVectorIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinalById = new HashMap<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private long[] idByOrdinal = new long[0];
+    private int nextOrdinal;
+
+    /**
+     * Coarse score of the vector stored at an ordinal; higher is more similar.
+     */
+    @FunctionalInterface
+    protected interface CoarseScorer {
+        float score(int ordinal);
+    }
+
+    /**
+     * Stores the codes of {@code vector}, replacing any previous ones for {@code id}.
+     */
+    public void put(long id, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.get(id);
+            if (ordinal == null) {
+                ordinal = freeOrdinals.isEmpty() ? nextOrdinal++ : freeOrdinals.pop();
+                ensureCapacity(ordinal);
+                ordinalById.put(id, ordinal);
+                idByOrdinal[ordinal] = id;
+            }
+            encode(ordinal, vector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.remove(id);
+            if (ordinal == null) {
+                return false;
+            }
+            idByOrdinal[ordinal] = MappedVectorStore.FREE_SLOT;
+            freeOrdinals.push(ordinal);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param unitQuery   full-length, unit-normalised query
+     * @param rerankDepth coarse candidates re-scored on the full vectors; at least {@code k}
+     * @param filter      ids allowed in the results, or {@code null} for all
+     */
+    public List<SearchHit> search(MappedVectorStore store, float[] unitQuery, int k, int rerankDepth,
+                                  double minScore, LongPredicate filter) {
+        TopK candidates = new TopK(Math.max(k, rerankDepth));
+        CoarseScorer scorer = scorer(unitQuery);
+        lock.readLock().lock();
+        try {
+            for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+                long id = idByOrdinal[ordinal];
+                if (id == MappedVectorStore.FREE_SLOT || filter != null && !filter.test(id)) {
+                    continue;
+                }
+                float score = scorer.score(ordinal);
+                if (score > candidates.threshold()) {
+                    candidates.offer(id, score);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        TopK top = new TopK(k);
+        float[] vector = new float[store.dimension()];
+        for (SearchHit candidate : candidates.toHits()) {
+            if (store.get(candidate.id(), vector)) {
+                float score = Vectors.dot(unitQuery, vector);
+                if (score >= minScore && score > top.threshold()) {
+                    top.offer(candidate.id(), score);
+                }
+            }
+        }
+        return top.toHits();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Heap bytes of the codes and id of one product.
+     */
+    public long bytesPerVector() {
+        return codeBytes() + Long.BYTES;
+    }
+
+    /**
+     * Heap bytes of the codes and ids of the products held, not counting spare capacity of the arrays.
+     */
+    public long bytes() {
+        lock.readLock().lock();
+        try {
+            return (long) ordinalById.size() * bytesPerVector();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the codes of {@code vector} for {@code ordinal}. Called under the write lock.
+     */
+    protected abstract void encode(int ordinal, float[] vector);
+
+    /**
+     * Grows the code arrays to hold {@code capacity} ordinals. Called under the write lock.
+     */
+    protected abstract void grow(int capacity);
+
+    /**
+     * Prepares the query once per search; the scorer is then called under the read lock.
+     */
+    protected abstract CoarseScorer scorer(float[] unitQuery);
+
+    protected abstract long codeBytes();
+
+    private void ensureCapacity(int ordinal) {
+        if (ordinal >= idByOrdinal.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, idByOrdinal.length * 2);
+            idByOrdinal = Arrays.copyOf(idByOrdinal, capacity);
+            grow(capacity);
+        }
+    }
+}
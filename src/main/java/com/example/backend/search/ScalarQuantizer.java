@@ -0,0 +1,100 @@
+package com.example.backend.search;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Int8 scalar quantisation with a per-dimension range: component {@code i} maps {@code [min[i], max[i]]} onto
+ * the 256 byte values, so dimensions with a narrow spread keep as much resolution as wide ones.
+ * <p>
+ * Scoring is asymmetric. The float query is folded into per-dimension weights, which are themselves
+ * quantised to int8 so the coarse pass runs on the integer {@link SimilarityKernel} dot product.
+ */
+public final class ScalarQuantizer {
+
+    private static final SimilarityKernel KERNEL = SimilarityKernels.get();
+    private static final int LEVELS = 255;
+
+    private final float[] min;
+    private final float[] step;
+
+    public ScalarQuantizer(float[] min, float[] max) {
+        if (min.length != max.length) {
+            throw new IllegalArgumentException("min and max must have the same dimension");
+        }
+        this.min = min.clone();
+        this.step = new float[min.length];
+        for (int i = 0; i < min.length; i++) {
+            float range = max[i] - min[i];
+            step[i] = range > 0 ? range / LEVELS : 1f / LEVELS;
+        }
+    }
+
+    /**
+     * Fits the per-dimension ranges to every vector {@code vectors} feeds to its consumer. Falls back to
+     * {@code [-1, 1]}, the range of any unit vector, when there is nothing to fit.
+     */
+    public static ScalarQuantizer fit(int dimension, Consumer<Consumer<float[]>> vectors) {
+        float[] min = new float[dimension];
+        float[] max = new float[dimension];
+        Arrays.fill(min, Float.POSITIVE_INFINITY);
+        Arrays.fill(max, Float.NEGATIVE_INFINITY);
+        vectors.accept(vector -> {
+            for (int i = 0; i < dimension; i++) {
+                min[i] = Math.min(min[i], vector[i]);
+                max[i] = Math.max(max[i], vector[i]);
+            }
+        });
+        if (min[0] > max[0]) {
+            Arrays.fill(min, -1f);
+            Arrays.fill(max, 1f);
+        }
+        return new ScalarQuantizer(min, max);
+    }
+
+    public int dimension() {
+        return min.length;
+    }
+
+    /**
+     * Writes the codes of {@code vector} to {@code target[offset, offset + dimension)}. Components outside the
+     * fitted range are clamped.
+     */
+    public void encode(float[] vector, byte[] target, int offset) {
+        for (int i = 0; i < min.length; i++) {
+            int level = Math.round((vector[i] - min[i]) / step[i]);
+            target[offset + i] = (byte) (Math.max(0, Math.min(LEVELS, level)) - 128);
+        }
+    }
+
+    /**
+     * Component {@code i} decodes to {@code min[i] + (code + 128) * step[i]}, so a dot product with the query
+     * splits into a constant plus {@code sum(query[i] * step[i] * code)}.
+     */
+    public Query query(float[] unitQuery) {
+        float[] weights = new float[min.length];
+        double base = 0;
+        float largest = 0;
+        for (int i = 0; i < min.length; i++) {
+            base += unitQuery[i] * (min[i] + 128 * step[i]);
+            weights[i] = unitQuery[i] * step[i];
+            largest = Math.max(largest, Math.abs(weights[i]));
+        }
+        float scale = largest > 0 ? largest / 127f : 1f;
+        byte[] codes = new byte[min.length];
+        for (int i = 0; i < min.length; i++) {
+            codes[i] = (byte) Math.round(weights[i] / scale);
+        }
+        return new Query(codes, scale, (float) base);
+    }
+
+    public record Query(byte[] weights, float scale, float base) {
+
+        /**
+         * Approximate dot product with the codes stored at {@code codes[offset, offset + dimension)}.
+         */
+        public float score(byte[] codes, int offset) {
+            return base + scale * KERNEL.dot(weights, codes, offset, weights.length);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.backend.search;
+
+/**
+ * A single nearest-neighbour result: the product id and its cosine similarity to the query.
+ */
+public record SearchHit(long id, double score) {
+}
@@ -0,0 +1,48 @@
+package com.example.backend.search;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Strategies available to {@code ProductService.semanticSearch}.
+ */
+public enum SearchMode {
+
+    /** Score every stored embedding against the query. Slow, but the recall baseline. */
+    EXACT,
+
+    /** Approximate search over the in-memory HNSW graph. */
+    HNSW,
+
+    /** Scan of truncated (Matryoshka) prefixes, then exact re-ranking of the best candidates. */
+    TWO_STAGE,
+
+    /** Scan of int8 or binary quantised codes, then exact re-ranking of the best candidates. */
+    QUANTIZED,
+
+    /** Probe of the closest inverted lists of the memory-mapped IVF-PQ index, then exact re-ranking. */
+    IVF_PQ,
+
+    /** Top-k scored by PostgreSQL over the stored embeddings; only ids and scores cross the network. */
+    DATABASE;
+
+    /**
+     * @throws IllegalArgumentException naming the valid modes if {@code value} is not one of them
+     */
+    public static SearchMode from(String value, SearchMode defaultMode) {
+        if (value == null || value.isBlank()) {
+            return defaultMode;
+        }
+        try {
+            return SearchMode.valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown search mode '" + value + "'; expected one of "
+                    + Arrays.stream(values()).map(SearchMode::label).collect(Collectors.joining(", ")));
+        }
+    }
+
+    // The spelling accepted in requests and configuration, e.g. two-stage
+    public String label() {
+        return name().toLowerCase().replace('_', '-');
+    }
+}
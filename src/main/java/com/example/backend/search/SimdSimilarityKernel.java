@@ -0,0 +1,74 @@
+package com.example.backend.search;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementation using the widest species the CPU supports (AVX2: 8 floats, AVX-512: 16).
+ * Only loaded when the {@code jdk.incubator.vector} module is present, see {@link SimilarityKernels}.
+ */
+final class SimdSimilarityKernel implements SimilarityKernel {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // Same lane count as INTS, so each byte load widens to exactly one int vector
+    private static final VectorSpecies<Byte> BYTES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(INTS.length() * Byte.SIZE));
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        return dot(a, b, 0, a.length);
+    }
+
+    @Override
+    public float dot(float[] a, float[] b, int bOffset, int length) {
+        FloatVector acc0 = FloatVector.zero(FLOATS);
+        FloatVector acc1 = FloatVector.zero(FLOATS);
+        int step = FLOATS.length();
+        int i = 0;
+        for (int bound = length - 2 * step; i <= bound; i += 2 * step) {
+            acc0 = FloatVector.fromArray(FLOATS, a, i).fma(FloatVector.fromArray(FLOATS, b, bOffset + i), acc0);
+            acc1 = FloatVector.fromArray(FLOATS, a, i + step)
+                    .fma(FloatVector.fromArray(FLOATS, b, bOffset + i + step), acc1);
+        }
+        for (int bound = FLOATS.loopBound(length); i < bound; i += step) {
+            acc0 = FloatVector.fromArray(FLOATS, a, i).fma(FloatVector.fromArray(FLOATS, b, bOffset + i), acc0);
+        }
+        float sum = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int dot(byte[] a, byte[] b) {
+        return dot(a, b, 0, a.length);
+    }
+
+    @Override
+    public int dot(byte[] a, byte[] b, int bOffset, int length) {
+        IntVector acc = IntVector.zero(INTS);
+        int step = BYTES.length();
+        int i = 0;
+        for (int bound = BYTES.loopBound(length); i < bound; i += step) {
+            IntVector va = (IntVector) ByteVector.fromArray(BYTES, a, i).castShape(INTS, 0);
+            IntVector vb = (IntVector) ByteVector.fromArray(BYTES, b, bOffset + i).castShape(INTS, 0);
+            acc = va.mul(vb).add(acc);
+        }
+        int sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String name() {
+        return "simd-" + FLOATS.vectorBitSize();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.backend.search;
+
+/**
+ * Dot-product primitives behind every similarity computation in semantic search.
+ * Vectors are stored unit-normalised, so a dot product is the cosine similarity.
+ * Use {@link SimilarityKernels#get()} to obtain the fastest implementation for the running JVM.
+ */
+public interface SimilarityKernel {
+
+    float dot(float[] a, float[] b);
+
+    /**
+     * Dot product over the first {@code length} components, used by prefix (truncated) vectors.
+     */
+    default float dot(float[] a, float[] b, int length) {
+        return dot(a, b, 0, length);
+    }
+
+    /**
+     * Dot product of the first {@code length} components of {@code a} with {@code b[bOffset, bOffset + length)},
+     * for vectors packed back to back in one array.
+     */
+    float dot(float[] a, float[] b, int bOffset, int length);
+
+    /**
+     * Dot product of two int8-quantised vectors. Callers rescale the result by the quantisation scales.
+     */
+    int dot(byte[] a, byte[] b);
+
+    /**
+     * Int8 dot product of {@code a} with {@code b[bOffset, bOffset + length)}, for codes packed back to back.
+     */
+    int dot(byte[] a, byte[] b, int bOffset, int length);
+
+    String name();
+}
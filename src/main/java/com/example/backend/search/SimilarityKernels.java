@@ -0,0 +1,41 @@
+package com.example.backend.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Picks the similarity kernel once per JVM: the Vector API one when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, otherwise the scalar one. Setting the system property
+ * {@code search.kernel=scalar} forces the fallback.
+ */
+public final class SimilarityKernels {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimilarityKernels.class);
+    private static final SimilarityKernel KERNEL = select();
+
+    private SimilarityKernels() {
+    }
+
+    public static SimilarityKernel get() {
+        return KERNEL;
+    }
+
+    public static SimilarityKernel scalar() {
+        return new ScalarSimilarityKernel();
+    }
+
+    private static SimilarityKernel select() {
+        boolean forceScalar = "scalar".equalsIgnoreCase(System.getProperty("search.kernel"));
+        boolean vectorModule = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        if (!forceScalar && vectorModule) {
+            try {
+                SimilarityKernel kernel = new SimdSimilarityKernel();
+                logger.info("Using {} similarity kernel", kernel.name());
+                return kernel;
+            } catch (LinkageError e) {
+                logger.warn("Vector API unavailable, using scalar similarity kernel: {}", e.getMessage());
+            }
+        }
+        return new ScalarSimilarityKernel();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.backend.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads a file written by {@link SnapshotWriter} through a sliding memory-mapped window, so snapshots larger
+ * than 2 GB are read without copying them through a heap buffer.
+ */
+final class SnapshotReader implements Closeable {
+
+    private static final long WINDOW_BYTES = 256L << 20;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    SnapshotReader(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * CRC32C of {@code [from, size())}.
+     */
+    long checksum(long from) throws IOException {
+        CRC32C checksum = new CRC32C();
+        for (long position = from; position < size; position += WINDOW_BYTES) {
+            long length = Math.min(WINDOW_BYTES, size - position);
+            checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+        }
+        return checksum.getValue();
+    }
+
+    void seek(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, size - position));
+        window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    byte get() throws IOException {
+        ensure(Byte.BYTES);
+        return window.get();
+    }
+
+    int getInt() throws IOException {
+        ensure(Integer.BYTES);
+        return window.getInt();
+    }
+
+    long getLong() throws IOException {
+        ensure(Long.BYTES);
+        return window.getLong();
+    }
+
+    void getFloats(float[] target) throws IOException {
+        for (int offset = 0; offset < target.length; ) {
+            ensure(Float.BYTES);
+            int count = Math.min(window.remaining() / Float.BYTES, target.length - offset);
+            window.asFloatBuffer().get(target, offset, count);
+            window.position(window.position() + count * Float.BYTES);
+            offset += count;
+        }
+    }
+
+    void getInts(int[] target, int length) throws IOException {
+        for (int offset = 0; offset < length; ) {
+            ensure(Integer.BYTES);
+            int count = Math.min(window.remaining() / Integer.BYTES, length - offset);
+            window.asIntBuffer().get(target, offset, count);
+            window.position(window.position() + count * Integer.BYTES);
+            offset += count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (window.remaining() >= bytes) {
+            return;
+        }
+        long position = windowStart + window.position();
+        if (position + bytes > size) {
+            throw new IOException("Snapshot " + path + " is truncated");
+        }
+        seek(position);
+    }
+}
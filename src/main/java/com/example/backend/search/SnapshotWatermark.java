@@ -0,0 +1,13 @@
+package com.example.backend.search;
+
+import java.time.LocalDateTime;
+
+/**
+ * Position in {@code product_embeddings}, ordered by {@code (updated_at, product_id)}, up to which a snapshot
+ * had applied every embedding. Rows after it are replayed when the snapshot is loaded.
+ */
+public record SnapshotWatermark(LocalDateTime updatedAt, long productId) {
+
+    /** Watermark of an empty table: everything comes after it. */
+    public static final SnapshotWatermark NONE = new SnapshotWatermark(LocalDateTime.of(1970, 1, 1, 0, 0), 0);
+}
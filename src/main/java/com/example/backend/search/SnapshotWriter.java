@@ -0,0 +1,109 @@
+package com.example.backend.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Buffered little-endian writer for snapshot files: a fixed-size header, written last, followed by a payload
+ * whose CRC32C is computed as it is written.
+ */
+final class SnapshotWriter implements Closeable {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C checksum = new CRC32C();
+    private long payloadBytes;
+
+    SnapshotWriter(Path path, int headerBytes) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.channel.position(headerBytes);
+    }
+
+    void putByte(byte value) throws IOException {
+        ensure(Byte.BYTES);
+        buffer.put(value);
+    }
+
+    void putInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    void putLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    void putFloats(float[] values) throws IOException {
+        for (int offset = 0; offset < values.length; ) {
+            ensure(Float.BYTES);
+            int count = Math.min(buffer.remaining() / Float.BYTES, values.length - offset);
+            buffer.asFloatBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + count * Float.BYTES);
+            offset += count;
+        }
+    }
+
+    void putInts(int[] values, int length) throws IOException {
+        for (int offset = 0; offset < length; ) {
+            ensure(Integer.BYTES);
+            int count = Math.min(buffer.remaining() / Integer.BYTES, length - offset);
+            buffer.asIntBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            offset += count;
+        }
+    }
+
+    /**
+     * Writes out the buffered payload, after which {@link #checksum()} and {@link #payloadBytes()} cover all of it.
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        checksum.update(buffer.duplicate());
+        payloadBytes += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes {@code header} at the start of the file and forces everything to disk.
+     */
+    void finish(ByteBuffer header) throws IOException {
+        flush();
+        header.clear();
+        for (long position = 0; header.hasRemaining(); ) {
+            position += channel.write(header, position);
+        }
+        channel.force(true);
+    }
+
+    long checksum() {
+        return checksum.getValue();
+    }
+
+    long payloadBytes() {
+        return payloadBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.backend.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded min-heap of primitive (id, score) pairs keeping the {@code k} best scores seen.
+ * The weakest kept score sits at the root, so a candidate that cannot make the cut is
+ * rejected with one comparison and no allocation. Not thread-safe: each scan chunk owns one.
+ */
+public final class TopK {
+
+    private final int k;
+    private final long[] ids;
+    private final float[] scores;
+    private int size;
+
+    public TopK(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        this.k = k;
+        this.ids = new long[k];
+        this.scores = new float[k];
+    }
+
+    /**
+     * Score a candidate must beat to be kept, or negative infinity while the heap is not full.
+     */
+    public float threshold() {
+        return size < k ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public void offer(long id, float score) {
+        if (size < k) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    public void merge(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.scores[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the kept pairs, best first.
+     */
+    public List<SearchHit> toHits() {
+        long[] sortedIds = ids.clone();
+        float[] sortedScores = scores.clone();
+        int n = size;
+        // Heap sort in place: repeatedly move the minimum to the end, leaving the arrays descending
+        for (int end = n - 1; end > 0; end--) {
+            swap(sortedIds, sortedScores, 0, end);
+            siftDown(sortedIds, sortedScores, 0, end);
+        }
+        List<SearchHit> hits = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            hits.add(new SearchHit(sortedIds[i], sortedScores[i]));
+        }
+        return hits;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= scores[index]) {
+                return;
+            }
+            swap(ids, scores, parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        siftDown(ids, scores, index, size);
+    }
+
+    private static void siftDown(long[] ids, float[] scores, int index, int size) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && scores[left] < scores[smallest]) {
+                smallest = left;
+            }
+            if (right < size && scores[right] < scores[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(ids, scores, smallest, index);
+            index = smallest;
+        }
+    }
+
+    private static void swap(long[] ids, float[] scores, int i, int j) {
+        long id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        float score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.backend.search;
+
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * An in-memory nearest-neighbour index over product embeddings, keyed by product id.
+ * Similarity is cosine; implementations are expected to normalise vectors on insert.
+ */
+public interface VectorIndex {
+
+    /**
+     * Inserts the vector for {@code id}, replacing any vector previously stored for it.
+     */
+    void add(long id, float[] vector);
+
+    /**
+     * Removes {@code id} from the index.
+     *
+     * @return {@code true} if the id was present
+     */
+    boolean remove(long id);
+
+    /**
+     * Returns up to {@code k} ids ordered by descending similarity, skipping anything below {@code minScore}.
+     */
+    default List<SearchHit> search(float[] query, int k, double minScore) {
+        return search(query, k, minScore, null);
+    }
+
+    /**
+     * As {@link #search(float[], int, double)}, returning only ids accepted by {@code filter} ({@code null}
+     * accepts all).
+     */
+    List<SearchHit> search(float[] query, int k, double minScore, LongPredicate filter);
+
+    int size();
+
+    int dimension();
+}
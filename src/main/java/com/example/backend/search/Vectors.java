@@ -0,0 +1,75 @@
+package com.example.backend.search;
+
+import java.util.Arrays;
+
+/**
+ * Small helpers for normalising and comparing embedding vectors.
+ */
+public final class Vectors {
+
+    private static final SimilarityKernel KERNEL = SimilarityKernels.get();
+
+    /** Scale used by {@link #quantizeInt8(float[])}: unit-vector components in [-1, 1] map to [-127, 127]. */
+    public static final float INT8_SCALE = 127f;
+
+    private Vectors() {
+    }
+
+    /**
+     * Returns a unit-length copy of {@code vector}, so cosine similarity reduces to a dot product.
+     */
+    public static float[] normalize(float[] vector) {
+        float[] normalized = new float[vector.length];
+        double norm = KERNEL.dot(vector, vector);
+        if (norm == 0) {
+            return normalized;
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * inv;
+        }
+        return normalized;
+    }
+
+    public static boolean isNormalized(float[] vector) {
+        return Math.abs(KERNEL.dot(vector, vector) - 1f) < 1e-3f;
+    }
+
+    public static float dot(float[] a, float[] b) {
+        return KERNEL.dot(a, b);
+    }
+
+    /**
+     * Dot product of {@code a} with the {@code a.length} components of {@code packed} starting at {@code offset}.
+     */
+    public static float dot(float[] a, float[] packed, int offset) {
+        return KERNEL.dot(a, packed, offset, a.length);
+    }
+
+    /**
+     * Unit-length copy of the first {@code dimension} components: the truncated embedding a Matryoshka
+     * model such as text-embedding-3-large is trained to keep meaningful.
+     */
+    public static float[] prefix(float[] vector, int dimension) {
+        return normalize(Arrays.copyOf(vector, Math.min(dimension, vector.length)));
+    }
+
+    /**
+     * Quantises a unit-normalised vector to int8 with a fixed scale of {@value #INT8_SCALE}.
+     */
+    public static byte[] quantizeInt8(float[] unitVector) {
+        byte[] quantized = new byte[unitVector.length];
+        for (int i = 0; i < unitVector.length; i++) {
+            float clamped = Math.max(-1f, Math.min(1f, unitVector[i]));
+            quantized[i] = (byte) Math.round(clamped * INT8_SCALE);
+        }
+        return quantized;
+    }
+
+    /**
+     * Approximate cosine similarity of two vectors produced by {@link #quantizeInt8(float[])}.
+     */
+    public static float dotInt8(byte[] a, byte[] b) {
+        return KERNEL.dot(a, b) / (INT8_SCALE * INT8_SCALE);
+    }
+}
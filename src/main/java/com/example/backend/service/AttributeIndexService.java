@@ -0,0 +1,105 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Product;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.search.AttributeIndex;
+import com.example.backend.search.FilterBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+
+/**
+ * Holds the category, price, stock and active bitmaps used to pre-filter semantic, lexical and hybrid
+ * search. Built from the products table once the application is ready and kept up to date by
+ * {@link SearchIndexUpdater} as product writes commit.
+ */
+@Service
+public class AttributeIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttributeIndexService.class);
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    private final ProductRepository productRepository;
+
+    private volatile AttributeIndex index = new AttributeIndex();
+    private volatile boolean ready;
+
+    public AttributeIndexService(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2)
+    public void buildOnStartup() {
+        try {
+            rebuild();
+        } catch (DataAccessException e) {
+            logger.error("Could not build attribute index on startup: {}", e.getMessage());
+        }
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        AttributeIndex newIndex = new AttributeIndex();
+
+        PageRequest pageRequest = PageRequest.of(0, REBUILD_PAGE_SIZE, Sort.by("id"));
+        Page<Product> page;
+        do {
+            page = productRepository.findAll(pageRequest);
+            for (Product product : page) {
+                put(newIndex, product);
+            }
+            pageRequest = pageRequest.next();
+        } while (page.hasNext());
+
+        index = newIndex;
+        ready = true;
+        logger.info("Attribute index built with {} products in {} ms",
+                newIndex.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Active products matching the given criteria, or {@code null} while the index is still being built.
+     */
+    public FilterBitmap filter(String category, BigDecimal minPrice, BigDecimal maxPrice, Boolean inStock) {
+        return ready ? index.filter(category, minPrice, maxPrice, inStock) : null;
+    }
+
+    public void index(Product product) {
+        if (product != null && product.getId() != null) {
+            put(index, product);
+        }
+    }
+
+    public void remove(Long productId) {
+        if (productId != null) {
+            index.remove(productId);
+        }
+    }
+
+    public long[] ids() {
+        return index.ids();
+    }
+
+    public long[] activeIds() {
+        return index.activeIds();
+    }
+
+    private static void put(AttributeIndex target, Product product) {
+        target.put(product.getId(), product.getCategory(), product.getPrice(), product.getStockQuantity(),
+                product.getIsActive());
+    }
+}
@@ -4,28 +4,37 @@ import com.example.backend.dto.LoginRequest;
 import com.example.backend.dto.LoginResponse;
 import com.example.backend.dto.RegisterRequest;
 import com.example.backend.dto.UserDto;
+import com.example.backend.entity.RevokedToken;
 import com.example.backend.entity.Role;
 import com.example.backend.entity.User;
 import com.example.backend.exception.BadRequestException;
 import com.example.backend.repository.RoleRepository;
 import com.example.backend.repository.UserRepository;
+import io.jsonwebtoken.JwtException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Registration, login and refresh-token rotation. Password hashing and checking wait for and run on the
+ * bounded BCrypt pool, so they happen outside any transaction and hold no database connection; the reads
+ * and writes around them each take their own short transaction.
+ */
 @Service
-@Transactional
 public class AuthService {
 
     private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
@@ -35,17 +44,22 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+    private final RevokedTokenService revokedTokenService;
+    private final TransactionTemplate transactionTemplate;
 
     public AuthService(UserRepository userRepository, RoleRepository roleRepository,
                       PasswordEncoder passwordEncoder, AuthenticationManager authenticationManager,
-                      JwtService jwtService, UserDetailsService userDetailsService) {
+                      JwtService jwtService, TokenRevocationService tokenRevocationService,
+                      RevokedTokenService revokedTokenService, PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.revokedTokenService = revokedTokenService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     public UserDto register(RegisterRequest request) {
@@ -69,18 +83,20 @@ public class AuthService {
         user.setLastName(request.getLastName());
         user.setIsActive(true);
 
-        // Assign default role
-        Role userRole = roleRepository.findByName("USER")
-                .orElseGet(() -> {
-                    Role newRole = new Role("USER", "Default user role");
-                    return roleRepository.save(newRole);
-                });
+        User savedUser = transactionTemplate.execute(status -> {
+            // Assign default role
+            Role userRole = roleRepository.findByName("USER")
+                    .orElseGet(() -> {
+                        Role newRole = new Role("USER", "Default user role");
+                        return roleRepository.save(newRole);
+                    });
 
-        Set<Role> roles = new HashSet<>();
-        roles.add(userRole);
-        user.setRoles(roles);
+            Set<Role> roles = new HashSet<>();
+            roles.add(userRole);
+            user.setRoles(roles);
 
-        User savedUser = userRepository.save(user);
+            return userRepository.save(user);
+        });
         logger.info("User registered successfully: {}", savedUser.getUsername());
 
         return convertToUserDto(savedUser);
@@ -89,69 +105,101 @@ public class AuthService {
     public LoginResponse login(LoginRequest request) {
         logger.info("Attempting to authenticate user: {}", request.getUsername());
 
-        // Authenticate user
+        // Authenticate user; the principal is the User loaded with its roles, so nothing is loaded again
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         request.getUsername(),
                         request.getPassword()
                 )
         );
-
-        // Generate tokens
-        UserDetails userDetails = userDetailsService.loadUserByUsername(request.getUsername());
-        String accessToken = jwtService.generateToken(userDetails);
-        String refreshToken = jwtService.generateRefreshToken(userDetails);
-
-        // Get user details
-        User user = userRepository.findByUsername(request.getUsername())
-                .orElseThrow(() -> new BadRequestException("User not found"));
-
-        Set<String> roles = user.getRoles().stream()
-                .map(Role::getName)
-                .collect(Collectors.toSet());
+        User user = (User) authentication.getPrincipal();
 
         logger.info("User authenticated successfully: {}", user.getUsername());
 
-        return new LoginResponse(
-                accessToken,
-                refreshToken,
-                user.getId(),
-                user.getUsername(),
-                user.getEmail(),
-                roles
-        );
+        return toLoginResponse(user, issueTokens(user));
     }
 
+    /**
+     * Rotates a refresh token: the presented one is revoked and a new pair issued. A refresh token presented
+     * again after it was revoked has been copied, so every token of its user is cut off.
+     */
+    @Transactional(noRollbackFor = BadRequestException.class)
     public LoginResponse refreshToken(String refreshToken) {
         logger.info("Attempting to refresh token");
 
-        String username = jwtService.extractUsername(refreshToken);
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-        if (jwtService.isTokenValid(refreshToken, userDetails)) {
-            String newAccessToken = jwtService.generateToken(userDetails);
-            String newRefreshToken = jwtService.generateRefreshToken(userDetails);
+        JwtService.VerifiedToken token = verifyRefreshToken(refreshToken);
+
+        User user = userRepository.findWithRolesByUsername(token.subject())
+                .filter(User::isEnabled)
+                .filter(found -> !tokenRevocationService.isRevoked(found.getUsername(), token.issuedAt()))
+                .orElseThrow(() -> new BadRequestException("Invalid refresh token"));
+
+        if (revokedTokenService.isRevoked(token.id())
+                || !revokedTokenService.revoke(token.id(), user.getUsername(), token.expiresAt(),
+                        RevokedToken.Reason.ROTATED)) {
+            logger.warn("Revoked refresh token reused for user: {}; revoking all of their tokens",
+                    user.getUsername());
+            Instant now = Instant.now();
+            user.setTokensValidAfter(LocalDateTime.ofInstant(now, ZoneId.systemDefault()));
+            tokenRevocationService.revokeIssuedBefore(user.getUsername(), now);
+            throw new BadRequestException("Invalid refresh token");
+        }
 
-            User user = userRepository.findByUsername(username)
-                    .orElseThrow(() -> new BadRequestException("User not found"));
+        logger.info("Token refreshed successfully for user: {}", user.getUsername());
 
-            Set<String> roles = user.getRoles().stream()
-                    .map(Role::getName)
-                    .collect(Collectors.toSet());
+        return toLoginResponse(user, issueTokens(user));
+    }
 
-            logger.info("Token refreshed successfully for user: {}", username);
+    /**
+     * Revokes the refresh token, if one is given and still valid; its access token runs out on its own.
+     */
+    @Transactional
+    public void logout(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return;
+        }
+        try {
+            JwtService.VerifiedToken token = verifyRefreshToken(refreshToken);
+            revokedTokenService.revoke(token.id(), token.subject(), token.expiresAt(), RevokedToken.Reason.LOGOUT);
+            logger.info("Refresh token revoked on logout for user: {}", token.subject());
+        } catch (BadRequestException e) {
+            logger.debug("Logout with an invalid refresh token");
+        }
+    }
 
-            return new LoginResponse(
-                    newAccessToken,
-                    newRefreshToken,
-                    user.getId(),
-                    user.getUsername(),
-                    user.getEmail(),
-                    roles
-            );
-        } else {
+    // Access tokens and refresh tokens issued before rotation have no jti and are refused
+    private JwtService.VerifiedToken verifyRefreshToken(String refreshToken) {
+        JwtService.VerifiedToken token;
+        try {
+            token = jwtService.verify(refreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new BadRequestException("Invalid refresh token");
+        }
+        if (token.id() == null) {
             throw new BadRequestException("Invalid refresh token");
         }
+        return token;
+    }
+
+    // Never inside the second of a cutoff, or the new tokens would be revoked with the old ones
+    private JwtService.TokenPair issueTokens(User user) {
+        tokenRevocationService.awaitIssuable(user.getUsername());
+        return jwtService.generateTokens(user);
+    }
+
+    private LoginResponse toLoginResponse(User user, JwtService.TokenPair tokens) {
+        Set<String> roles = user.getRoles().stream()
+                .map(Role::getName)
+                .collect(Collectors.toSet());
+
+        return new LoginResponse(
+                tokens.accessToken(),
+                tokens.refreshToken(),
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                roles
+        );
     }
 
     private UserDto convertToUserDto(User user) {
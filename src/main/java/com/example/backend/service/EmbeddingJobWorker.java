@@ -0,0 +1,332 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.EmbeddingJob;
+import com.example.backend.entity.EmbeddingStatus;
+import com.example.backend.entity.Product;
+import com.example.backend.entity.ProductEmbedding;
+import com.example.backend.event.EmbeddingsWrittenEvent;
+import com.example.backend.repository.EmbeddingJobRepository;
+import com.example.backend.repository.ProductEmbeddingRepository;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.search.Vectors;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the {@code embedding_jobs} queue. Every node runs {@code app.embedding.worker.threads} pollers;
+ * each claims a batch of due jobs with {@code FOR UPDATE SKIP LOCKED}, pushes their
+ * {@code next_attempt_at} forward by the lease and commits, so no transaction is held open while the
+ * embedding API is called. A node that dies mid-batch leaves its jobs to be picked up once the lease ends.
+ * Failed batches are retried with exponential backoff until {@code max-attempts}, then marked FAILED.
+ */
+@Service
+public class EmbeddingJobWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingJobWorker.class);
+
+    private final EmbeddingJobRepository embeddingJobRepository;
+    private final ProductRepository productRepository;
+    private final ProductEmbeddingRepository productEmbeddingRepository;
+    private final EmbeddingProvider embeddingProvider;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.embedding.worker.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.embedding.worker.threads:2}")
+    private int threads;
+
+    @Value("${app.embedding.worker.batch-size:32}")
+    private int batchSize;
+
+    @Value("${app.embedding.worker.poll-interval:1s}")
+    private Duration pollInterval;
+
+    @Value("${app.embedding.worker.lease:2m}")
+    private Duration lease;
+
+    @Value("${app.embedding.worker.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${app.embedding.worker.backoff:5s}")
+    private Duration initialBackoff;
+
+    @Value("${app.embedding.worker.max-backoff:10m}")
+    private Duration maxBackoff;
+
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final AtomicLong oldestJobAgeSeconds = new AtomicLong();
+    private final Counter completed;
+    private final Counter retried;
+    private final Counter failed;
+    private final Timer batchTimer;
+
+    private ScheduledExecutorService executor;
+
+    public EmbeddingJobWorker(EmbeddingJobRepository embeddingJobRepository, ProductRepository productRepository,
+                              ProductEmbeddingRepository productEmbeddingRepository,
+                              EmbeddingProvider embeddingProvider, ApplicationEventPublisher eventPublisher,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        this.embeddingJobRepository = embeddingJobRepository;
+        this.productRepository = productRepository;
+        this.productEmbeddingRepository = productEmbeddingRepository;
+        this.embeddingProvider = embeddingProvider;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Gauge.builder("embedding.jobs.queued", queueDepth, AtomicLong::get)
+                .description("Embedding jobs waiting in the queue, including ones being retried")
+                .register(meterRegistry);
+        Gauge.builder("embedding.jobs.oldest.age", oldestJobAgeSeconds, AtomicLong::get)
+                .description("Age of the oldest queued embedding job")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.completed = Counter.builder("embedding.jobs.completed")
+                .description("Embedding jobs written back successfully")
+                .register(meterRegistry);
+        this.retried = Counter.builder("embedding.jobs.retried")
+                .description("Embedding jobs rescheduled after a failed attempt")
+                .register(meterRegistry);
+        this.failed = Counter.builder("embedding.jobs.failed")
+                .description("Embedding jobs abandoned after the last attempt")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("embedding.jobs.batch")
+                .description("Time to embed and write back one batch of jobs")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            logger.info("Embedding job worker is disabled");
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(threads + 1, runnable -> {
+            Thread thread = new Thread(runnable, "embedding-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            executor.scheduleWithFixedDelay(this::drain, i * 100L, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        executor.scheduleWithFixedDelay(this::refreshQueueMetrics, 0, 15, TimeUnit.SECONDS);
+        logger.info("Embedding job worker started with {} threads, batch size {}", threads, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    // Keeps claiming while batches come back full, then waits for the next poll
+    private void drain() {
+        try {
+            while (!Thread.currentThread().isInterrupted() && processBatch() == batchSize) {
+                // keep going
+            }
+        } catch (RuntimeException e) {
+            logger.error("Embedding job poll failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Claims, embeds and writes back one batch of due jobs.
+     *
+     * @return the number of jobs claimed
+     */
+    public int processBatch() {
+        List<EmbeddingJob> jobs = claim();
+        if (jobs.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllById(jobs.stream().map(EmbeddingJob::getProductId).distinct().toList())
+                .forEach(product -> products.put(product.getId(), product));
+        Map<Long, String> storedFingerprints = new HashMap<>();
+        for (Object[] row : productEmbeddingRepository.findContentFingerprints(products.keySet())) {
+            storedFingerprints.put((Long) row[0], (String) row[1]);
+        }
+
+        // Duplicate jobs, or edits reverted before the job ran, need no API call
+        Map<Long, String> readFingerprints = new HashMap<>();
+        List<Long> productIds = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        for (Product product : products.values()) {
+            String text = EmbeddingTexts.textOf(product);
+            String fingerprint = EmbeddingTexts.fingerprint(text, embeddingProvider.modelId());
+            readFingerprints.put(product.getId(), fingerprint);
+            if (!fingerprint.equals(storedFingerprints.get(product.getId()))) {
+                productIds.add(product.getId());
+                texts.add(text);
+            }
+        }
+
+        Timer.Sample sample = Timer.start();
+        try {
+            List<float[]> embeddings = texts.isEmpty() ? List.of()
+                    : embeddingProvider.generateEmbeddings(texts).get(lease.toMillis(), TimeUnit.MILLISECONDS);
+            completed.increment(complete(jobs, readFingerprints, productIds, embeddings));
+        } catch (ExecutionException | TimeoutException e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            logger.warn("Embedding batch of {} jobs failed: {}", jobs.size(), cause.toString());
+            reschedule(jobs, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Leases expire and the jobs are claimed again
+        } finally {
+            sample.stop(batchTimer);
+        }
+        return jobs.size();
+    }
+
+    private List<EmbeddingJob> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<EmbeddingJob> jobs = embeddingJobRepository.lockDueJobs(now, batchSize);
+            for (EmbeddingJob job : jobs) {
+                job.setAttempts(job.getAttempts() + 1);
+                job.setNextAttemptAt(now.plus(lease));
+            }
+            return jobs;
+        });
+    }
+
+    /**
+     * Writes the batch back with the products locked. A product edited since its text was read keeps its jobs,
+     * handed back for the next poll, so an older embedding never overwrites a newer one; a product only becomes
+     * READY once no other job of its own is queued. The vector indexes pick the saved embeddings up once this
+     * commits.
+     *
+     * @return the number of jobs completed
+     */
+    private int complete(List<EmbeddingJob> jobs, Map<Long, String> readFingerprints, List<Long> productIds,
+                         List<float[]> embeddings) {
+        return transactionTemplate.execute(status -> {
+            Map<Long, Product> current = new HashMap<>();
+            Set<Long> changed = new HashSet<>();
+            for (Product product : productRepository.lockAllById(readFingerprints.keySet())) {
+                current.put(product.getId(), product);
+                String fingerprint = EmbeddingTexts.fingerprint(EmbeddingTexts.textOf(product), embeddingProvider.modelId());
+                if (!fingerprint.equals(readFingerprints.get(product.getId()))) {
+                    changed.add(product.getId());
+                }
+            }
+
+            List<ProductEmbedding> toSave = new ArrayList<>(productIds.size());
+            for (int i = 0; i < productIds.size(); i++) {
+                Long productId = productIds.get(i);
+                if (current.containsKey(productId) && !changed.contains(productId)) {
+                    toSave.add(new ProductEmbedding(productId, Vectors.normalize(embeddings.get(i)),
+                            readFingerprints.get(productId)));
+                }
+            }
+            List<ProductEmbedding> saved = productEmbeddingRepository.saveAll(toSave);
+
+            // Jobs whose product was deleted meanwhile are simply dropped
+            List<Long> done = new ArrayList<>();
+            List<Long> kept = new ArrayList<>();
+            for (EmbeddingJob job : jobs) {
+                if (changed.contains(job.getProductId())) {
+                    kept.add(job.getId());
+                } else {
+                    done.add(job.getId());
+                }
+            }
+            embeddingJobRepository.deleteAllByIdInBatch(done);
+            if (!kept.isEmpty()) {
+                embeddingJobRepository.release(kept, LocalDateTime.now());
+                logger.debug("Products {} changed while being embedded; their jobs run again", changed);
+            }
+
+            Set<Long> settled = new HashSet<>(current.keySet());
+            settled.removeAll(changed);
+            if (!settled.isEmpty()) {
+                settled.removeAll(embeddingJobRepository.findQueuedProductIds(settled));
+            }
+            for (Long productId : settled) {
+                current.get(productId).setEmbeddingStatus(EmbeddingStatus.READY);
+            }
+            eventPublisher.publishEvent(new EmbeddingsWrittenEvent(saved));
+            return done.size();
+        });
+    }
+
+    private void reschedule(List<EmbeddingJob> jobs, Throwable cause) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> exhausted = new ArrayList<>();
+            for (EmbeddingJob claimed : jobs) {
+                EmbeddingJob job = embeddingJobRepository.findById(claimed.getId()).orElse(null);
+                if (job == null) {
+                    continue;
+                }
+                if (job.getAttempts() >= maxAttempts) {
+                    exhausted.add(job.getProductId());
+                    embeddingJobRepository.delete(job);
+                    failed.increment();
+                } else {
+                    job.setNextAttemptAt(LocalDateTime.now().plus(backoff(job.getAttempts())));
+                    job.setLastError(cause.toString());
+                    retried.increment();
+                }
+            }
+            for (Product product : productRepository.findAllById(exhausted)) {
+                product.setEmbeddingStatus(EmbeddingStatus.FAILED);
+                logger.error("Giving up on embedding for product {} after {} attempts", product.getId(), maxAttempts);
+            }
+        });
+    }
+
+    // Exponential backoff with +/-20% jitter so retries from several nodes spread out
+    Duration backoff(int attempts) {
+        long millis = initialBackoff.toMillis() << Math.min(attempts - 1, 20);
+        millis = Math.min(millis, maxBackoff.toMillis());
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return Duration.ofMillis((long) (millis * jitter));
+    }
+
+    private void refreshQueueMetrics() {
+        try {
+            queueDepth.set(embeddingJobRepository.count());
+            LocalDateTime oldest = embeddingJobRepository.findOldestCreatedAt();
+            oldestJobAgeSeconds.set(oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toSeconds());
+        } catch (RuntimeException e) {
+            logger.warn("Could not refresh embedding queue metrics: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Turns text into embedding vectors. The implementation is chosen with {@code app.embedding.provider}
+ * ({@code rapidapi} or {@code local}). Vectors from different providers are not comparable, so switching
+ * provider means re-embedding the catalogue: {@link #modelId()} is part of every stored fingerprint.
+ */
+public interface EmbeddingProvider {
+
+    CompletableFuture<float[]> generateEmbedding(String text);
+
+    /**
+     * Embeddings of {@code texts}, in order.
+     */
+    default CompletableFuture<List<float[]>> generateEmbeddings(List<String> texts) {
+        List<CompletableFuture<float[]>> embeddings = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            embeddings.add(generateEmbedding(text));
+        }
+        return CompletableFuture.allOf(embeddings.toArray(CompletableFuture[]::new))
+                .thenApply(v -> embeddings.stream().map(CompletableFuture::join).toList());
+    }
+
+    String modelId();
+
+    int dimension();
+}
@@ -0,0 +1,113 @@
+package com.example.backend.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streams an OpenAI-style embeddings response ({@code {"data":[{"embedding":[...]}]}}) straight into a
+ * {@code float[]}, without building the intermediate {@code Map} and {@code List<Double>} tree.
+ */
+public final class EmbeddingResponseParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int INITIAL_CAPACITY = 3072;
+
+    private EmbeddingResponseParser() {
+    }
+
+    /**
+     * Returns all {@code count} embeddings of a batch response, ordered by each item's {@code index}
+     * (or by position when the API omits it).
+     *
+     * @throws IOException if the body is not valid JSON, reports an error or lacks any of the embeddings
+     */
+    public static float[][] parseAll(byte[] body, int count) throws IOException {
+        float[][] embeddings = new float[count][];
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Embedding response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("data".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    readEmbeddings(parser, embeddings);
+                } else if ("error".equals(field)) {
+                    throw new IOException("Embedding API returned an error: " + readError(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (embeddings[i] == null) {
+                throw new IOException("Embedding response has no embedding for input " + i);
+            }
+        }
+        return embeddings;
+    }
+
+    private static void readEmbeddings(JsonParser parser, float[][] embeddings) throws IOException {
+        int position = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            int index = position++;
+            float[] embedding = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("embedding".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    embedding = readFloats(parser);
+                } else if ("index".equals(field) && parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+                    index = parser.getIntValue();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (index < 0 || index >= embeddings.length) {
+                throw new IOException("Embedding response index " + index + " is out of range");
+            }
+            embeddings[index] = embedding;
+        }
+    }
+
+    static float[] readFloats(JsonParser parser) throws IOException {
+        float[] values = new float[INITIAL_CAPACITY];
+        int size = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_NUMBER_INT) {
+                throw new IOException("Unexpected " + token + " in embedding array");
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = parser.getFloatValue();
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private static String readError(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        String message = null;
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("message".equals(field)) {
+                    message = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } else {
+            parser.skipChildren();
+        }
+        return message;
+    }
+}
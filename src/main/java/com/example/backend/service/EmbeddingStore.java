@@ -0,0 +1,642 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.ProductEmbedding;
+import com.example.backend.repository.ProductEmbeddingRepository;
+import com.example.backend.search.ExactSearchEngine;
+import com.example.backend.search.FilterBitmap;
+import com.example.backend.search.MappedVectorStore;
+import com.example.backend.search.PrefixVectorIndex;
+import com.example.backend.search.Quantization;
+import com.example.backend.search.QuantizedVectorIndex;
+import com.example.backend.search.ScalarQuantizer;
+import com.example.backend.search.SearchHit;
+import com.example.backend.search.SnapshotWatermark;
+import com.example.backend.search.TopK;
+import com.example.backend.search.Vectors;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Product embeddings as contiguous, unit-normalised float32 vectors in a memory-mapped file, keyed by product id.
+ * Search reads vectors straight from the mapping, so no entities or boxed {@code List<Double>}
+ * values are created per candidate. The file is rebuilt from the {@code product_embeddings}
+ * table on startup when it is missing or unreadable. An existing file is reconciled with the table instead:
+ * embeddings written after the watermark recorded in the file are reloaded, ids the table no longer has are
+ * removed and ids the file is missing are loaded. Writes made while the store is opened or rebuilt are reloaded
+ * from the table once it is done, so none are lost to the store being replaced.
+ */
+@Service
+public class EmbeddingStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingStore.class);
+    private static final int REBUILD_PAGE_SIZE = 500;
+    private static final int ID_PAGE_SIZE = 10_000;
+
+    private final ProductEmbeddingRepository productEmbeddingRepository;
+    private final ExactSearchEngine exactSearchEngine;
+    // Writes hold the read lock, so swapping in a rebuilt file waits for any still going to the old one
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Set<Long> writtenDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.search.embedding-store.path:data/embeddings.bin}")
+    private Path path;
+
+    @Value("${app.search.embedding-store.dimension:3072}")
+    private int dimension;
+
+    // 0 disables two-stage search and the prefix copy it keeps in memory
+    @Value("${app.search.two-stage.prefix-dimension:256}")
+    private int prefixDimension;
+
+    // none | int8 | binary; the quantised copy quantised search scans before re-ranking
+    @Value("${app.search.quantization.mode:none}")
+    private String quantizationMode;
+
+    // Embeddings committed late with an earlier updated_at are still reloaded; reloading twice is harmless
+    @Value("${app.search.snapshot.replay-overlap:5m}")
+    private Duration replayOverlap;
+
+    private volatile MappedVectorStore store;
+    private volatile PrefixVectorIndex prefixIndex;
+    private volatile QuantizedVectorIndex quantizedIndex;
+    private volatile boolean rebuilding;
+
+    public EmbeddingStore(ProductEmbeddingRepository productEmbeddingRepository, ExactSearchEngine exactSearchEngine,
+                          MeterRegistry meterRegistry) {
+        this.productEmbeddingRepository = productEmbeddingRepository;
+        this.exactSearchEngine = exactSearchEngine;
+
+        Gauge.builder("embedding.store.vectors", this, EmbeddingStore::size)
+                .description("Number of product embeddings held in the embedding store")
+                .register(meterRegistry);
+        Gauge.builder("embedding.store.mapped", this, s -> s.store != null ? s.store.mappedBytes() : 0)
+                .description("Bytes of the embedding store file in use")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("embedding.store.resident.ratio", this, s -> s.store != null ? s.store.residentRatio() : 0)
+                .description("Fraction of embedding store segments resident in physical memory")
+                .register(meterRegistry);
+        Gauge.builder("embedding.store.prefix", this, s -> s.prefixIndex != null ? s.prefixIndex.bytes() : 0)
+                .description("Heap bytes held by the truncated vectors used by two-stage search")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("embedding.store.quantized", this, s -> s.quantizedIndex != null ? s.quantizedIndex.bytes() : 0)
+                .description("Heap bytes held by the quantised codes used by quantised search")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void openOnStartup() {
+        try {
+            open();
+        } catch (IOException | DataAccessException e) {
+            logger.error("Could not open embedding store {}: {}", path, e.getMessage());
+        }
+    }
+
+    public synchronized void open() throws IOException {
+        trackWrites();
+        try {
+            openOrRebuild();
+        } finally {
+            replayWrittenDuringRebuild();
+        }
+    }
+
+    private void openOrRebuild() throws IOException {
+        if (Files.exists(path)) {
+            try {
+                prefixIndex = null;
+                quantizedIndex = null;
+                store = MappedVectorStore.open(path, dimension);
+                logger.info("Opened embedding store {} with {} vectors", path, store.size());
+                try {
+                    reconcile();
+                } catch (DataAccessException e) {
+                    // Serve the file as it is; the next successful open catches up from the same watermark
+                    logger.warn("Could not reconcile embedding store {} with the database: {}", path, e.getMessage());
+                }
+                buildPrefixIndex();
+                buildQuantizedIndex();
+                return;
+            } catch (IOException e) {
+                logger.warn("Embedding store {} is unusable, rebuilding: {}", path, e.getMessage());
+            }
+        }
+        rebuildStore();
+    }
+
+    /**
+     * Rebuilds the store from {@code product_embeddings} into a temporary file and swaps it in, so a
+     * failed rebuild never leaves a partial store behind for the next start.
+     */
+    public synchronized void rebuild() throws IOException {
+        trackWrites();
+        try {
+            rebuildStore();
+        } finally {
+            replayWrittenDuringRebuild();
+        }
+    }
+
+    private void rebuildStore() throws IOException {
+        logger.info("Rebuilding embedding store {} from the product_embeddings table", path);
+        long start = System.currentTimeMillis();
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        SnapshotWatermark watermark = currentWatermark();
+        try (MappedVectorStore rebuilt = MappedVectorStore.create(tmp, dimension)) {
+            rebuilt.setWatermark(watermark);
+            PageRequest pageRequest = PageRequest.of(0, REBUILD_PAGE_SIZE, Sort.by("productId"));
+            Page<ProductEmbedding> page;
+            do {
+                page = productEmbeddingRepository.findAll(pageRequest);
+                for (ProductEmbedding embedding : page) {
+                    rebuilt.put(embedding.getProductId(), unit(embedding.getEmbedding()));
+                }
+                pageRequest = pageRequest.next();
+            } while (page.hasNext());
+        }
+
+        swapLock.writeLock().lock();
+        try {
+            MappedVectorStore previous = store;
+            store = null;
+            if (previous != null) {
+                previous.close();
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            store = MappedVectorStore.open(path, dimension);
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        logger.info("Embedding store rebuilt with {} vectors in {} ms", store.size(), System.currentTimeMillis() - start);
+        buildPrefixIndex();
+        buildQuantizedIndex();
+    }
+
+    private void buildPrefixIndex() {
+        prefixIndex = null;
+        if (prefixDimension <= 0 || prefixDimension >= dimension) {
+            return;
+        }
+        PrefixVectorIndex index = new PrefixVectorIndex(prefixDimension);
+        forEach(index::put);
+        prefixIndex = index;
+        logger.info("Two-stage prefix index built with {} vectors of {} dimensions ({} bytes)",
+                index.size(), prefixDimension, index.bytes());
+    }
+
+    private void trackWrites() {
+        writtenDuringRebuild.clear();
+        rebuilding = true;
+    }
+
+    /**
+     * Reloads from the table every product written while the store was opened or rebuilt: those writes may have
+     * gone to the replaced file, or reached the prefix and quantised indexes before they were rebuilt. Holds the
+     * write lock, so a later write cannot be overtaken by the reload.
+     */
+    private void replayWrittenDuringRebuild() {
+        swapLock.writeLock().lock();
+        try {
+            rebuilding = false;
+            if (store == null || writtenDuringRebuild.isEmpty()) {
+                return;
+            }
+            List<Long> written = new ArrayList<>(writtenDuringRebuild);
+            for (int from = 0; from < written.size(); from += REBUILD_PAGE_SIZE) {
+                List<Long> batch = written.subList(from, Math.min(from + REBUILD_PAGE_SIZE, written.size()));
+                Set<Long> deleted = new HashSet<>(batch);
+                for (ProductEmbedding embedding : productEmbeddingRepository.findAllById(batch)) {
+                    put(embedding.getProductId(), embedding.getEmbedding());
+                    deleted.remove(embedding.getProductId());
+                }
+                deleted.forEach(this::remove);
+            }
+            logger.info("Replayed {} embeddings written while the embedding store was rebuilt", written.size());
+        } catch (DataAccessException e) {
+            logger.warn("Could not replay embeddings written while the embedding store was rebuilt: {}",
+                    e.getMessage());
+        } finally {
+            writtenDuringRebuild.clear();
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Brings an opened file up to date with {@code product_embeddings}, which other nodes, or this one after
+     * the file was last closed, may have changed: reloads embeddings written after the file's watermark, less
+     * {@code app.search.snapshot.replay-overlap}, then compares ids to remove deleted products and load any
+     * the file lacks. Records the watermark read before it started.
+     */
+    private void reconcile() {
+        long start = System.currentTimeMillis();
+        MappedVectorStore current = store;
+        SnapshotWatermark recorded = current.watermark();
+        SnapshotWatermark watermark = currentWatermark();
+
+        LocalDateTime updatedAt = recorded.updatedAt().minus(replayOverlap);
+        long productId = 0;
+        int reloaded = 0;
+        List<ProductEmbedding> page;
+        do {
+            page = productEmbeddingRepository.findWrittenAfter(updatedAt, productId,
+                    PageRequest.of(0, REBUILD_PAGE_SIZE));
+            for (ProductEmbedding embedding : page) {
+                write(embedding.getProductId(), embedding.getEmbedding());
+                updatedAt = embedding.getUpdatedAt();
+                productId = embedding.getProductId();
+            }
+            reloaded += page.size();
+        } while (page.size() == REBUILD_PAGE_SIZE);
+
+        // A keyset walk over the primary key reads no vectors
+        long[] ids = ids();
+        BitSet present = new BitSet(ids.length);
+        List<Long> missing = new ArrayList<>();
+        long afterId = 0;
+        List<Long> idPage;
+        do {
+            idPage = productEmbeddingRepository.findProductIdsAfter(afterId, PageRequest.of(0, ID_PAGE_SIZE));
+            for (Long id : idPage) {
+                int position = Arrays.binarySearch(ids, id);
+                if (position >= 0) {
+                    present.set(position);
+                } else {
+                    missing.add(id);
+                }
+                afterId = id;
+            }
+        } while (idPage.size() == ID_PAGE_SIZE);
+
+        int removed = 0;
+        for (int position = present.nextClearBit(0); position < ids.length;
+             position = present.nextClearBit(position + 1)) {
+            delete(ids[position]);
+            removed++;
+        }
+        for (int from = 0; from < missing.size(); from += REBUILD_PAGE_SIZE) {
+            List<Long> batch = missing.subList(from, Math.min(from + REBUILD_PAGE_SIZE, missing.size()));
+            for (ProductEmbedding embedding : productEmbeddingRepository.findAllById(batch)) {
+                write(embedding.getProductId(), embedding.getEmbedding());
+            }
+        }
+
+        current.setWatermark(watermark);
+        logger.info("Reconciled embedding store with product_embeddings: reloaded {} written after {}, "
+                        + "removed {}, loaded {} missing, in {} ms", reloaded, recorded, removed,
+                missing.size(), System.currentTimeMillis() - start);
+    }
+
+    private SnapshotWatermark currentWatermark() {
+        List<Object[]> latest = productEmbeddingRepository.findLatestWatermarks(PageRequest.of(0, 1));
+        if (latest.isEmpty() || latest.get(0)[0] == null) {
+            return SnapshotWatermark.NONE;
+        }
+        return new SnapshotWatermark((LocalDateTime) latest.get(0)[0], (Long) latest.get(0)[1]);
+    }
+
+    // Int8 ranges are fitted to the vectors present now; later writes outside them are clamped until a rebuild
+    private void buildQuantizedIndex() {
+        quantizedIndex = null;
+        Quantization quantization = Quantization.from(quantizationMode);
+        if (quantization == Quantization.NONE) {
+            return;
+        }
+        QuantizedVectorIndex index = quantization == Quantization.INT8
+                ? QuantizedVectorIndex.int8(
+                        ScalarQuantizer.fit(dimension, sink -> forEach((id, vector) -> sink.accept(vector))))
+                : QuantizedVectorIndex.binary(dimension);
+        forEach(index::put);
+        quantizedIndex = index;
+        logger.info("{} quantised index built with {} vectors ({} bytes)", quantization, index.size(), index.bytes());
+    }
+
+    public boolean isReady() {
+        return store != null;
+    }
+
+    public void put(Long productId, float[] embedding) {
+        if (productId == null || embedding == null) {
+            return;
+        }
+        swapLock.readLock().lock();
+        try {
+            if (rebuilding) {
+                writtenDuringRebuild.add(productId);
+            }
+            write(productId, embedding);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        swapLock.readLock().lock();
+        try {
+            if (rebuilding) {
+                writtenDuringRebuild.add(productId);
+            }
+            delete(productId);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void write(long productId, float[] embedding) {
+        MappedVectorStore current = store;
+        if (current != null) {
+            float[] vector = unit(embedding);
+            current.put(productId, vector);
+            PrefixVectorIndex prefixes = prefixIndex;
+            if (prefixes != null) {
+                prefixes.put(productId, vector);
+            }
+            QuantizedVectorIndex quantized = quantizedIndex;
+            if (quantized != null) {
+                quantized.put(productId, vector);
+            }
+        }
+    }
+
+    private void delete(long productId) {
+        MappedVectorStore current = store;
+        if (current != null) {
+            current.remove(productId);
+            PrefixVectorIndex prefixes = prefixIndex;
+            if (prefixes != null) {
+                prefixes.remove(productId);
+            }
+            QuantizedVectorIndex quantized = quantizedIndex;
+            if (quantized != null) {
+                quantized.remove(productId);
+            }
+        }
+    }
+
+    public int size() {
+        MappedVectorStore current = store;
+        return current != null ? current.size() : 0;
+    }
+
+    /**
+     * Copy of the stored unit vector for {@code productId}, or {@code null} if there is none.
+     */
+    public float[] get(Long productId) {
+        MappedVectorStore current = store;
+        if (current == null || productId == null) {
+            return null;
+        }
+        float[] vector = new float[current.dimension()];
+        return current.get(productId, vector) ? vector : null;
+    }
+
+    /**
+     * Whether the vector stored for {@code productId} is already {@code embedding}, once normalised.
+     */
+    public boolean holds(Long productId, float[] embedding) {
+        float[] stored = get(productId);
+        return stored != null && embedding != null && Arrays.equals(stored, unit(embedding));
+    }
+
+    /**
+     * Ids of every stored vector in ascending order, read without touching the vectors.
+     */
+    public long[] ids() {
+        MappedVectorStore current = requireStore();
+        long[] ids = new long[current.slotCount()];
+        int count = 0;
+        for (int slot = 0; slot < ids.length; slot++) {
+            long id = current.idAt(slot);
+            if (id != 0) {
+                ids[count++] = id;
+            }
+        }
+        ids = Arrays.copyOf(ids, count);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Calls {@code consumer} with every stored vector. The array is reused between calls.
+     */
+    public void forEach(BiConsumer<Long, float[]> consumer) {
+        MappedVectorStore current = requireStore();
+        float[] vector = new float[current.dimension()];
+        for (int slot = 0; slot < current.slotCount(); slot++) {
+            long id = current.idAt(slot);
+            if (id != 0) {
+                current.read(slot, vector);
+                consumer.accept(id, vector);
+            }
+        }
+    }
+
+    /**
+     * Exact top-k cosine search over every stored vector accepted by {@code filter} ({@code null} accepts
+     * all), scored in {@code parallelism} chunks.
+     */
+    public List<SearchHit> search(float[] query, int k, double minScore, int parallelism, FilterBitmap filter) {
+        return exactSearchEngine.search(requireStore(), Vectors.normalize(query), k, minScore, parallelism, filter);
+    }
+
+    /**
+     * Re-scores {@code candidates} from an approximate index on their full vectors, keeping the best {@code k}
+     * at or above {@code minScore}. Candidates without a stored vector are dropped.
+     */
+    public List<SearchHit> rerank(float[] query, List<SearchHit> candidates, int k, double minScore) {
+        MappedVectorStore current = requireStore();
+        float[] unitQuery = Vectors.normalize(query);
+        float[] vector = new float[current.dimension()];
+        TopK top = new TopK(k);
+        for (SearchHit candidate : candidates) {
+            if (current.get(candidate.id(), vector)) {
+                float score = Vectors.dot(unitQuery, vector);
+                if (score >= minScore && score > top.threshold()) {
+                    top.offer(candidate.id(), score);
+                }
+            }
+        }
+        return top.toHits();
+    }
+
+    public boolean isTwoStageReady() {
+        return store != null && prefixIndex != null;
+    }
+
+    /**
+     * Scores every vector on its {@code app.search.two-stage.prefix-dimension} prefix and re-ranks the best
+     * {@code rerankDepth} on the full vectors.
+     */
+    public List<SearchHit> searchTwoStage(float[] query, int k, double minScore, int rerankDepth, FilterBitmap filter) {
+        PrefixVectorIndex prefixes = prefixIndex;
+        if (prefixes == null) {
+            throw new IllegalStateException("Two-stage search is not available");
+        }
+        return prefixes.search(requireStore(), Vectors.normalize(query), k, rerankDepth, minScore, filter);
+    }
+
+    /**
+     * Recall@k of two-stage search against the exact scan, using {@code samples} stored vectors picked at
+     * random as queries, with the time each approach took.
+     */
+    public TwoStageRecall measureTwoStageRecall(int samples, int k, int rerankDepth) {
+        PrefixVectorIndex prefixes = prefixIndex;
+        MappedVectorStore current = requireStore();
+        if (prefixes == null) {
+            throw new IllegalStateException("Two-stage search is not available");
+        }
+        Recall recall = measureRecall(current, samples, k,
+                query -> prefixes.search(current, query, k, rerankDepth, -1, null));
+        return new TwoStageRecall(recall.queries(), k, prefixes.prefixDimension(), rerankDepth, recall.recall(),
+                recall.exactMillis(), recall.approximateMillis());
+    }
+
+    public boolean isQuantizedReady() {
+        return store != null && quantizedIndex != null;
+    }
+
+    /**
+     * Scores every vector on its quantised codes and re-ranks the best {@code rerankDepth} on the full vectors.
+     */
+    public List<SearchHit> searchQuantized(float[] query, int k, double minScore, int rerankDepth,
+                                           FilterBitmap filter) {
+        QuantizedVectorIndex quantized = quantizedIndex;
+        if (quantized == null) {
+            throw new IllegalStateException("Quantised search is not available");
+        }
+        return quantized.search(requireStore(), Vectors.normalize(query), k, rerankDepth, minScore, filter);
+    }
+
+    /**
+     * Memory per product of the quantised codes against full float32, and recall@k of quantised search against
+     * the exact scan over {@code samples} random stored vectors.
+     */
+    public QuantizationReport measureQuantization(int samples, int k, int rerankDepth) {
+        QuantizedVectorIndex quantized = quantizedIndex;
+        MappedVectorStore current = requireStore();
+        if (quantized == null) {
+            throw new IllegalStateException("Quantised search is not available");
+        }
+        Recall recall = measureRecall(current, samples, k,
+                query -> quantized.search(current, query, k, rerankDepth, -1, null));
+        return new QuantizationReport(quantized.quantization(), quantized.size(), quantized.bytesPerVector(),
+                (long) current.dimension() * Float.BYTES + Long.BYTES, recall.queries(), k, rerankDepth,
+                recall.recall(), recall.exactMillis(), recall.approximateMillis());
+    }
+
+    private Recall measureRecall(MappedVectorStore current, int samples, int k,
+                                 Function<float[], List<SearchHit>> approximateSearch) {
+        Random random = new Random();
+        long exactNanos = 0;
+        long approximateNanos = 0;
+        int found = 0;
+        int expected = 0;
+        float[] query = new float[current.dimension()];
+        for (int i = 0; i < samples && current.size() > 0; i++) {
+            long id;
+            do {
+                id = current.idAt(random.nextInt(current.slotCount()));
+            } while (id == 0 || !current.get(id, query));
+
+            long start = System.nanoTime();
+            List<SearchHit> exact = exactSearchEngine.search(current, query, k, -1, exactSearchEngine.maxParallelism());
+            exactNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<SearchHit> approximate = approximateSearch.apply(query);
+            approximateNanos += System.nanoTime() - start;
+
+            Set<Long> exactIds = exact.stream().map(SearchHit::id).collect(Collectors.toSet());
+            expected += exactIds.size();
+            found += (int) approximate.stream().filter(hit -> exactIds.contains(hit.id())).count();
+        }
+        int queries = current.size() > 0 ? samples : 0;
+        return new Recall(queries, expected == 0 ? 1.0 : (double) found / expected,
+                queries == 0 ? 0 : exactNanos / 1e6 / queries, queries == 0 ? 0 : approximateNanos / 1e6 / queries);
+    }
+
+    public int maxParallelism() {
+        return exactSearchEngine.maxParallelism();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        swapLock.writeLock().lock();
+        try {
+            MappedVectorStore current = store;
+            store = null;
+            if (current != null) {
+                current.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    public record TwoStageRecall(int queries, int k, int prefixDimension, int rerankDepth, double recall,
+                                 double exactMillis, double twoStageMillis) {
+    }
+
+    public record QuantizationReport(Quantization quantization, int vectors, long bytesPerVector,
+                                     long fullPrecisionBytesPerVector, int queries, int k, int rerankDepth,
+                                     double recall, double exactMillis, double quantizedMillis) {
+    }
+
+    private record Recall(int queries, double recall, double exactMillis, double approximateMillis) {
+    }
+
+    // Rows written before vectors were normalised at write time are normalised on the way in
+    private static float[] unit(float[] vector) {
+        return Vectors.isNormalized(vector) ? vector : Vectors.normalize(vector);
+    }
+
+    private MappedVectorStore requireStore() {
+        MappedVectorStore current = store;
+        if (current == null) {
+            throw new IllegalStateException("Embedding store is not open");
+        }
+        return current;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Product;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * What gets embedded for a product, and the fingerprint used to tell whether a stored embedding is current.
+ */
+final class EmbeddingTexts {
+
+    private EmbeddingTexts() {
+    }
+
+    static String textOf(Product product) {
+        return product.getName() + " " + product.getDescription();
+    }
+
+    /**
+     * Hex SHA-256 of the model id and the embedded text.
+     */
+    static String fingerprint(String text, String modelId) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(modelId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.backend.service;
+
+import com.example.backend.search.FilterBitmap;
+import com.example.backend.search.IvfPqIndex;
+import com.example.backend.search.SearchHit;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds the memory-mapped IVF-PQ index, the semantic search index for catalogs too large for the HNSW graph.
+ * Training and rebuilding run on a background thread into a temporary file; searches keep using the previous
+ * index until the new one is swapped in. Products written while a build runs are replayed onto the new index
+ * from the {@link EmbeddingStore} after the swap.
+ */
+@Service
+public class IvfPqIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IvfPqIndexService.class);
+
+    private final EmbeddingStore embeddingStore;
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ivf-pq-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean building = new AtomicBoolean();
+    private final Set<Long> writtenDuringBuild = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.search.ivf-pq.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.search.ivf-pq.path:data/ivf-pq.bin}")
+    private Path path;
+
+    @Value("${app.search.embedding-store.dimension:3072}")
+    private int dimension;
+
+    @Value("${app.search.ivf-pq.lists:1024}")
+    private int lists;
+
+    @Value("${app.search.ivf-pq.subspaces:64}")
+    private int subspaces;
+
+    @Value("${app.search.ivf-pq.nprobe:16}")
+    private int nprobe;
+
+    @Value("${app.search.ivf-pq.training-sample:50000}")
+    private int trainingSample;
+
+    @Value("${app.search.ivf-pq.iterations:10}")
+    private int iterations;
+
+    // PQ candidates re-scored on the full vectors from the embedding store
+    @Value("${app.search.ivf-pq.rerank-depth:100}")
+    private int rerankDepth;
+
+    private volatile IvfPqIndex index;
+    private volatile long lastBuildMillis;
+    private volatile String lastError;
+
+    public IvfPqIndexService(EmbeddingStore embeddingStore) {
+        this.embeddingStore = embeddingStore;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void openOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        if (Files.exists(path)) {
+            try {
+                index = IvfPqIndex.open(path, dimension, nprobe);
+                logger.info("Opened IVF-PQ index {} with {} vectors in {} lists", path, index.size(), index.lists());
+                return;
+            } catch (IOException e) {
+                logger.warn("IVF-PQ index {} is unusable, rebuilding: {}", path, e.getMessage());
+            }
+        }
+        if (embeddingStore.isReady()) {
+            rebuildAsync();
+        } else {
+            logger.warn("Embedding store is not open; IVF-PQ index will not be built");
+        }
+    }
+
+    /**
+     * Starts training and rebuilding the index in the background.
+     *
+     * @return {@code false} if a build is already running
+     */
+    public boolean rebuildAsync() {
+        if (!building.compareAndSet(false, true)) {
+            return false;
+        }
+        writtenDuringBuild.clear();
+        builder.execute(this::rebuild);
+        return true;
+    }
+
+    private void rebuild() {
+        logger.info("Building IVF-PQ index (lists={}, subspaces={}, trainingSample={})", lists, subspaces,
+                trainingSample);
+        long start = System.currentTimeMillis();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            IvfPqIndex.build(tmp, dimension, new IvfPqIndex.Params(lists, subspaces, trainingSample, iterations),
+                    nprobe, embeddingStore::forEach, new Random()).close();
+            // Searches holding the previous index keep reading its mappings, which outlive the rename and the close
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            IvfPqIndex rebuilt = IvfPqIndex.open(path, dimension, nprobe);
+
+            IvfPqIndex previous = index;
+            index = rebuilt;
+            for (Long productId : writtenDuringBuild) {
+                float[] embedding = embeddingStore.get(productId);
+                if (embedding != null) {
+                    rebuilt.add(productId, embedding);
+                } else {
+                    rebuilt.remove(productId);
+                }
+            }
+            if (previous != null) {
+                previous.close();
+            }
+            lastBuildMillis = System.currentTimeMillis() - start;
+            lastError = null;
+            logger.info("IVF-PQ index built with {} vectors ({} bytes) in {} ms", rebuilt.size(),
+                    rebuilt.fileBytes(), lastBuildMillis);
+        } catch (IOException | RuntimeException e) {
+            lastError = e.getMessage();
+            logger.error("Could not build IVF-PQ index: {}", e.getMessage(), e);
+        } finally {
+            building.set(false);
+        }
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * Probes the index for the best {@code rerank-depth} candidates by PQ score and re-ranks them on the full
+     * vectors.
+     */
+    public List<SearchHit> search(float[] query, int k, double minScore, FilterBitmap filter) {
+        List<SearchHit> candidates = index.search(query, Math.max(k, rerankDepth), Double.NEGATIVE_INFINITY,
+                filter);
+        if (!embeddingStore.isReady()) {
+            return candidates.stream().filter(hit -> hit.score() >= minScore).limit(k).toList();
+        }
+        return embeddingStore.rerank(query, candidates, k, minScore);
+    }
+
+    public void index(Long productId, float[] embedding) {
+        IvfPqIndex current = index;
+        if (productId == null || embedding == null) {
+            return;
+        }
+        if (building.get()) {
+            writtenDuringBuild.add(productId);
+        }
+        if (current != null) {
+            current.add(productId, embedding);
+        }
+    }
+
+    public void remove(Long productId) {
+        IvfPqIndex current = index;
+        if (productId == null) {
+            return;
+        }
+        if (building.get()) {
+            writtenDuringBuild.add(productId);
+        }
+        if (current != null) {
+            current.remove(productId);
+        }
+    }
+
+    public Status status() {
+        IvfPqIndex current = index;
+        return new Status(enabled, current != null, building.get(), current != null ? current.size() : 0,
+                current != null ? current.overlaySize() : 0, current != null ? current.lists() : 0,
+                current != null ? current.subspaces() : 0, nprobe, current != null ? current.fileBytes() : 0,
+                lastBuildMillis, lastError);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        builder.shutdownNow();
+        builder.awaitTermination(10, TimeUnit.SECONDS);
+        IvfPqIndex current = index;
+        index = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * @param overlay vectors written since the last build, held on the heap until the next one
+     */
+    public record Status(boolean enabled, boolean ready, boolean building, int vectors, int overlay, int lists,
+                         int subspaces, int nprobe, long fileBytes, long lastBuildMillis, String lastError) {
+    }
+}
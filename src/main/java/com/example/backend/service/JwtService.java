@@ -1,25 +1,45 @@
 package com.example.backend.service;
 
 import com.example.backend.config.JwtConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Issues and verifies JWTs. Verification parses and checks the signature once per token: the parser is built
+ * once, the result is an immutable {@link VerifiedToken}, and verified tokens are cached under a SHA-256
+ * digest of the token until they expire, so a client sending the same bearer token in a burst skips the
+ * signature and JSON work. {@code jwt.verified-cache-size} bounds the cache; 0 disables it.
+ */
 @Service
 public class JwtService {
 
@@ -27,10 +47,24 @@ public class JwtService {
 
     private final JwtConfig jwtConfig;
     private final SecretKey secretKey;
+    private final JwtParser parser;
+    private final Cache<String, VerifiedToken> verified;
 
-    public JwtService(JwtConfig jwtConfig) {
+    public JwtService(JwtConfig jwtConfig, MeterRegistry meterRegistry,
+                      @Value("${jwt.verified-cache-size:10000}") long verifiedCacheSize) {
         this.jwtConfig = jwtConfig;
         this.secretKey = jwtConfig.jwtSecretKey();
+        this.parser = Jwts.parser().verifyWith(secretKey).build();
+        if (verifiedCacheSize > 0) {
+            this.verified = Caffeine.newBuilder()
+                    .maximumSize(verifiedCacheSize)
+                    .expireAfter(new UntilTokenExpiry())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt.verified");
+        } else {
+            this.verified = null;
+        }
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -38,49 +72,111 @@ public class JwtService {
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
-        return buildToken(extraClaims, userDetails, jwtConfig.getJwtExpiration());
+        return buildToken(extraClaims, null, userDetails.getUsername(), authorities(userDetails),
+                System.currentTimeMillis(), jwtConfig.getJwtExpiration());
     }
 
+    /**
+     * A refresh token with a fresh {@code jti}, by which it is rotated and revoked.
+     */
     public String generateRefreshToken(UserDetails userDetails) {
-        return buildToken(new HashMap<>(), userDetails, jwtConfig.getRefreshExpiration());
+        return buildToken(new HashMap<>(), newTokenId(), userDetails.getUsername(), authorities(userDetails),
+                System.currentTimeMillis(), jwtConfig.getRefreshExpiration());
+    }
+
+    /**
+     * An access and a refresh token for {@code userDetails}, issued at the same instant from one read of its
+     * authorities.
+     */
+    public TokenPair generateTokens(UserDetails userDetails) {
+        List<String> authorities = authorities(userDetails);
+        long issuedAt = System.currentTimeMillis();
+        return new TokenPair(
+                buildToken(Map.of(), null, userDetails.getUsername(), authorities, issuedAt,
+                        jwtConfig.getJwtExpiration()),
+                buildToken(Map.of(), newTokenId(), userDetails.getUsername(), authorities, issuedAt,
+                        jwtConfig.getRefreshExpiration()));
+    }
+
+    private static String newTokenId() {
+        return UUID.randomUUID().toString();
     }
 
-    private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration) {
-        var authorities = userDetails.getAuthorities()
+    private static List<String> authorities(UserDetails userDetails) {
+        return userDetails.getAuthorities()
                 .stream()
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.toList());
+    }
 
+    private String buildToken(Map<String, Object> extraClaims, String id, String username,
+                              List<String> authorities, long issuedAt, long expiration) {
         return Jwts.builder()
                 .claims(extraClaims)
-                .subject(userDetails.getUsername())
+                .id(id)
+                .subject(username)
                 .claim("authorities", authorities)
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
+                .issuedAt(new Date(issuedAt))
+                .expiration(new Date(issuedAt + expiration))
                 .signWith(secretKey)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
         try {
-            final String username = extractUsername(token);
-            return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+            return verify(token).subject().equals(userDetails.getUsername());
         } catch (Exception e) {
             logger.error("Token validation error: {}", e.getMessage());
             return false;
         }
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public String extractUsername(String token) {
+        return verify(token).subject();
+    }
+
+    /**
+     * The token's subject, issue time, expiry and authorities, once its signature and expiry have been
+     * checked. Tokens verified before are answered from the cache until they expire; tokens that fail
+     * verification are never cached.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, forged or expired
+     */
+    public VerifiedToken verify(String token) {
+        if (verified == null) {
+            return parse(token);
+        }
+        String key = digest(token);
+        VerifiedToken cached = verified.getIfPresent(key);
+        // The cache expires entries lazily, so check the expiry the parser would have checked
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return cached;
+        }
+        VerifiedToken parsed = parse(token);
+        if (parsed.expiresAt() != null) {
+            verified.put(key, parsed);
+        }
+        return parsed;
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private VerifiedToken parse(String token) {
+        Claims claims = extractAllClaims(token);
+        return new VerifiedToken(
+                claims.getId(),
+                claims.getSubject(),
+                toInstant(claims.getIssuedAt()),
+                toInstant(claims.getExpiration()),
+                extractAuthorities(claims));
     }
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    private static List<GrantedAuthority> extractAuthorities(Claims claims) {
+        List<?> authorities = claims.get("authorities", List.class);
+        if (authorities == null) {
+            return List.of();
+        }
+        return authorities.stream()
+                .map(authority -> (GrantedAuthority) new SimpleGrantedAuthority(String.valueOf(authority)))
+                .toList();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -89,21 +185,68 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     public LocalDateTime getExpirationDateFromToken(String token) {
-        Date expiration = extractExpiration(token);
-        return Instant.ofEpochMilli(expiration.getTime())
+        return verify(token).expiresAt()
                 .atZone(ZoneId.systemDefault())
                 .toLocalDateTime();
     }
 
     public boolean canTokenBeRefreshed(String token) {
-        return !isTokenExpired(token);
+        return verify(token).expiresAt().isAfter(Instant.now());
+    }
+
+    long cachedTokens() {
+        if (verified == null) {
+            return 0;
+        }
+        verified.cleanUp();
+        return verified.estimatedSize();
+    }
+
+    private static Instant toInstant(Date date) {
+        return date != null ? date.toInstant() : null;
+    }
+
+    // Keys on a digest so the cache holds neither whole tokens nor usable credentials
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public record TokenPair(String accessToken, String refreshToken) {
+    }
+
+    /**
+     * A token whose signature and expiry have been checked.
+     *
+     * @param id the {@code jti}; set on refresh tokens only
+     */
+    public record VerifiedToken(String id, String subject, Instant issuedAt, Instant expiresAt,
+                                List<GrantedAuthority> authorities) {
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), token.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Product;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.search.Bm25Index;
+import com.example.backend.search.FilterBitmap;
+import com.example.backend.search.SearchHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Holds the in-memory BM25 index used by lexical and hybrid search. Built from the products table once
+ * the application is ready and kept up to date by {@link SearchIndexUpdater} as product writes commit, so
+ * lexical queries never touch the database or the embedding API.
+ */
+@Service
+public class LexicalIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LexicalIndexService.class);
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    private final ProductRepository productRepository;
+
+    private volatile Bm25Index index = new Bm25Index();
+    private volatile boolean ready;
+
+    public LexicalIndexService(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2)
+    public void buildOnStartup() {
+        try {
+            rebuild();
+        } catch (DataAccessException e) {
+            logger.error("Could not build lexical index on startup: {}", e.getMessage());
+        }
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Bm25Index newIndex = new Bm25Index();
+
+        PageRequest pageRequest = PageRequest.of(0, REBUILD_PAGE_SIZE, Sort.by("id"));
+        Page<Product> page;
+        do {
+            page = productRepository.findAll(pageRequest);
+            for (Product product : page) {
+                add(newIndex, product);
+            }
+            pageRequest = pageRequest.next();
+        } while (page.hasNext());
+
+        index = newIndex;
+        ready = true;
+        logger.info("Lexical index built with {} products, {} terms, {} posting bytes in {} ms",
+                newIndex.size(), newIndex.terms(), newIndex.postingBytes(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<SearchHit> search(String query, int k, FilterBitmap filter) {
+        return index.search(query, k, filter);
+    }
+
+    public void index(Product product) {
+        if (product != null && product.getId() != null) {
+            add(index, product);
+        }
+    }
+
+    public void remove(Long productId) {
+        if (productId != null) {
+            index.remove(productId);
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public long[] ids() {
+        return index.ids();
+    }
+
+    private static void add(Bm25Index target, Product product) {
+        target.add(product.getId(), product.getName(), product.getDescription(), product.getCategory());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.backend.service;
+
+import com.example.backend.search.TextTokenizer;
+import com.example.backend.search.Vectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-process embedder for load tests, CI benchmarks and running without the remote API. Words, word
+ * bigrams and character trigrams are feature-hashed into {@code dimension} signed buckets, term counts are
+ * damped with {@code log1p} and the result is unit-normalised. It captures lexical overlap only, not
+ * meaning, but is deterministic and embeds tens of thousands of short texts per second per core.
+ */
+@Service
+@ConditionalOnProperty(name = "app.embedding.provider", havingValue = "local")
+public class LocalEmbeddingProvider implements EmbeddingProvider {
+
+    private static final float WORD_WEIGHT = 1f;
+    private static final float BIGRAM_WEIGHT = 0.5f;
+    private static final float TRIGRAM_WEIGHT = 0.25f;
+
+    private final int dimension;
+
+    public LocalEmbeddingProvider(@Value("${app.embedding.local.dimension:${app.search.embedding-store.dimension:3072}}") int dimension) {
+        if (dimension < 1) {
+            throw new IllegalArgumentException("dimension must be positive");
+        }
+        this.dimension = dimension;
+    }
+
+    @Override
+    public CompletableFuture<float[]> generateEmbedding(String text) {
+        return CompletableFuture.completedFuture(embed(text));
+    }
+
+    @Override
+    public CompletableFuture<List<float[]>> generateEmbeddings(List<String> texts) {
+        return CompletableFuture.completedFuture(texts.stream().map(this::embed).toList());
+    }
+
+    @Override
+    public String modelId() {
+        return "local-hashing-v1-" + dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    public float[] embed(String text) {
+        float[] vector = new float[dimension];
+        String previous = null;
+        for (String word : TextTokenizer.tokenize(text)) {
+            add(vector, hash(word, 0), WORD_WEIGHT);
+            if (previous != null) {
+                add(vector, hash(previous + ' ' + word, 1), BIGRAM_WEIGHT);
+            }
+            String padded = '#' + word + '#';
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                add(vector, hash(padded.substring(i, i + 3), 2), TRIGRAM_WEIGHT);
+            }
+            previous = word;
+        }
+
+        for (int i = 0; i < dimension; i++) {
+            float value = vector[i];
+            vector[i] = Math.copySign((float) Math.log1p(Math.abs(value)), value);
+        }
+        return Vectors.normalize(vector);
+    }
+
+    // The top bit picks the sign, so colliding features tend to cancel instead of piling up
+    private void add(float[] vector, long hash, float weight) {
+        int bucket = (int) ((hash & Long.MAX_VALUE) % dimension);
+        vector[bucket] += hash < 0 ? -weight : weight;
+    }
+
+    // FNV-1a over the UTF-16 chars, seeded per feature kind, with a final avalanche (murmur3 fmix64)
+    private static long hash(String feature, int seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < feature.length(); i++) {
+            h ^= feature.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Picks up rows other nodes wrote since the previous poll, on a daemon thread. Each read starts one overlap
+ * before the previous successful poll began: a row committed late carries a timestamp from before its commit,
+ * possibly from before that poll, and would otherwise be missed. Readers therefore see some rows twice. A read
+ * that fails is logged and the next poll starts from the same point.
+ */
+final class OverlappingPoller {
+
+    private static final Logger logger = LoggerFactory.getLogger(OverlappingPoller.class);
+
+    private final String threadName;
+    private final String description;
+    private volatile LocalDateTime polledUpTo;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param description what is polled, for the log
+     * @param pollFrom    where the first poll starts, before the overlap
+     */
+    OverlappingPoller(String threadName, String description, LocalDateTime pollFrom) {
+        this.threadName = threadName;
+        this.description = description;
+        this.polledUpTo = pollFrom;
+    }
+
+    /**
+     * Runs {@code task} every {@code interval} on this poller's thread, first one interval from now.
+     */
+    synchronized void schedule(Runnable task, Duration interval) {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        long millis = interval.toMillis();
+        executor.scheduleWithFixedDelay(task, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Calls {@code read} with the time to read from, {@code overlap} before the previous poll, and the time this
+     * poll started, which the next one starts from if the read succeeds.
+     */
+    void poll(Duration overlap, BiConsumer<LocalDateTime, LocalDateTime> read) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            read.accept(polledUpTo.minus(overlap), now);
+            polledUpTo = now;
+        } catch (DataAccessException e) {
+            logger.warn("Could not poll {}: {}", description, e.getMessage());
+        }
+    }
+}
@@ -1,15 +1,31 @@
 package com.example.backend.service;
 
 import com.example.backend.dto.ProductDto;
+import com.example.backend.dto.SemanticSearchRequest;
+import com.example.backend.dto.SemanticSearchResponse;
+import com.example.backend.entity.EmbeddingJob;
+import com.example.backend.entity.EmbeddingStatus;
 import com.example.backend.entity.Product;
 import com.example.backend.entity.User;
+import com.example.backend.event.ProductChangedEvent;
+import com.example.backend.exception.BadRequestException;
 import com.example.backend.exception.ResourceNotFoundException;
+import com.example.backend.repository.EmbeddingJobRepository;
+import com.example.backend.repository.ProductEmbeddingRepository;
 import com.example.backend.repository.ProductRepository;
 import com.example.backend.repository.UserRepository;
+import com.example.backend.search.FilterBitmap;
+import com.example.backend.search.RankFusion;
+import com.example.backend.search.SearchHit;
+import com.example.backend.search.SearchMode;
+import com.example.backend.search.Vectors;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
@@ -18,10 +34,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,19 +47,90 @@ import java.util.stream.Collectors;
 public class ProductService {
 
     @Autowired
-    private RapidApiEmbeddingService embeddingService;
+    private EmbeddingProvider embeddingProvider;
 
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
 
     @Value("${app.search.similarity-threshold:0.25}")
     private double similarityThreshold;
 
+    @Value("${app.search.mode:hnsw}")
+    private String defaultSearchMode;
+
+    @Value("${app.search.max-results:100}")
+    private int maxResults;
+
+    // 0 means every exact-search thread
+    @Value("${app.search.exact.parallelism:0}")
+    private int defaultParallelism;
+
+    // Candidates taken from each ranking before fusion
+    @Value("${app.search.hybrid.candidates:50}")
+    private int hybridCandidates;
+
+    @Value("${app.search.hybrid.rrf-k:60}")
+    private int rrfRankConstant;
+
+    // Filters matching fewer products than this are scored exactly instead of walking the HNSW graph
+    @Value("${app.search.filter.flat-search-cutoff:10000}")
+    private int flatSearchCutoff;
+
+    // Prefix-scan candidates re-scored on full vectors by two-stage search
+    @Value("${app.search.two-stage.rerank-depth:200}")
+    private int rerankDepth;
+
+    // Quantised-scan candidates re-scored on full vectors by quantised search
+    @Value("${app.search.quantization.rerank-depth:200}")
+    private int quantizedRerankDepth;
+
+    // Candidates ranked up front for paging, and the most a cursor can page through
+    @Value("${app.search.cursor.depth:100}")
+    private int cursorDepth;
+
+    @Value("${app.search.cursor.max-depth:1000}")
+    private int cursorMaxDepth;
+
+    private static final int DEFAULT_RESULTS = 10;
+
     private final ProductRepository productRepository;
+    private final ProductEmbeddingRepository productEmbeddingRepository;
     private final UserRepository userRepository;
-
-    public ProductService(ProductRepository productRepository, UserRepository userRepository) {
+    private final EmbeddingStore embeddingStore;
+    private final VectorIndexService vectorIndexService;
+    private final IvfPqIndexService ivfPqIndexService;
+    private final LexicalIndexService lexicalIndexService;
+    private final AttributeIndexService attributeIndexService;
+    private final SearchCursorService searchCursorService;
+    private final EmbeddingJobRepository embeddingJobRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter reembedsPerformed;
+    private final Counter reembedsSkipped;
+
+    public ProductService(ProductRepository productRepository, ProductEmbeddingRepository productEmbeddingRepository,
+                          UserRepository userRepository, EmbeddingStore embeddingStore,
+                          VectorIndexService vectorIndexService, IvfPqIndexService ivfPqIndexService,
+                          LexicalIndexService lexicalIndexService, AttributeIndexService attributeIndexService, SearchCursorService searchCursorService,
+                          EmbeddingJobRepository embeddingJobRepository, ApplicationEventPublisher eventPublisher,
+                          MeterRegistry meterRegistry) {
         this.productRepository = productRepository;
+        this.productEmbeddingRepository = productEmbeddingRepository;
         this.userRepository = userRepository;
+        this.embeddingStore = embeddingStore;
+        this.vectorIndexService = vectorIndexService;
+        this.ivfPqIndexService = ivfPqIndexService;
+        this.lexicalIndexService = lexicalIndexService;
+        this.attributeIndexService = attributeIndexService;
+        this.searchCursorService = searchCursorService;
+        this.embeddingJobRepository = embeddingJobRepository;
+        this.eventPublisher = eventPublisher;
+        this.reembedsPerformed = Counter.builder("embedding.reembeds")
+                .tag("outcome", "performed")
+                .description("Product updates that queued a new embedding")
+                .register(meterRegistry);
+        this.reembedsSkipped = Counter.builder("embedding.reembeds")
+                .tag("outcome", "skipped")
+                .description("Product updates whose embedded text was unchanged")
+                .register(meterRegistry);
     }
 
     @Transactional(readOnly = true)
@@ -133,7 +222,10 @@ public class ProductService {
                 .map(this::convertToProductDto);
     }
 
-    public ProductDto createProduct(ProductDto productDto) throws ExecutionException, InterruptedException {
+    /**
+     * Commits the product straight away with a PENDING embedding; {@link EmbeddingJobWorker} fills it in.
+     */
+    public ProductDto createProduct(ProductDto productDto) {
         logger.debug("Creating new product: {}", productDto.getName());
 
         Product product = new Product();
@@ -143,13 +235,7 @@ public class ProductService {
         product.setCategory(productDto.getCategory());
         product.setStockQuantity(productDto.getStockQuantity());
         product.setIsActive(true);
-
-        String textToEmbed = productDto.getName() + " " + productDto.getDescription();
-
-        // Generate embedding using RapidAPI
-        List<Double> embedding = embeddingService.generateEmbedding(textToEmbed).get(); // blocks for result
-
-        product.setEmbedding(embedding);
+        product.setEmbeddingStatus(EmbeddingStatus.PENDING);
 
         // Set created by current user
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -160,13 +246,14 @@ public class ProductService {
         }
 
         Product savedProduct = productRepository.save(product);
+        embeddingJobRepository.save(new EmbeddingJob(savedProduct.getId()));
+        eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Change.CREATED, savedProduct));
         logger.info("Product created successfully: {}", savedProduct.getName());
 
         return convertToProductDto(savedProduct);
     }
 
-    @Transactional
-    public List<ProductDto> createProducts(List<ProductDto> productDtos) throws ExecutionException, InterruptedException {
+    public List<ProductDto> createProducts(List<ProductDto> productDtos) {
         logger.debug("Starting bulk creation for {} products", productDtos.size());
 
         // 1. Get the current user once to reuse for all products
@@ -178,7 +265,6 @@ public class ProductService {
         }
 
         List<Product> productsToSave = new ArrayList<>();
-
         for (ProductDto dto : productDtos) {
             Product product = new Product();
             product.setName(dto.getName());
@@ -187,18 +273,18 @@ public class ProductService {
             product.setCategory(dto.getCategory());
             product.setStockQuantity(dto.getStockQuantity());
             product.setIsActive(true);
+            product.setEmbeddingStatus(EmbeddingStatus.PENDING);
             product.setCreatedBy(currentUser);
-
-            // 2. Generate embedding
-            String textToEmbed = dto.getName() + " " + dto.getDescription();
-            List<Double> embedding = embeddingService.generateEmbedding(textToEmbed).get();
-            product.setEmbedding(embedding);
-
             productsToSave.add(product);
         }
 
-        // 3. Save all at once
+        // 2. Save all at once; embeddings are generated in batches by EmbeddingJobWorker
         List<Product> savedProducts = productRepository.saveAll(productsToSave);
+        embeddingJobRepository.saveAll(savedProducts.stream()
+                .map(product -> new EmbeddingJob(product.getId()))
+                .collect(Collectors.toList()));
+        savedProducts.forEach(product ->
+                eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Change.CREATED, product)));
 
         return savedProducts.stream()
                 .map(this::convertToProductDto)
@@ -211,13 +297,36 @@ public class ProductService {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
 
+        String previousText = EmbeddingTexts.textOf(product);
+
         product.setName(productDto.getName());
         product.setDescription(productDto.getDescription());
         product.setPrice(productDto.getPrice());
         product.setCategory(productDto.getCategory());
         product.setStockQuantity(productDto.getStockQuantity());
 
+        // Re-embed only when the embedded text differs from the one the stored vector was computed from;
+        // a product still PENDING with unchanged text already has a job queued. Embeddings written before
+        // fingerprints existed have none, so for them only a change of text counts.
+        String text = EmbeddingTexts.textOf(product);
+        String fingerprint = EmbeddingTexts.fingerprint(text, embeddingProvider.modelId());
+        Optional<String> storedFingerprint = productEmbeddingRepository.findContentFingerprint(id);
+        boolean stale = storedFingerprint.isPresent() ? !fingerprint.equals(storedFingerprint.get())
+                : !text.equals(previousText) || !productEmbeddingRepository.existsById(id);
+        boolean queued = product.getEmbeddingStatus() == EmbeddingStatus.PENDING && text.equals(previousText);
+        boolean reembed = stale && !queued;
+        if (reembed) {
+            product.setEmbeddingStatus(EmbeddingStatus.PENDING);
+        }
+
         Product updatedProduct = productRepository.save(product);
+        if (reembed) {
+            embeddingJobRepository.save(new EmbeddingJob(updatedProduct.getId()));
+            reembedsPerformed.increment();
+        } else {
+            reembedsSkipped.increment();
+        }
+        eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Change.UPDATED, updatedProduct));
         logger.info("Product updated successfully: {}", updatedProduct.getName());
 
         return convertToProductDto(updatedProduct);
@@ -234,6 +343,7 @@ public class ProductService {
         //logger.info("Product deactivated successfully: {}", product.getName());
 
         productRepository.delete(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Change.DELETED, product));
         logger.info("Product deleted successfully: {}", product.getName());
     }
 
@@ -245,45 +355,223 @@ public class ProductService {
 
         product.setIsActive(true);
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Change.ACTIVE_CHANGED, product));
 
         logger.info("Product restored successfully: {}", product.getName());
     }
 
     public List<ProductDto> semanticSearch(String query) throws ExecutionException, InterruptedException {
+        return semanticSearch(query, null);
+    }
+
+    public List<ProductDto> semanticSearch(String query, String mode) throws ExecutionException, InterruptedException {
+        return semanticSearch(new SemanticSearchRequest(query, mode));
+    }
+
+    public List<ProductDto> semanticSearch(SemanticSearchRequest request) throws ExecutionException, InterruptedException {
+        int k = resultCount(request);
+        FilterBitmap filter = filter(request);
+
         // Get embedding for the search query
-        List<Double> queryEmbedding = embeddingService.generateEmbedding(query).get();
-
-        // Get all products with embeddings
-        List<Product> productsWithEmbeddings = productRepository.findByEmbeddingIsNotNull();
-
-//        for (Product p : productsWithEmbeddings) {
-//            double sim = cosineSimilarity(queryEmbedding, p.getEmbedding());
-//            System.out.printf("%s -> %.4f%n", p.getName(), sim);
-//        }
-
-        // Compute cosine similarity (simple, in-memory version for demo)
-        // For large datasets, use pgvector extension or a vector DB for fast search!
-        //double SIMILARITY_THRESHOLD = 0.25;
-        return productsWithEmbeddings.stream()
-                .map(p -> new AbstractMap.SimpleEntry<>(p, cosineSimilarity(queryEmbedding, p.getEmbedding())))
-                .filter(entry -> entry.getValue() >= similarityThreshold) // Only keep high matches
-                .sorted((e1, e2) -> Double.compare(e2.getValue(), e1.getValue()))
-                .limit(10)
-                .map(e -> convertToProductDto(e.getKey()))
+        float[] queryEmbedding = embeddingProvider.generateEmbedding(request.getQuery()).get();
+        return loadRanked(vectorSearch(queryEmbedding, request, k, filter), request);
+    }
+
+    /**
+     * One page of semantic search results. The first request embeds the query and ranks
+     * {@code app.search.cursor.depth} candidates into a result handle; pages requested with the returned
+     * cursor are sliced from it without another embedding call. Paging past the ranked candidates re-scores
+     * the stored query vector with twice the depth, up to {@code app.search.cursor.max-depth}. A cursor whose
+     * handle is not on this node is ranked again from the request it carries, deep enough for its page.
+     */
+    public SemanticSearchResponse semanticSearchPage(SemanticSearchRequest request)
+            throws ExecutionException, InterruptedException {
+        int k = resultCount(request);
+        String owner = currentUsername();
+
+        String handleId;
+        SearchCursorService.Handle handle;
+        int offset;
+        if (request.getCursor() != null) {
+            SearchCursorService.Position position = searchCursorService.resolve(request.getCursor(), owner);
+            handleId = position.id();
+            offset = position.offset();
+            handle = position.handle();
+            if (handle == null) {
+                int depth = Math.min(cursorMaxDepth, Math.max(offset + k, cursorDepth));
+                handle = rankForCursor(owner, position.request(), depth);
+                searchCursorService.update(handleId, handle);
+            }
+        } else {
+            handle = rankForCursor(owner, request, Math.max(k, cursorDepth));
+            handleId = searchCursorService.open(handle);
+            offset = 0;
+        }
+
+        if (offset + k > handle.hits().size() && !handle.exhausted()) {
+            int depth = Math.min(cursorMaxDepth, Math.max(offset + k, handle.hits().size() * 2));
+            List<SearchHit> hits = vectorSearch(handle.queryVector(), handle.request(), depth, filter(handle.request()));
+            handle = new SearchCursorService.Handle(owner, handle.request(), handle.queryVector(), hits,
+                    hits.size() < depth || depth == cursorMaxDepth);
+            searchCursorService.update(handleId, handle);
+        }
+
+        List<SearchHit> hits = handle.hits();
+        int end = Math.min(offset + k, hits.size());
+        List<SearchHit> page = offset < end ? hits.subList(offset, end) : List.of();
+        String nextCursor = end < hits.size() || !handle.exhausted() && !page.isEmpty()
+                ? searchCursorService.cursor(handleId, handle, end) : null;
+        return new SemanticSearchResponse(loadRanked(page, handle.request()), nextCursor);
+    }
+
+    private SearchCursorService.Handle rankForCursor(String owner, SemanticSearchRequest request, int depth)
+            throws ExecutionException, InterruptedException {
+        float[] queryEmbedding = embeddingProvider.generateEmbedding(request.getQuery()).get();
+        List<SearchHit> hits = vectorSearch(queryEmbedding, request, depth, filter(request));
+        return new SearchCursorService.Handle(owner, request, queryEmbedding, hits,
+                hits.size() < depth || depth >= cursorMaxDepth);
+    }
+
+    /**
+     * BM25 over name, description and category from the in-memory index; no embedding API call.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductDto> lexicalSearch(SemanticSearchRequest request) {
+        int k = resultCount(request);
+        return loadRanked(lexicalIndexService.search(request.getQuery(), k, filter(request)), request);
+    }
+
+    /**
+     * Fuses the BM25 and vector rankings with reciprocal rank fusion. If the embedding API fails the
+     * lexical ranking is returned on its own.
+     */
+    public List<ProductDto> hybridSearch(SemanticSearchRequest request) throws InterruptedException {
+        int k = resultCount(request);
+        int candidates = Math.max(k, hybridCandidates);
+        FilterBitmap filter = filter(request);
+
+        List<SearchHit> lexical = lexicalIndexService.search(request.getQuery(), candidates, filter);
+        List<SearchHit> vector;
+        try {
+            float[] queryEmbedding = embeddingProvider.generateEmbedding(request.getQuery()).get();
+            vector = vectorSearch(queryEmbedding, request, candidates, filter);
+        } catch (ExecutionException e) {
+            logger.warn("Embedding failed for hybrid search, returning lexical results only: {}", e.getMessage());
+            vector = List.of();
+        }
+        return loadRanked(RankFusion.reciprocalRank(List.of(lexical, vector), k, rrfRankConstant), request);
+    }
+
+    private int resultCount(SemanticSearchRequest request) {
+        int k = request.getK() != null ? request.getK() : DEFAULT_RESULTS;
+        if (k < 1 || k > maxResults) {
+            throw new BadRequestException("k must be between 1 and " + maxResults);
+        }
+        if (request.getParallelism() != null && request.getParallelism() < 1) {
+            throw new BadRequestException("parallelism must be at least 1");
+        }
+        if (request.getMinPrice() != null && request.getMaxPrice() != null
+                && request.getMinPrice().compareTo(request.getMaxPrice()) > 0) {
+            throw new BadRequestException("minPrice must not be greater than maxPrice");
+        }
+        return k;
+    }
+
+    // Null while the attribute index is being built; loadRanked still applies the filters then
+    private FilterBitmap filter(SemanticSearchRequest request) {
+        return attributeIndexService.filter(request.getCategory(), request.getMinPrice(), request.getMaxPrice(),
+                request.getInStock());
+    }
+
+    private List<SearchHit> vectorSearch(float[] queryEmbedding, SemanticSearchRequest request, int k,
+                                         FilterBitmap filter) {
+        SearchMode searchMode = SearchMode.from(request.getMode(), SearchMode.from(defaultSearchMode, SearchMode.HNSW));
+        double threshold = request.getThreshold() != null ? request.getThreshold() : similarityThreshold;
+        if (filter != null && filter.cardinality() == 0) {
+            return List.of();
+        }
+        if (searchMode == SearchMode.DATABASE) {
+            return databaseSearch(queryEmbedding, request, k, threshold);
+        }
+
+        // A selective filter leaves too few accepted nodes for the graph walk; scoring them directly is cheaper
+        boolean selective = filter != null && filter.cardinality() < flatSearchCutoff;
+        if (searchMode == SearchMode.TWO_STAGE && embeddingStore.isTwoStageReady() && !selective) {
+            return embeddingStore.searchTwoStage(queryEmbedding, k, threshold, rerankDepth, filter);
+        }
+        if (searchMode == SearchMode.QUANTIZED && embeddingStore.isQuantizedReady() && !selective) {
+            return embeddingStore.searchQuantized(queryEmbedding, k, threshold, quantizedRerankDepth, filter);
+        }
+        if (searchMode == SearchMode.IVF_PQ && ivfPqIndexService.isReady() && !selective) {
+            return ivfPqIndexService.search(queryEmbedding, k, threshold, filter);
+        }
+        if (searchMode == SearchMode.HNSW && vectorIndexService.isReady() && !(selective && embeddingStore.isReady())) {
+            return vectorIndexService.search(queryEmbedding, k, threshold, filter);
+        }
+        if (embeddingStore.isReady()) {
+            int parallelism = request.getParallelism() != null ? request.getParallelism()
+                    : defaultParallelism > 0 ? defaultParallelism : embeddingStore.maxParallelism();
+            return embeddingStore.search(queryEmbedding, k, threshold, parallelism, filter);
+        }
+        return databaseSearch(queryEmbedding, request, k, threshold);
+    }
+
+    // Loads only the matched products, in ranking order
+    private List<ProductDto> loadRanked(List<SearchHit> hits, SemanticSearchRequest request) {
+        Map<Long, Product> productsById = productRepository.findAllById(
+                        hits.stream().map(SearchHit::id).collect(Collectors.toList())).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        // Skip ids deleted or changed since the indexes were last updated
+        return hits.stream()
+                .map(hit -> productsById.get(hit.id()))
+                .filter(product -> product != null && matchesFilters(product, request))
+                .map(this::convertToProductDto)
                 .collect(Collectors.toList());
     }
 
-    // Computes cosine similarity between two vectors
-    private double cosineSimilarity(List<Double> v1, List<Double> v2) {
-        double dot = 0, norm1 = 0, norm2 = 0;
-        for (int i = 0; i < v1.size(); i++) {
-            dot += v1.get(i) * v2.get(i);
-            norm1 += v1.get(i) * v1.get(i);
-            norm2 += v2.get(i) * v2.get(i);
+    /**
+     * Ranks in PostgreSQL: the query vector goes out and only the top {@code k} ids and scores come back,
+     * instead of every stored embedding. Also the fallback while the embedding store is unavailable.
+     * Filters are applied in SQL rather than from the attribute bitmaps.
+     */
+    private List<SearchHit> databaseSearch(float[] queryEmbedding, SemanticSearchRequest request, int k,
+                                           double threshold) {
+        List<Object[]> rows = productEmbeddingRepository.findTopKByDotProduct(
+                arrayLiteral(Vectors.normalize(queryEmbedding)), k, threshold, request.getCategory(),
+                request.getMinPrice(), request.getMaxPrice(), Boolean.TRUE.equals(request.getInStock()));
+        List<SearchHit> hits = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            hits.add(new SearchHit(((Number) row[0]).longValue(), ((Number) row[1]).doubleValue()));
+        }
+        return hits;
+    }
+
+    // PostgreSQL array literal, e.g. {0.25,-1.5E-4}
+    private static String arrayLiteral(float[] vector) {
+        StringBuilder literal = new StringBuilder(vector.length * 12).append('{');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                literal.append(',');
+            }
+            literal.append(vector[i]);
         }
-        return dot / (Math.sqrt(norm1) * Math.sqrt(norm2));
+        return literal.append('}').toString();
     }
 
+    private static String currentUsername() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.isAuthenticated() ? auth.getName() : "";
+    }
+
+    private static boolean matchesFilters(Product product, SemanticSearchRequest request) {
+        return Boolean.TRUE.equals(product.getIsActive())
+                && (request.getCategory() == null || request.getCategory().equals(product.getCategory()))
+                && (request.getMinPrice() == null || product.getPrice().compareTo(request.getMinPrice()) >= 0)
+                && (request.getMaxPrice() == null || product.getPrice().compareTo(request.getMaxPrice()) <= 0)
+                && (!Boolean.TRUE.equals(request.getInStock())
+                    || product.getStockQuantity() != null && product.getStockQuantity() > 0);
+    }
 
     private ProductDto convertToProductDto(Product product) {
         return new ProductDto(
@@ -296,7 +584,8 @@ public class ProductService {
                 product.getIsActive(),
                 product.getCreatedAt(),
                 product.getUpdatedAt(),
-                product.getCreatedBy() != null ? product.getCreatedBy().getUsername() : null
+                product.getCreatedBy() != null ? product.getCreatedBy().getUsername() : null,
+                product.getEmbeddingStatus() != null ? product.getEmbeddingStatus().name() : null
         );
     }
 }
\ No newline at end of file
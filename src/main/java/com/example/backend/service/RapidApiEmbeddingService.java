@@ -1,60 +1,265 @@
 package com.example.backend.service;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.asynchttpclient.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
+/**
+ * Embeddings from the RapidAPI OpenAI endpoint, behind a bounded cache keyed by normalised text.
+ * Concurrent requests for the same text share one outstanding call; failed calls are not cached.
+ * {@link #generateEmbeddings(List)} packs many texts into array-{@code input} requests.
+ */
 @Service
-public class RapidApiEmbeddingService {
+@ConditionalOnProperty(name = "app.embedding.provider", havingValue = "rapidapi", matchIfMissing = true)
+public class RapidApiEmbeddingService implements EmbeddingProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(RapidApiEmbeddingService.class);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
     @Value("${rapidapi.key}")
     private String rapidApiKey;
 
-    private static final String RAPIDAPI_HOST = "openai-embedding-v3-large.p.rapidapi.com";
-    private static final String EMBEDDING_URL = "https://" + RAPIDAPI_HOST + "/embeddings";
+    @Value("${rapidapi.host:openai-embedding-v3-large.p.rapidapi.com}")
+    private String rapidApiHost;
+
+    @Value("${rapidapi.model:text-embedding-3-large}")
+    private String model;
+
+    @Value("${rapidapi.dimension:3072}")
+    private int dimension;
+
+    // Texts per request, estimated tokens per request and requests in flight for batch calls
+    @Value("${rapidapi.batch.max-size:64}")
+    private int batchMaxSize;
+
+    @Value("${rapidapi.batch.max-tokens:60000}")
+    private int batchMaxTokens;
+
+    @Value("${rapidapi.batch.concurrency:4}")
+    private int batchConcurrency;
 
     private final AsyncHttpClient client;
+    private final AsyncCache<String, float[]> cache;
+    private final Counter apiCalls;
+    private final Counter savedCalls;
 
-    public RapidApiEmbeddingService() {
+    public RapidApiEmbeddingService(MeterRegistry meterRegistry,
+                                    @Value("${rapidapi.cache.max-size:10000}") long cacheMaxSize,
+                                    @Value("${rapidapi.cache.ttl:24h}") Duration cacheTtl) {
         this.client = new DefaultAsyncHttpClient();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "embeddings");
+        this.apiCalls = Counter.builder("embedding.api.calls")
+                .description("Embedding requests sent to the RapidAPI endpoint")
+                .register(meterRegistry);
+        this.savedCalls = Counter.builder("embedding.api.calls.saved")
+                .description("Embedding requests answered from the cache or by joining an in-flight call")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the embedding of {@code inputText}. Texts that differ only in case, Unicode form or
+     * whitespace share an entry, so they get the embedding of whichever spelling was requested first.
+     * The returned array is a copy and may be modified by the caller.
+     */
+    @Override
+    public CompletableFuture<float[]> generateEmbedding(String inputText) {
+        boolean[] loaded = new boolean[1];
+        CompletableFuture<float[]> embedding = cache.get(cacheKey(inputText), (key, executor) -> {
+            loaded[0] = true;
+            apiCalls.increment();
+            return fetchEmbedding(inputText);
+        });
+        if (!loaded[0]) {
+            savedCalls.increment();
+        }
+        return embedding.thenApply(float[]::clone);
     }
 
-    public CompletableFuture<List<Double>> generateEmbedding(String inputText) {
-        String requestBody = String.format(
-                "{\"input\":\"%s\", \"model\":\"text-embedding-3-large\", \"encoding_format\":\"float\"}",
-                inputText.replace("\"", "\\\"")
-        );
+    /**
+     * Returns the embeddings of {@code texts}, in order. Texts already cached or in flight are not sent
+     * again; the rest are packed into requests of at most {@code rapidapi.batch.max-size} texts and
+     * {@code rapidapi.batch.max-tokens} estimated tokens, with {@code rapidapi.batch.concurrency} of them
+     * running at once. The returned arrays are copies.
+     */
+    @Override
+    public CompletableFuture<List<float[]>> generateEmbeddings(List<String> texts) {
+        List<CompletableFuture<float[]>> embeddings = new ArrayList<>(texts.size());
+        List<String> toFetch = new ArrayList<>();
+        List<CompletableFuture<float[]>> toComplete = new ArrayList<>();
 
-        return client.prepare("POST", EMBEDDING_URL)
+        // Looked up one by one, so hits, including repeats within the batch, reach the cache statistics
+        for (String text : texts) {
+            embeddings.add(cache.get(cacheKey(text), (key, executor) -> {
+                CompletableFuture<float[]> created = new CompletableFuture<>();
+                toFetch.add(text);
+                toComplete.add(created);
+                return created;
+            }));
+        }
+        savedCalls.increment(texts.size() - toFetch.size());
+
+        fetchInBatches(toFetch, toComplete);
+        return CompletableFuture.allOf(embeddings.toArray(CompletableFuture[]::new))
+                .thenApply(v -> embeddings.stream().map(e -> e.join().clone()).toList());
+    }
+
+    protected CompletableFuture<float[]> fetchEmbedding(String inputText) {
+        return fetchEmbeddings(List.of(inputText)).thenApply(embeddings -> embeddings.get(0));
+    }
+
+    protected CompletableFuture<List<float[]>> fetchEmbeddings(List<String> inputs) {
+        byte[] requestBody;
+        try {
+            requestBody = requestBody(inputs);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return client.prepare("POST", "https://" + rapidApiHost + "/embeddings")
                 .setHeader("x-rapidapi-key", rapidApiKey)
-                .setHeader("x-rapidapi-host", RAPIDAPI_HOST)
+                .setHeader("x-rapidapi-host", rapidApiHost)
                 .setHeader("Content-Type", "application/json")
                 .setBody(requestBody)
                 .execute()
                 .toCompletableFuture()
                 .thenApply(response -> {
                     try {
-                        // Parse JSON response to extract the embedding vector array
-                        var mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-                        Map<?, ?> jsonResponse = mapper.readValue(response.getResponseBody(), Map.class);
-                        List<Map<String, Object>> data = (List<Map<String, Object>>) jsonResponse.get("data");
-                        return (List<Double>) data.get(0).get("embedding");
+                        // Stream the embedding vector arrays straight into float[]s
+                        return Arrays.asList(EmbeddingResponseParser.parseAll(response.getResponseBodyAsBytes(), inputs.size()));
                     } catch (IOException e) {
                         logger.error("Error parsing embedding response", e);
-                        throw new RuntimeException(e);
+                        throw new UncheckedIOException(e);
                     }
                 });
     }
 
+    /**
+     * Sends the batches from {@code concurrency} lanes; each lane starts its next batch when the previous
+     * one finishes. A failed batch fails only its own texts.
+     */
+    private void fetchInBatches(List<String> texts, List<CompletableFuture<float[]>> targets) {
+        List<int[]> batches = pack(texts);
+        AtomicInteger next = new AtomicInteger();
+        int lanes = Math.min(Math.max(1, batchConcurrency), batches.size());
+        for (int i = 0; i < lanes; i++) {
+            runLane(batches, next, texts, targets);
+        }
+    }
+
+    private void runLane(List<int[]> batches, AtomicInteger next, List<String> texts,
+                         List<CompletableFuture<float[]>> targets) {
+        int batch = next.getAndIncrement();
+        if (batch >= batches.size()) {
+            return;
+        }
+        int from = batches.get(batch)[0];
+        int to = batches.get(batch)[1];
+        apiCalls.increment();
+
+        CompletableFuture<List<float[]>> call;
+        try {
+            call = fetchEmbeddings(texts.subList(from, to));
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((embeddings, error) -> {
+            for (int i = from; i < to; i++) {
+                if (error != null) {
+                    targets.get(i).completeExceptionally(error);
+                } else {
+                    targets.get(i).complete(embeddings.get(i - from));
+                }
+            }
+            runLane(batches, next, texts, targets);
+        });
+    }
+
+    // Greedy packing into [from, to) ranges; a single text over the token budget gets a request of its own
+    private List<int[]> pack(List<String> texts) {
+        List<int[]> batches = new ArrayList<>();
+        int from = 0;
+        int tokens = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            int textTokens = estimateTokens(texts.get(i));
+            if (i > from && (i - from == batchMaxSize || tokens + textTokens > batchMaxTokens)) {
+                batches.add(new int[]{from, i});
+                from = i;
+                tokens = 0;
+            }
+            tokens += textTokens;
+        }
+        if (from < texts.size()) {
+            batches.add(new int[]{from, texts.size()});
+        }
+        return batches;
+    }
+
+    // Roughly four characters per token for English text with the cl100k tokenizer
+    static int estimateTokens(String text) {
+        return text.length() / 4 + 1;
+    }
+
+    private byte[] requestBody(List<String> inputs) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(body)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("input");
+            for (String input : inputs) {
+                json.writeString(input);
+            }
+            json.writeEndArray();
+            json.writeStringField("model", model);
+            json.writeStringField("encoding_format", "float");
+            json.writeEndObject();
+        }
+        return body.toByteArray();
+    }
+
+    @Override
+    public String modelId() {
+        return model;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    static String cacheKey(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(normalized.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
     public void close() throws IOException {
         client.close();
     }
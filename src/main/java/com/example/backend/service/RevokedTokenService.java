@@ -0,0 +1,133 @@
+package com.example.backend.service;
+
+import com.example.backend.config.JwtConfig;
+import com.example.backend.entity.RevokedToken;
+import com.example.backend.repository.RevokedTokenRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked refresh token ids ({@code jti}), persisted in {@code revoked_tokens} and mirrored in memory so a
+ * check never touches the database: a Bloom filter answers most lookups, which are for ids never revoked,
+ * and an exact map of id to expiry confirms its rare positives. The mirror is loaded on startup, picks up
+ * other nodes' revocations every {@code jwt.revocation-poll-interval}, and drops ids, in memory and in the
+ * table, once their token has expired. The filter is rebuilt without them, and with room to spare once the
+ * live ids outgrow {@code jwt.revoked-tokens.expected}.
+ */
+@Service
+public class RevokedTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevokedTokenService.class);
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final Duration refreshTokenLifetime;
+    private final int expectedRevocations;
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+
+    @Value("${jwt.revocation-poll-interval:30s}")
+    private Duration pollInterval;
+
+    private final OverlappingPoller poller;
+
+    public RevokedTokenService(RevokedTokenRepository revokedTokenRepository, JwtConfig jwtConfig,
+                               @Value("${jwt.revoked-tokens.expected:100000}") int expectedRevocations) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.refreshTokenLifetime = Duration.ofMillis(jwtConfig.getRefreshExpiration());
+        this.expectedRevocations = expectedRevocations;
+        this.filter = new BloomFilter(expectedRevocations, FALSE_POSITIVE_RATE);
+        this.poller = new OverlappingPoller("revoked-token-poll", "revoked tokens",
+                LocalDateTime.now().minus(refreshTokenLifetime));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        poll();
+        poller.schedule(this::poll, pollInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        poller.stop();
+    }
+
+    /**
+     * Revokes {@code jti} in the caller's transaction. This node remembers it once that transaction commits,
+     * so a revocation that is rolled back is never remembered; without a transaction it does so at once.
+     *
+     * @return {@code false} if the id had already been revoked, here or on another node
+     */
+    public boolean revoke(String jti, String username, Instant expiresAt, RevokedToken.Reason reason) {
+        int inserted = revokedTokenRepository.insertIfAbsent(jti, username, reason.name(),
+                LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()), LocalDateTime.now());
+        AfterCommit.run(() -> remember(jti, expiresAt));
+        return inserted > 0;
+    }
+
+    public boolean isRevoked(String jti) {
+        return filter.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    void poll() {
+        poller.poll(pollInterval, (since, now) -> {
+            List<Object[]> rows = revokedTokenRepository.findRevokedSince(since, now);
+            for (Object[] row : rows) {
+                remember((String) row[0], ((LocalDateTime) row[1]).atZone(ZoneId.systemDefault()).toInstant());
+            }
+        });
+        prune(Instant.now());
+    }
+
+    void prune(Instant now) {
+        boolean expired;
+        synchronized (this) {
+            expired = revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+            if (expired) {
+                rebuild();
+            }
+        }
+        if (expired) {
+            try {
+                revokedTokenRepository.deleteExpired(LocalDateTime.ofInstant(now, ZoneId.systemDefault()));
+            } catch (DataAccessException e) {
+                logger.warn("Could not delete expired revoked tokens: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Writers are serialised so an id added while the filter is rebuilt is not lost; readers never lock
+    private synchronized void remember(String jti, Instant expiresAt) {
+        if (revoked.put(jti, expiresAt) == null) {
+            if (revoked.size() > filter.capacity()) {
+                rebuild();
+            } else {
+                filter.add(jti);
+            }
+        }
+    }
+
+    private void rebuild() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, 2 * revoked.size()), FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(rebuilt::add);
+        filter = rebuilt;
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Product;
+import com.example.backend.entity.ProductEmbedding;
+import com.example.backend.repository.ProductEmbeddingRepository;
+import com.example.backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Compares the ids held by each in-memory search structure with the database: products for the BM25 and
+ * attribute indexes (and the active flag for the latter), {@code product_embeddings} for the embedding store
+ * and the HNSW graph. Ids are read with keyset walks over the primary keys. The vectors of the embedding store
+ * and the HNSW graph are also compared with the stored embeddings, read in pages as a rebuild reads them, so an
+ * outdated vector is reported too. The BM25 and attribute indexes keep no version of the products they were
+ * built from, so a document indexed from an earlier version of a product is not detected; their drift reports
+ * {@code contentChecked = false}, and a rebuild of those indexes replaces such documents.
+ * <p>
+ * Writes committed while a check runs can show up as drift. A repair therefore re-reads every reported id
+ * and applies what the database holds now, re-indexing rows that exist and removing ids that do not.
+ */
+@Service
+public class SearchConsistencyChecker {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchConsistencyChecker.class);
+    private static final int ID_PAGE_SIZE = 10_000;
+    private static final int REPAIR_BATCH_SIZE = 500;
+    private static final int EMBEDDING_PAGE_SIZE = 500;
+    private static final int SAMPLE_SIZE = 20;
+
+    private final ProductRepository productRepository;
+    private final ProductEmbeddingRepository productEmbeddingRepository;
+    private final EmbeddingStore embeddingStore;
+    private final VectorIndexService vectorIndexService;
+    private final LexicalIndexService lexicalIndexService;
+    private final AttributeIndexService attributeIndexService;
+    private final SearchIndexUpdater searchIndexUpdater;
+
+    public SearchConsistencyChecker(ProductRepository productRepository,
+                                    ProductEmbeddingRepository productEmbeddingRepository,
+                                    EmbeddingStore embeddingStore, VectorIndexService vectorIndexService,
+                                    LexicalIndexService lexicalIndexService,
+                                    AttributeIndexService attributeIndexService,
+                                    SearchIndexUpdater searchIndexUpdater) {
+        this.productRepository = productRepository;
+        this.productEmbeddingRepository = productEmbeddingRepository;
+        this.embeddingStore = embeddingStore;
+        this.vectorIndexService = vectorIndexService;
+        this.lexicalIndexService = lexicalIndexService;
+        this.attributeIndexService = attributeIndexService;
+        this.searchIndexUpdater = searchIndexUpdater;
+    }
+
+    /**
+     * Reports the drift of every structure that is built; with {@code repair} also fixes it.
+     */
+    public Report check(boolean repair) {
+        long start = System.currentTimeMillis();
+        LongStream.Builder productIds = LongStream.builder();
+        LongStream.Builder activeIds = LongStream.builder();
+        long afterId = 0;
+        List<Object[]> page;
+        do {
+            page = productRepository.findIdsAndActiveAfter(afterId, PageRequest.of(0, ID_PAGE_SIZE));
+            for (Object[] row : page) {
+                afterId = (Long) row[0];
+                productIds.add(afterId);
+                if (Boolean.TRUE.equals(row[1])) {
+                    activeIds.add(afterId);
+                }
+            }
+        } while (page.size() == ID_PAGE_SIZE);
+        long[] products = productIds.build().toArray();
+        long[] active = activeIds.build().toArray();
+
+        LongStream.Builder embeddingIds = LongStream.builder();
+        afterId = 0;
+        List<Long> ids;
+        do {
+            ids = productEmbeddingRepository.findProductIdsAfter(afterId, PageRequest.of(0, ID_PAGE_SIZE));
+            for (Long id : ids) {
+                embeddingIds.add(id);
+                afterId = id;
+            }
+        } while (ids.size() == ID_PAGE_SIZE);
+        long[] embeddings = embeddingIds.build().toArray();
+
+        Map<String, Diff> diffs = new LinkedHashMap<>();
+        if (lexicalIndexService.isReady()) {
+            diffs.put("lexical", Diff.of(products, lexicalIndexService.ids()));
+        }
+        if (attributeIndexService.isReady()) {
+            diffs.put("attributes", Diff.of(products, attributeIndexService.ids()));
+            diffs.put("attributes-active", Diff.of(active, attributeIndexService.activeIds()));
+        }
+        long[] storeIds = embeddingStore.isReady() ? embeddingStore.ids() : null;
+        long[] hnswIds = vectorIndexService.isReady() ? vectorIndexService.ids() : null;
+        if (storeIds != null || hnswIds != null) {
+            OutdatedVectors outdated = findOutdatedVectors(storeIds, hnswIds);
+            if (storeIds != null) {
+                diffs.put("embedding-store", Diff.of(embeddings, storeIds, outdated.store()));
+            }
+            if (hnswIds != null) {
+                diffs.put("hnsw", Diff.of(embeddings, hnswIds, outdated.hnsw()));
+            }
+        }
+
+        List<Drift> drifts = new ArrayList<>();
+        diffs.forEach((structure, diff) -> drifts.add(new Drift(structure, diff.expected(), diff.indexed(),
+                diff.missing().length, diff.stale().length, diff.outdated().length, diff.contentChecked(),
+                sample(diff.missing()), sample(diff.stale()), sample(diff.outdated()))));
+        boolean consistent = drifts.stream().allMatch(Drift::consistent);
+        if (!consistent) {
+            logger.warn("Search indexes drifted from the database: {}", drifts);
+        }
+
+        int repaired = 0;
+        if (repair) {
+            repaired = repairProducts(driftedIds(diffs, "lexical", "attributes", "attributes-active"))
+                    + repairEmbeddings(driftedIds(diffs, "embedding-store", "hnsw"));
+            logger.info("Repaired {} drifted ids in the search indexes", repaired);
+        }
+        return new Report(consistent, drifts, repaired, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Ids whose stored embedding differs from the vector held by the embedding store or the HNSW graph. Ids a
+     * structure does not hold at all ({@code null} for one that is not built) are left to the id comparison.
+     */
+    private OutdatedVectors findOutdatedVectors(long[] storeIds, long[] hnswIds) {
+        LongStream.Builder store = LongStream.builder();
+        LongStream.Builder hnsw = LongStream.builder();
+        PageRequest pageRequest = PageRequest.of(0, EMBEDDING_PAGE_SIZE, Sort.by("productId"));
+        Page<ProductEmbedding> page;
+        do {
+            page = productEmbeddingRepository.findAll(pageRequest);
+            for (ProductEmbedding embedding : page) {
+                long id = embedding.getProductId();
+                if (storeIds != null && Arrays.binarySearch(storeIds, id) >= 0
+                        && !embeddingStore.holds(id, embedding.getEmbedding())) {
+                    store.add(id);
+                }
+                if (hnswIds != null && Arrays.binarySearch(hnswIds, id) >= 0
+                        && !vectorIndexService.holds(id, embedding.getEmbedding())) {
+                    hnsw.add(id);
+                }
+            }
+            pageRequest = pageRequest.next();
+        } while (page.hasNext());
+        return new OutdatedVectors(store.build().toArray(), hnsw.build().toArray());
+    }
+
+    private int repairProducts(long[] ids) {
+        for (int from = 0; from < ids.length; from += REPAIR_BATCH_SIZE) {
+            List<Long> batch = boxed(ids, from);
+            Map<Long, Product> found = new HashMap<>();
+            productRepository.findAllById(batch).forEach(product -> found.put(product.getId(), product));
+            for (Long id : batch) {
+                Product product = found.get(id);
+                if (product != null) {
+                    searchIndexUpdater.applyProduct(product);
+                } else {
+                    searchIndexUpdater.removeProduct(id);
+                }
+            }
+        }
+        return ids.length;
+    }
+
+    private int repairEmbeddings(long[] ids) {
+        for (int from = 0; from < ids.length; from += REPAIR_BATCH_SIZE) {
+            List<Long> batch = boxed(ids, from);
+            Map<Long, ProductEmbedding> found = new HashMap<>();
+            productEmbeddingRepository.findAllById(batch)
+                    .forEach(embedding -> found.put(embedding.getProductId(), embedding));
+            for (Long id : batch) {
+                ProductEmbedding embedding = found.get(id);
+                if (embedding != null) {
+                    searchIndexUpdater.applyEmbedding(embedding);
+                } else {
+                    searchIndexUpdater.removeEmbedding(id);
+                }
+            }
+        }
+        return ids.length;
+    }
+
+    private static long[] driftedIds(Map<String, Diff> diffs, String... structures) {
+        return Arrays.stream(structures)
+                .map(diffs::get)
+                .filter(Objects::nonNull)
+                .flatMap(diff -> Stream.of(diff.missing(), diff.stale(), diff.outdated()))
+                .flatMapToLong(Arrays::stream)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    private static List<Long> sample(long[] ids) {
+        return Arrays.stream(ids, 0, Math.min(SAMPLE_SIZE, ids.length)).boxed().toList();
+    }
+
+    private static List<Long> boxed(long[] ids, int from) {
+        return Arrays.stream(ids, from, Math.min(from + REPAIR_BATCH_SIZE, ids.length)).boxed().toList();
+    }
+
+    public record Report(boolean consistent, List<Drift> structures, int repaired, long millis) {
+    }
+
+    /**
+     * How far one structure is from the database: how many ids it lacks, how many it should no longer hold and,
+     * where {@code contentChecked}, how many it holds with outdated content, with a few examples of each.
+     */
+    public record Drift(String structure, int expected, int indexed, int missing, int stale, int outdated,
+                        boolean contentChecked, List<Long> missingSample, List<Long> staleSample,
+                        List<Long> outdatedSample) {
+
+        public boolean consistent() {
+            return missing == 0 && stale == 0 && outdated == 0;
+        }
+    }
+
+    private record OutdatedVectors(long[] store, long[] hnsw) {
+    }
+
+    private record Diff(int expected, int indexed, long[] missing, long[] stale, long[] outdated,
+                        boolean contentChecked) {
+
+        static Diff of(long[] expected, long[] indexed) {
+            return of(expected, indexed, null);
+        }
+
+        // Merges two ascending id arrays; outdated is null where content is not compared
+        static Diff of(long[] expected, long[] indexed, long[] outdated) {
+            LongStream.Builder missing = LongStream.builder();
+            LongStream.Builder stale = LongStream.builder();
+            int i = 0;
+            int j = 0;
+            while (i < expected.length || j < indexed.length) {
+                if (j == indexed.length || i < expected.length && expected[i] < indexed[j]) {
+                    missing.add(expected[i++]);
+                } else if (i == expected.length || indexed[j] < expected[i]) {
+                    stale.add(indexed[j++]);
+                } else {
+                    i++;
+                    j++;
+                }
+            }
+            return new Diff(expected.length, indexed.length, missing.build().toArray(), stale.build().toArray(),
+                    outdated != null ? outdated : new long[0], outdated != null);
+        }
+    }
+}
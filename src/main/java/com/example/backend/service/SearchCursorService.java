@@ -0,0 +1,230 @@
+package com.example.backend.service;
+
+import com.example.backend.config.JwtConfig;
+import com.example.backend.dto.SemanticSearchRequest;
+import com.example.backend.exception.BadRequestException;
+import com.example.backend.search.SearchHit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Short-lived handles on semantic search results, so later pages are sliced from memory instead of
+ * embedding and scoring the query again. A handle keeps the query vector, the first request and the
+ * ranked candidates; it expires {@code app.search.cursor.ttl} after last use and the cache is bounded by
+ * the memory the handles take.
+ * <p>
+ * Handles live only on the node that ran the search, so cursors carry everything needed to rank again:
+ * the handle id, the user who ran the search, the offset and the first request's query, mode, threshold
+ * and filters, signed with a key derived from the JWT secret that every node shares. A cursor whose handle
+ * is not cached here, because another node issued it or it was evicted, resolves without one and the
+ * search is run again from the request it carries. A tampered or foreign cursor is a bad request.
+ */
+@Service
+public class SearchCursorService {
+
+    private static final int HANDLE_ID_BYTES = 16;
+    private static final int CURSOR_VERSION = 1;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final SecureRandom random = new SecureRandom();
+    private final Cache<String, Handle> handles;
+    private final SecretKey signingKey;
+
+    public SearchCursorService(MeterRegistry meterRegistry, JwtConfig jwtConfig,
+                               @Value("${app.search.cursor.ttl:5m}") Duration ttl,
+                               @Value("${app.search.cursor.max-memory:64MB}") DataSize maxMemory) {
+        this.handles = Caffeine.newBuilder()
+                .expireAfterAccess(ttl)
+                .maximumWeight(maxMemory.toBytes())
+                .weigher((String id, Handle handle) -> handle.bytes())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, handles, "search.cursors");
+        // A separate key, so a cursor signature can never pass for a token signature or the other way round
+        this.signingKey = new SecretKeySpec(
+                mac(jwtConfig.jwtSecretKey()).doFinal("search-cursor".getBytes(StandardCharsets.UTF_8)),
+                MAC_ALGORITHM);
+    }
+
+    /**
+     * Stores a new handle and returns its id.
+     */
+    public String open(Handle handle) {
+        byte[] bytes = new byte[HANDLE_ID_BYTES];
+        random.nextBytes(bytes);
+        String id = ENCODER.encodeToString(bytes);
+        handles.put(id, handle);
+        return id;
+    }
+
+    /**
+     * Stores a handle under an existing id: one whose candidates were extended, so its weight is recomputed,
+     * or one ranked again for a cursor this node had no handle for.
+     */
+    public void update(String id, Handle handle) {
+        handles.put(id, handle);
+    }
+
+    /**
+     * Checks the cursor's signature and owner and looks up its handle.
+     *
+     * @return the position, whose handle is {@code null} if it is not cached on this node
+     */
+    public Position resolve(String cursor, String owner) {
+        int separator = cursor.lastIndexOf('.');
+        if (separator > 0) {
+            try {
+                byte[] payload = Base64.getUrlDecoder().decode(cursor.substring(0, separator));
+                byte[] signature = Base64.getUrlDecoder().decode(cursor.substring(separator + 1));
+                if (MessageDigest.isEqual(mac(signingKey).doFinal(payload), signature)) {
+                    Position position = decode(payload);
+                    if (position.owner().equals(owner) && position.offset() >= 0) {
+                        Handle handle = handles.getIfPresent(position.id());
+                        return handle != null && handle.owner().equals(owner)
+                                ? new Position(position.id(), owner, position.offset(), handle.request(), handle)
+                                : position;
+                    }
+                }
+            } catch (IllegalArgumentException | IOException e) {
+                // Falls through to the bad request below
+            }
+        }
+        throw new BadRequestException("Search cursor is invalid");
+    }
+
+    /**
+     * Cursor for the page of {@code handle} starting at {@code offset}.
+     */
+    public String cursor(String id, Handle handle, int offset) {
+        SemanticSearchRequest request = handle.request();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(CURSOR_VERSION);
+            writeString(out, id);
+            writeString(out, handle.owner());
+            out.writeInt(offset);
+            writeString(out, request.getQuery());
+            writeString(out, request.getMode());
+            writeString(out, request.getThreshold() != null ? request.getThreshold().toString() : null);
+            writeString(out, request.getParallelism() != null ? request.getParallelism().toString() : null);
+            writeString(out, request.getCategory());
+            writeString(out, request.getMinPrice() != null ? request.getMinPrice().toString() : null);
+            writeString(out, request.getMaxPrice() != null ? request.getMaxPrice().toString() : null);
+            writeString(out, request.getInStock() != null ? request.getInStock().toString() : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payload = bytes.toByteArray();
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(mac(signingKey).doFinal(payload));
+    }
+
+    public long size() {
+        return handles.estimatedSize();
+    }
+
+    // Runs pending evictions now rather than on the cache's maintenance executor
+    void cleanUp() {
+        handles.cleanUp();
+    }
+
+    private static Position decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        if (in.readByte() != CURSOR_VERSION) {
+            throw new IOException("Unknown cursor version");
+        }
+        String id = readString(in);
+        String owner = readString(in);
+        int offset = in.readInt();
+        SemanticSearchRequest request = new SemanticSearchRequest(readString(in), readString(in));
+        String threshold = readString(in);
+        request.setThreshold(threshold != null ? Double.valueOf(threshold) : null);
+        String parallelism = readString(in);
+        request.setParallelism(parallelism != null ? Integer.valueOf(parallelism) : null);
+        request.setCategory(readString(in));
+        String minPrice = readString(in);
+        request.setMinPrice(minPrice != null ? new BigDecimal(minPrice) : null);
+        String maxPrice = readString(in);
+        request.setMaxPrice(maxPrice != null ? new BigDecimal(maxPrice) : null);
+        String inStock = readString(in);
+        request.setInStock(inStock != null ? Boolean.valueOf(inStock) : null);
+        if (id == null || owner == null || in.available() > 0) {
+            throw new IOException("Malformed cursor");
+        }
+        return new Position(id, owner, offset, request, null);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.available()) {
+            throw new IOException("Malformed cursor");
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    // Mac instances are not thread-safe and cheap to create
+    private static Mac mac(SecretKey key) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialise " + MAC_ALGORITHM, e);
+        }
+    }
+
+    /**
+     * @param exhausted {@code true} if {@code hits} holds every candidate the search can return
+     */
+    public record Handle(String owner, SemanticSearchRequest request, float[] queryVector, List<SearchHit> hits,
+                         boolean exhausted) {
+
+        int bytes() {
+            // Vector, boxed hits and a fixed allowance for the request and the entry itself
+            return queryVector.length * Float.BYTES + hits.size() * 40 + 512;
+        }
+    }
+
+    /**
+     * @param request the first request of the search, from the handle or, without one, from the cursor
+     * @param handle  {@code null} if the handle is not cached on this node
+     */
+    public record Position(String id, String owner, int offset, SemanticSearchRequest request, Handle handle) {
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Product;
+import com.example.backend.entity.ProductEmbedding;
+import com.example.backend.repository.ProductEmbeddingRepository;
+import com.example.backend.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Brings this node's search indexes up to date with writes committed on other nodes, which
+ * {@link SearchIndexUpdater} never hears about. Every {@code app.search.sync.poll-interval} products and
+ * embeddings whose {@code updated_at} is past the previous poll, less one interval for rows committed late,
+ * are applied; embeddings the {@link EmbeddingStore} already holds are skipped so the HNSW graph does not
+ * collect tombstones. Deleted products leave no row to find, so every {@code app.search.sync.repair-interval}
+ * the {@link SearchConsistencyChecker} compares ids and repairs what drifted.
+ */
+@Service
+public class SearchIndexPoller {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexPoller.class);
+    private static final int PAGE_SIZE = 500;
+
+    private final ProductRepository productRepository;
+    private final ProductEmbeddingRepository productEmbeddingRepository;
+    private final EmbeddingStore embeddingStore;
+    private final SearchIndexUpdater searchIndexUpdater;
+    private final SearchConsistencyChecker searchConsistencyChecker;
+
+    @Value("${app.search.sync.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.sync.poll-interval:30s}")
+    private Duration pollInterval;
+
+    @Value("${app.search.sync.repair-interval:10m}")
+    private Duration repairInterval;
+
+    // Starts before the indexes are built on startup, so nothing written while they build is missed
+    private final OverlappingPoller poller = new OverlappingPoller("search-index-poll",
+            "product changes for the search indexes", LocalDateTime.now());
+
+    public SearchIndexPoller(ProductRepository productRepository,
+                             ProductEmbeddingRepository productEmbeddingRepository, EmbeddingStore embeddingStore,
+                             SearchIndexUpdater searchIndexUpdater,
+                             SearchConsistencyChecker searchConsistencyChecker) {
+        this.productRepository = productRepository;
+        this.productEmbeddingRepository = productEmbeddingRepository;
+        this.embeddingStore = embeddingStore;
+        this.searchIndexUpdater = searchIndexUpdater;
+        this.searchConsistencyChecker = searchConsistencyChecker;
+    }
+
+    // After every index has been built or restored
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(3)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        poller.schedule(this::poll, pollInterval);
+        poller.schedule(this::repair, repairInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        poller.stop();
+    }
+
+    void poll() {
+        poller.poll(pollInterval, (since, now) -> {
+            int products = applyProductsUpdatedAfter(since);
+            int embeddings = applyEmbeddingsWrittenAfter(since);
+            if (products + embeddings > 0) {
+                logger.debug("Applied {} products and {} embeddings written since {}", products, embeddings, since);
+            }
+        });
+    }
+
+    void repair() {
+        try {
+            searchConsistencyChecker.check(true);
+        } catch (RuntimeException e) {
+            logger.warn("Could not repair the search indexes: {}", e.getMessage());
+        }
+    }
+
+    private int applyProductsUpdatedAfter(LocalDateTime since) {
+        LocalDateTime updatedAt = since;
+        long id = 0;
+        int applied = 0;
+        List<Product> page;
+        do {
+            page = productRepository.findUpdatedAfter(updatedAt, id, PageRequest.of(0, PAGE_SIZE));
+            for (Product product : page) {
+                searchIndexUpdater.applyProduct(product);
+                updatedAt = product.getUpdatedAt();
+                id = product.getId();
+            }
+            applied += page.size();
+        } while (page.size() == PAGE_SIZE);
+        return applied;
+    }
+
+    private int applyEmbeddingsWrittenAfter(LocalDateTime since) {
+        LocalDateTime updatedAt = since;
+        long productId = 0;
+        int applied = 0;
+        List<ProductEmbedding> page;
+        do {
+            page = productEmbeddingRepository.findWrittenAfter(updatedAt, productId, PageRequest.of(0, PAGE_SIZE));
+            for (ProductEmbedding embedding : page) {
+                if (!embeddingStore.holds(embedding.getProductId(), embedding.getEmbedding())) {
+                    searchIndexUpdater.applyEmbedding(embedding);
+                    applied++;
+                }
+                updatedAt = embedding.getUpdatedAt();
+                productId = embedding.getProductId();
+            }
+        } while (page.size() == PAGE_SIZE);
+        return applied;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Product;
+import com.example.backend.entity.ProductEmbedding;
+import com.example.backend.event.EmbeddingsWrittenEvent;
+import com.example.backend.event.ProductChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Applies committed product and embedding writes to the in-memory search structures: the BM25 and attribute
+ * indexes, the {@link EmbeddingStore}, the HNSW graph and the IVF-PQ index.
+ * <p>
+ * Listeners run on the committing thread once the transaction has committed, so searches never see a write
+ * that is later rolled back. A failure here is logged rather than thrown, as the write itself has already
+ * succeeded; {@link SearchConsistencyChecker} finds and repairs anything that was missed. Writes committed on
+ * other nodes reach this one through {@link SearchIndexPoller}.
+ */
+@Service
+public class SearchIndexUpdater {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexUpdater.class);
+
+    private final EmbeddingStore embeddingStore;
+    private final VectorIndexService vectorIndexService;
+    private final IvfPqIndexService ivfPqIndexService;
+    private final LexicalIndexService lexicalIndexService;
+    private final AttributeIndexService attributeIndexService;
+
+    public SearchIndexUpdater(EmbeddingStore embeddingStore, VectorIndexService vectorIndexService,
+                              IvfPqIndexService ivfPqIndexService, LexicalIndexService lexicalIndexService,
+                              AttributeIndexService attributeIndexService) {
+        this.embeddingStore = embeddingStore;
+        this.vectorIndexService = vectorIndexService;
+        this.ivfPqIndexService = ivfPqIndexService;
+        this.lexicalIndexService = lexicalIndexService;
+        this.attributeIndexService = attributeIndexService;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        try {
+            switch (event.change()) {
+                case CREATED, UPDATED -> applyProduct(event.product());
+                case ACTIVE_CHANGED -> attributeIndexService.index(event.product());
+                case DELETED -> removeProduct(event.productId());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Could not apply {} of product {} to the search indexes: {}", event.change(),
+                    event.productId(), e.toString());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEmbeddingsWritten(EmbeddingsWrittenEvent event) {
+        for (ProductEmbedding embedding : event.embeddings()) {
+            try {
+                applyEmbedding(embedding);
+            } catch (RuntimeException e) {
+                logger.error("Could not apply embedding of product {} to the vector indexes: {}",
+                        embedding.getProductId(), e.toString());
+            }
+        }
+    }
+
+    void applyProduct(Product product) {
+        lexicalIndexService.index(product);
+        attributeIndexService.index(product);
+    }
+
+    void applyEmbedding(ProductEmbedding embedding) {
+        embeddingStore.put(embedding.getProductId(), embedding.getEmbedding());
+        vectorIndexService.index(embedding.getProductId(), embedding.getEmbedding());
+        ivfPqIndexService.index(embedding.getProductId(), embedding.getEmbedding());
+    }
+
+    void removeProduct(Long productId) {
+        lexicalIndexService.remove(productId);
+        attributeIndexService.remove(productId);
+        removeEmbedding(productId);
+    }
+
+    void removeEmbedding(Long productId) {
+        embeddingStore.remove(productId);
+        vectorIndexService.remove(productId);
+        ivfPqIndexService.remove(productId);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.backend.service;
+
+import com.example.backend.config.JwtConfig;
+import com.example.backend.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user token cutoffs, so tokens can be checked without loading the user: a token issued before its
+ * user's cutoff is revoked. Cutoffs are persisted as {@code users.tokens_valid_after}; this node applies its
+ * own once they commit and picks up other nodes' every {@code jwt.revocation-poll-interval}, which bounds how long
+ * a deactivated user's tokens keep working elsewhere. Cutoffs older than the longest token lifetime can no
+ * longer match a live token and are dropped.
+ */
+@Service
+public class TokenRevocationService {
+
+    private final UserRepository userRepository;
+    private final Duration maxTokenLifetime;
+    private final Map<String, Instant> cutoffs = new ConcurrentHashMap<>();
+
+    @Value("${jwt.revocation-poll-interval:30s}")
+    private Duration pollInterval;
+
+    private final OverlappingPoller poller;
+
+    public TokenRevocationService(UserRepository userRepository, JwtConfig jwtConfig) {
+        this.userRepository = userRepository;
+        this.maxTokenLifetime = Duration.ofMillis(Math.max(jwtConfig.getJwtExpiration(), jwtConfig.getRefreshExpiration()));
+        this.poller = new OverlappingPoller("token-revocation-poll", "token cutoffs",
+                LocalDateTime.now().minus(maxTokenLifetime));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        poll();
+        poller.schedule(this::poll, pollInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        poller.stop();
+    }
+
+    /**
+     * Rejects every token of {@code username} issued before {@code cutoff} on this node, once the caller's
+     * transaction commits, so a rolled-back change of state locks nobody out.
+     */
+    public void revokeIssuedBefore(String username, Instant cutoff) {
+        AfterCommit.run(() -> cutoffs.merge(username, cutoff, (current, next) -> next.isAfter(current) ? next : current));
+    }
+
+    /**
+     * iat has whole-second precision, so a token issued in the cutoff's second cannot be told apart from one
+     * issued just before it: both are revoked. {@link #awaitIssuable} keeps new tokens out of that second.
+     */
+    public boolean isRevoked(String username, Instant issuedAt) {
+        Instant cutoff = cutoffs.get(username);
+        return cutoff != null && (issuedAt == null || issuedAt.isBefore(nextWholeSecond(cutoff)));
+    }
+
+    /**
+     * Waits, for under a second, until tokens issued for {@code username} now are no longer caught by a
+     * cutoff set in the current second; call it just before issuing tokens.
+     */
+    public void awaitIssuable(String username) {
+        Instant cutoff = cutoffs.get(username);
+        if (cutoff == null) {
+            return;
+        }
+        long wait = Duration.between(Instant.now(), nextWholeSecond(cutoff)).toMillis() + 1;
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static Instant nextWholeSecond(Instant instant) {
+        Instant second = instant.truncatedTo(ChronoUnit.SECONDS);
+        return second.equals(instant) ? second : second.plusSeconds(1);
+    }
+
+    void poll() {
+        poller.poll(pollInterval, (since, now) -> {
+            List<Object[]> rows = userRepository.findTokenCutoffsSince(since);
+            for (Object[] row : rows) {
+                revokeIssuedBefore((String) row[0], ((LocalDateTime) row[1]).atZone(ZoneId.systemDefault()).toInstant());
+            }
+        });
+        Instant horizon = Instant.now().minus(maxTokenLifetime);
+        cutoffs.values().removeIf(cutoff -> cutoff.isBefore(horizon));
+    }
+}
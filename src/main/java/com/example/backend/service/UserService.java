@@ -9,38 +9,55 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
     private final UserRepository userRepository;
+    private final TokenRevocationService tokenRevocationService;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, TokenRevocationService tokenRevocationService) {
         this.userRepository = userRepository;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         logger.debug("Loading user by username: {}", username);
 
-        return userRepository.findByUsername(username)
+        return userRepository.findWithRolesByUsername(username)
                 .orElseThrow(() -> {
                     logger.error("User not found: {}", username);
                     return new UsernameNotFoundException("User not found: " + username);
                 });
     }
 
+    /**
+     * Stores a password re-hashed after a successful login, when the stored hash used another cost.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userDetails.getUsername()));
+        user.setPassword(newPassword);
+        logger.info("Re-hashed password of user: {}", user.getUsername());
+        return userRepository.save(user);
+    }
+
     @Transactional(readOnly = true)
     public List<UserDto> getAllUsers() {
         logger.debug("Fetching all users");
@@ -143,6 +160,7 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
         user.setIsActive(false);
+        revokeTokens(user);
         userRepository.save(user);
 
         logger.info("User deactivated successfully: {}", user.getUsername());
@@ -155,11 +173,19 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
         user.setIsActive(true);
+        revokeTokens(user);
         userRepository.save(user);
 
         logger.info("User activated successfully: {}", user.getUsername());
     }
 
+    // Tokens carry the state they were issued with, so a change of state cuts off every earlier token
+    private void revokeTokens(User user) {
+        Instant now = Instant.now();
+        user.setTokensValidAfter(LocalDateTime.ofInstant(now, ZoneId.systemDefault()));
+        tokenRevocationService.revokeIssuedBefore(user.getUsername(), now);
+    }
+
     private UserDto convertToUserDto(User user) {
         return new UserDto(
                 user.getId(),
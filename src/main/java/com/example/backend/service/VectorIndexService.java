@@ -0,0 +1,418 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.ProductEmbedding;
+import com.example.backend.repository.ProductEmbeddingRepository;
+import com.example.backend.search.FilterBitmap;
+import com.example.backend.search.HnswVectorIndex;
+import com.example.backend.search.SearchHit;
+import com.example.backend.search.SnapshotWatermark;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Holds the in-memory approximate nearest-neighbour index used by semantic search.
+ * <p>
+ * The graph is saved every {@code app.search.snapshot.interval} as a versioned, checksummed snapshot in
+ * {@code app.search.snapshot.dir}, along with the {@code product_embeddings} watermark it reflects. On startup
+ * the newest valid snapshot is loaded and only embeddings written after its watermark are replayed from the
+ * database, into the index and the {@link EmbeddingStore}; embeddings deleted since are removed. Without a
+ * usable snapshot the index is built from the {@link EmbeddingStore} as before.
+ * It is kept up to date by {@link SearchIndexUpdater} as embedding writes and product deletions commit. Each
+ * of those leaves a tombstone in the graph, which snapshots carry over, so once tombstones pass
+ * {@code app.search.hnsw.max-tombstone-ratio} of the nodes the graph is rebuilt without them. Writes made
+ * while it is rebuilt are replayed onto the new graph from the {@link EmbeddingStore}.
+ */
+@Service
+public class VectorIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorIndexService.class);
+    private static final int REPLAY_PAGE_SIZE = 500;
+    private static final int ID_PAGE_SIZE = 10_000;
+    private static final String SNAPSHOT_PREFIX = "hnsw-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final EmbeddingStore embeddingStore;
+    private final IvfPqIndexService ivfPqIndexService;
+    private final ProductEmbeddingRepository productEmbeddingRepository;
+    private final AtomicLong changesSinceSnapshot = new AtomicLong();
+    // Writes hold the read lock, so swapping in a rebuilt graph waits for any still going to the old one
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Set<Long> writtenDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.search.hnsw.m:16}")
+    private int m;
+
+    @Value("${app.search.hnsw.ef-construction:200}")
+    private int efConstruction;
+
+    @Value("${app.search.hnsw.ef-search:100}")
+    private int efSearch;
+
+    @Value("${app.search.hnsw.max-tombstone-ratio:0.2}")
+    private double maxTombstoneRatio;
+
+    @Value("${app.search.snapshot.enabled:true}")
+    private boolean snapshotsEnabled;
+
+    @Value("${app.search.snapshot.dir:data/snapshots}")
+    private Path snapshotDir;
+
+    @Value("${app.search.snapshot.interval:10m}")
+    private Duration snapshotInterval;
+
+    @Value("${app.search.snapshot.retain:2}")
+    private int snapshotsRetained;
+
+    // Embeddings committed late with an earlier updated_at are still replayed; replaying twice is harmless
+    @Value("${app.search.snapshot.replay-overlap:5m}")
+    private Duration replayOverlap;
+
+    private volatile HnswVectorIndex index;
+    private volatile boolean ready;
+    private volatile boolean rebuilding;
+    private ScheduledExecutorService snapshotExecutor;
+
+    public VectorIndexService(EmbeddingStore embeddingStore, IvfPqIndexService ivfPqIndexService,
+                              ProductEmbeddingRepository productEmbeddingRepository) {
+        this.embeddingStore = embeddingStore;
+        this.ivfPqIndexService = ivfPqIndexService;
+        this.productEmbeddingRepository = productEmbeddingRepository;
+    }
+
+    // After IvfPqIndexService has opened its index, so replayed embeddings reach it too
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2)
+    public void buildOnStartup() {
+        if (!embeddingStore.isReady()) {
+            logger.warn("Embedding store is not open; HNSW index will not be built");
+            return;
+        }
+        try {
+            if (!snapshotsEnabled || !restoreSnapshot()) {
+                rebuild();
+                if (snapshotsEnabled) {
+                    snapshot();
+                }
+            }
+        } catch (DataAccessException e) {
+            // Semantic search falls back to the exact scan until the index is available
+            logger.error("Could not build HNSW index on startup: {}", e.getMessage());
+        }
+        if (snapshotsEnabled) {
+            snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "hnsw-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = snapshotInterval.toMillis();
+            snapshotExecutor.scheduleWithFixedDelay(this::compactAndSnapshot, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void rebuild() {
+        logger.info("Building HNSW index (m={}, efConstruction={}, efSearch={})", m, efConstruction, efSearch);
+        long start = System.currentTimeMillis();
+
+        HnswVectorIndex newIndex = new HnswVectorIndex(m, efConstruction, efSearch);
+        writtenDuringRebuild.clear();
+        rebuilding = true;
+        try {
+            embeddingStore.forEach(newIndex::add);
+            swapLock.writeLock().lock();
+            try {
+                index = newIndex;
+                ready = true;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        } finally {
+            rebuilding = false;
+        }
+        for (Long productId : writtenDuringRebuild) {
+            float[] embedding = embeddingStore.get(productId);
+            if (embedding == null) {
+                newIndex.remove(productId);
+            } else if (!newIndex.holds(productId, embedding)) {
+                newIndex.add(productId, embedding);
+            }
+        }
+        writtenDuringRebuild.clear();
+        logger.info("HNSW index built with {} vectors in {} ms", newIndex.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Writes a snapshot of the current graph, recording the watermark read just before it was copied, and
+     * prunes all but the newest {@code app.search.snapshot.retain}.
+     */
+    public synchronized void snapshot() {
+        HnswVectorIndex current = index;
+        if (!ready) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long changes = changesSinceSnapshot.getAndSet(0);
+        try {
+            SnapshotWatermark watermark = currentWatermark();
+            Files.createDirectories(snapshotDir);
+            Path tmp = snapshotDir.resolve(SNAPSHOT_PREFIX + "snapshot.tmp");
+            current.writeSnapshot(tmp, watermark);
+            Path file = snapshotDir.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, start, SNAPSHOT_SUFFIX));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            List<Path> snapshots = snapshots();
+            for (Path old : snapshots.subList(Math.min(snapshotsRetained, snapshots.size()), snapshots.size())) {
+                Files.deleteIfExists(old);
+            }
+            logger.info("Wrote HNSW snapshot {} with {} vectors up to {} in {} ms", file.getFileName(),
+                    current.size(), watermark, System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            changesSinceSnapshot.addAndGet(changes);
+            logger.warn("Could not write HNSW snapshot: {}", e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<SearchHit> search(float[] query, int k, double minScore, FilterBitmap filter) {
+        return index.search(query, k, minScore, filter);
+    }
+
+    public void index(Long productId, float[] embedding) {
+        if (productId == null || embedding == null) {
+            return;
+        }
+        swapLock.readLock().lock();
+        try {
+            if (rebuilding) {
+                writtenDuringRebuild.add(productId);
+            }
+            if (ready) {
+                index.add(productId, embedding);
+                changesSinceSnapshot.incrementAndGet();
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        swapLock.readLock().lock();
+        try {
+            if (rebuilding) {
+                writtenDuringRebuild.add(productId);
+            }
+            if (ready && index.remove(productId)) {
+                changesSinceSnapshot.incrementAndGet();
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        return ready ? index.size() : 0;
+    }
+
+    public long[] ids() {
+        return ready ? index.ids() : new long[0];
+    }
+
+    /**
+     * Whether the graph holds {@code productId} with {@code embedding}.
+     */
+    public boolean holds(Long productId, float[] embedding) {
+        return ready && productId != null && embedding != null && index.holds(productId, embedding);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdownNow();
+            snapshotExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            snapshotIfChanged();
+        }
+    }
+
+    private void snapshotIfChanged() {
+        if (changesSinceSnapshot.get() > 0) {
+            snapshot();
+        }
+    }
+
+    private void compactAndSnapshot() {
+        try {
+            compactIfNeeded();
+        } catch (RuntimeException e) {
+            logger.warn("Could not rebuild HNSW index: {}", e.getMessage());
+        }
+        snapshotIfChanged();
+    }
+
+    /**
+     * Rebuilds the graph from the {@link EmbeddingStore} once tombstones pass
+     * {@code app.search.hnsw.max-tombstone-ratio} of its nodes.
+     *
+     * @return whether it was rebuilt
+     */
+    private boolean compactIfNeeded() {
+        HnswVectorIndex current = index;
+        if (!ready || !embeddingStore.isReady()) {
+            return false;
+        }
+        int tombstones = current.tombstones();
+        if (tombstones == 0 || tombstones <= maxTombstoneRatio * (current.size() + tombstones)) {
+            return false;
+        }
+        logger.info("HNSW index holds {} tombstones next to {} live vectors; rebuilding it", tombstones,
+                current.size());
+        rebuild();
+        changesSinceSnapshot.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Loads the newest snapshot that passes its checksum and brings it up to date with the database.
+     *
+     * @return {@code false} if there is no usable snapshot
+     */
+    private boolean restoreSnapshot() {
+        for (Path file : snapshots()) {
+            long start = System.currentTimeMillis();
+            HnswVectorIndex.Snapshot snapshot;
+            try {
+                snapshot = HnswVectorIndex.readSnapshot(file);
+            } catch (IOException e) {
+                logger.warn("Skipping unusable HNSW snapshot {}: {}", file, e.getMessage());
+                continue;
+            }
+            snapshot.index().setEfSearch(efSearch);
+            index = snapshot.index();
+            ready = true;
+            logger.info("Loaded HNSW snapshot {} with {} vectors in {} ms", file.getFileName(),
+                    snapshot.index().size(), System.currentTimeMillis() - start);
+
+            int replayed = replayWrittenAfter(snapshot.watermark());
+            int removed = removeDeleted();
+            changesSinceSnapshot.addAndGet(replayed + removed);
+            logger.info("Replayed {} embeddings written after {} and removed {} deleted ones in {} ms", replayed,
+                    snapshot.watermark(), removed, System.currentTimeMillis() - start);
+            if (compactIfNeeded()) {
+                snapshot();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private int replayWrittenAfter(SnapshotWatermark watermark) {
+        LocalDateTime updatedAt = watermark.updatedAt().minus(replayOverlap);
+        long productId = 0;
+        int replayed = 0;
+        List<ProductEmbedding> page;
+        do {
+            page = productEmbeddingRepository.findWrittenAfter(updatedAt, productId,
+                    PageRequest.of(0, REPLAY_PAGE_SIZE));
+            for (ProductEmbedding embedding : page) {
+                // Most of the overlap is in the snapshot already; adding it again would only leave tombstones
+                if (!embeddingStore.holds(embedding.getProductId(), embedding.getEmbedding())) {
+                    embeddingStore.put(embedding.getProductId(), embedding.getEmbedding());
+                }
+                if (!index.holds(embedding.getProductId(), embedding.getEmbedding())) {
+                    index.add(embedding.getProductId(), embedding.getEmbedding());
+                    replayed++;
+                }
+                ivfPqIndexService.index(embedding.getProductId(), embedding.getEmbedding());
+                updatedAt = embedding.getUpdatedAt();
+                productId = embedding.getProductId();
+            }
+        } while (page.size() == REPLAY_PAGE_SIZE);
+        return replayed;
+    }
+
+    // Deleted products leave no row behind, so compare ids: a keyset walk over the primary key reads no vectors
+    private int removeDeleted() {
+        long[] ids = LongStream.concat(Arrays.stream(embeddingStore.ids()), Arrays.stream(index.ids()))
+                .sorted().distinct().toArray();
+        BitSet present = new BitSet(ids.length);
+        long afterId = 0;
+        List<Long> page;
+        do {
+            page = productEmbeddingRepository.findProductIdsAfter(afterId, PageRequest.of(0, ID_PAGE_SIZE));
+            for (Long id : page) {
+                int position = Arrays.binarySearch(ids, id);
+                if (position >= 0) {
+                    present.set(position);
+                }
+                afterId = id;
+            }
+        } while (page.size() == ID_PAGE_SIZE);
+
+        int removed = 0;
+        for (int position = present.nextClearBit(0); position < ids.length;
+             position = present.nextClearBit(position + 1)) {
+            embeddingStore.remove(ids[position]);
+            index.remove(ids[position]);
+            ivfPqIndexService.remove(ids[position]);
+            removed++;
+        }
+        return removed;
+    }
+
+    private SnapshotWatermark currentWatermark() {
+        List<Object[]> latest = productEmbeddingRepository.findLatestWatermarks(PageRequest.of(0, 1));
+        if (latest.isEmpty() || latest.get(0)[0] == null) {
+            return SnapshotWatermark.NONE;
+        }
+        return new SnapshotWatermark((LocalDateTime) latest.get(0)[0], (Long) latest.get(0)[1]);
+    }
+
+    // Newest first; the zero-padded timestamp in the name sorts chronologically
+    private List<Path> snapshots() {
+        if (!Files.isDirectory(snapshotDir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(snapshotDir)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted((a, b) -> b.getFileName().toString().compareTo(a.getFileName().toString()))
+                    .toList();
+        } catch (IOException e) {
+            logger.warn("Could not list HNSW snapshots in {}: {}", snapshotDir, e.getMessage());
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Converts {@code product_embeddings.embedding} from {@code float8[]} to little-endian float32 {@code bytea}.
+ * <p>
+ * Rows are converted in batches of {@value #BATCH_SIZE}, each committed on its own, so the table is never
+ * locked for the whole run and a failed run resumes where it stopped (only rows with no converted value
+ * are picked up).
+ */
+public class V6__Convert_embeddings_to_float32 extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        try {
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER TABLE product_embeddings ADD COLUMN IF NOT EXISTS embedding_f32 bytea");
+            }
+
+            connection.setAutoCommit(false);
+            int converted;
+            do {
+                converted = convertBatch(connection);
+                connection.commit();
+            } while (converted == BATCH_SIZE);
+
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER TABLE product_embeddings DROP COLUMN embedding");
+                statement.execute("ALTER TABLE product_embeddings RENAME COLUMN embedding_f32 TO embedding");
+                statement.execute("ALTER TABLE product_embeddings ALTER COLUMN embedding SET NOT NULL");
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private int convertBatch(Connection connection) throws SQLException {
+        int count = 0;
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT product_id, embedding FROM product_embeddings WHERE embedding_f32 IS NULL "
+                        + "ORDER BY product_id LIMIT " + BATCH_SIZE);
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE product_embeddings SET embedding_f32 = ? WHERE product_id = ?");
+             ResultSet rows = select.executeQuery()) {
+
+            while (rows.next()) {
+                Array array = rows.getArray(2);
+                Double[] values = (Double[]) array.getArray();
+                array.free();
+
+                ByteBuffer buffer = ByteBuffer.allocate(values.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                for (Double value : values) {
+                    buffer.putFloat(value.floatValue());
+                }
+
+                update.setBytes(1, buffer.array());
+                update.setLong(2, rows.getLong(1));
+                update.addBatch();
+                count++;
+            }
+            update.executeBatch();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,5 @@
+-- Tokens issued before this instant are rejected; set when a user is deactivated or re-activated, and by
+-- operators after changing roles directly in the database
+ALTER TABLE users ADD COLUMN IF NOT EXISTS tokens_valid_after TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_users_tokens_valid_after ON users(tokens_valid_after);
@@ -0,0 +1,12 @@
+-- Refresh token ids (jti) revoked by rotation or logout. Every node mirrors the unexpired rows in memory;
+-- rows are deleted once the token they name has expired
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    jti VARCHAR(64) PRIMARY KEY,
+    username VARCHAR(50) NOT NULL,
+    reason VARCHAR(16) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_revoked_tokens_revoked_at ON revoked_tokens(revoked_at);
+CREATE INDEX idx_revoked_tokens_expires_at ON revoked_tokens(expires_at);
@@ -0,0 +1,3 @@
+-- Keyset scans by (updated_at, id) for the search index poller, which picks up other nodes' writes
+CREATE INDEX IF NOT EXISTS idx_products_updated_at ON products(updated_at, id);
+CREATE INDEX IF NOT EXISTS idx_product_embeddings_updated_at ON product_embeddings(updated_at, product_id);
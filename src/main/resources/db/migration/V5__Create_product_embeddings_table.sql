@@ -0,0 +1,16 @@
+-- Move embeddings out of the products row so list queries no longer read them
+CREATE TABLE IF NOT EXISTS product_embeddings (
+    product_id BIGINT PRIMARY KEY,
+    embedding float8[] NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE
+);
+
+-- Copy existing embeddings
+INSERT INTO product_embeddings (product_id, embedding, updated_at)
+SELECT id, embedding, COALESCE(updated_at, CURRENT_TIMESTAMP)
+FROM products
+WHERE embedding IS NOT NULL
+ON CONFLICT (product_id) DO NOTHING;
+
+ALTER TABLE products DROP COLUMN IF EXISTS embedding;
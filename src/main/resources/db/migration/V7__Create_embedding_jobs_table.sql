@@ -0,0 +1,22 @@
+-- Products are committed before their embedding exists; the status tracks the pipeline
+ALTER TABLE products ADD COLUMN IF NOT EXISTS embedding_status VARCHAR(16) NOT NULL DEFAULT 'READY';
+
+UPDATE products p SET embedding_status = 'PENDING'
+WHERE NOT EXISTS (SELECT 1 FROM product_embeddings e WHERE e.product_id = p.id);
+
+-- Durable queue consumed with SELECT ... FOR UPDATE SKIP LOCKED by every node
+CREATE TABLE IF NOT EXISTS embedding_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_embedding_jobs_next_attempt ON embedding_jobs(next_attempt_at);
+CREATE INDEX idx_embedding_jobs_product_id ON embedding_jobs(product_id);
+
+INSERT INTO embedding_jobs (product_id)
+SELECT id FROM products WHERE embedding_status = 'PENDING';
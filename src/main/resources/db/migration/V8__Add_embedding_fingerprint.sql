@@ -0,0 +1,15 @@
+-- Fingerprint of the text and model an embedding was computed from, so unchanged text is never re-embedded
+ALTER TABLE product_embeddings ADD COLUMN IF NOT EXISTS content_fingerprint VARCHAR(64);
+
+-- Products edited after their embedding was written may hold a stale vector: re-embed them once
+INSERT INTO embedding_jobs (product_id)
+SELECT p.id
+FROM products p
+JOIN product_embeddings e ON e.product_id = p.id
+WHERE p.updated_at > e.updated_at;
+
+UPDATE products SET embedding_status = 'PENDING'
+WHERE id IN (SELECT product_id FROM embedding_jobs);
+
+-- Existing fingerprints stay NULL: the model id is configuration the database cannot see, so ProductService
+-- compares the old and new text for these embeddings instead
@@ -0,0 +1,18 @@
+-- Dot product of the little-endian float32 bytea written by FloatVectorConverter with a real[] query,
+-- decoding each word as it is scored; denormals kept, no NaN/Inf expected
+CREATE OR REPLACE FUNCTION float4_le_dot(bytes bytea, query real[]) RETURNS double precision
+LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE AS $$
+    SELECT sum((CASE WHEN (bits >> 31) = 1 THEN -1 ELSE 1 END)
+               * CASE WHEN ((bits >> 23) & 255) = 0
+                      THEN (bits & 8388607)::double precision * power(2::double precision, -149)
+                      ELSE ((bits & 8388607) + 8388608)::double precision
+                           * power(2::double precision, ((bits >> 23) & 255)::integer - 150)
+                 END
+               * query[i + 1])
+    FROM (SELECT i,
+                 get_byte(bytes, 4 * i)::bigint
+                     | (get_byte(bytes, 4 * i + 1)::bigint << 8)
+                     | (get_byte(bytes, 4 * i + 2)::bigint << 16)
+                     | (get_byte(bytes, 4 * i + 3)::bigint << 24) AS bits
+          FROM generate_series(0, length(bytes) / 4 - 1) AS i) AS words
+$$;
@@ -0,0 +1,88 @@
+package com.example.backend.benchmark;
+
+import com.example.backend.config.JwtConfig;
+import com.example.backend.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request token validation. {@code legacyTripleParse} is what {@code JwtAuthenticationFilter} used to do:
+ * {@code extractUsername}, then {@code isTokenValid} parsing the token twice more, each time with a freshly
+ * built parser. {@code singleParse} verifies once with the shared parser and the cache disabled;
+ * {@code cachedVerify} is a client repeating the same bearer token.
+ * <p>
+ * Run with: {@code java -cp target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main JwtValidationBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtValidationBenchmark {
+
+    private SecretKey key;
+    private UserDetails user;
+    private String token;
+    private JwtService uncached;
+    private JwtService cached;
+
+    @Setup
+    public void setUp() {
+        key = Jwts.SIG.HS256.key().build();
+        JwtConfig config = new JwtConfig() {
+            @Override
+            public SecretKey jwtSecretKey() {
+                return key;
+            }
+
+            @Override
+            public Long getJwtExpiration() {
+                return 3_600_000L;
+            }
+        };
+        uncached = new JwtService(config, new SimpleMeterRegistry(), 0);
+        cached = new JwtService(config, new SimpleMeterRegistry(), 10_000);
+        user = User.withUsername("alice").password("x").authorities("ROLE_USER").build();
+        token = uncached.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean legacyTripleParse() {
+        String username = legacyParse().getSubject();
+        return username.equals(user.getUsername())
+                && legacyParse().getSubject().equals(user.getUsername())
+                && !legacyParse().getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public JwtService.VerifiedToken singleParse() {
+        return uncached.verify(token);
+    }
+
+    @Benchmark
+    public JwtService.VerifiedToken cachedVerify() {
+        return cached.verify(token);
+    }
+
+    private Claims legacyParse() {
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.backend.benchmark;
+
+import com.example.backend.service.LocalEmbeddingProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Texts per second through the offline {@link LocalEmbeddingProvider}, for a product-sized text.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class LocalEmbeddingBenchmark {
+
+    @Param({"3072"})
+    public int dimension;
+
+    private LocalEmbeddingProvider provider;
+    private final String text = "Sony WH-1000XM5 Wireless Noise Cancelling Headphones with Auto Noise Cancelling "
+            + "Optimizer, crystal clear hands-free calling and Alexa voice control, 30 hour battery life";
+
+    @Setup
+    public void setUp() {
+        provider = new LocalEmbeddingProvider(dimension);
+    }
+
+    @Benchmark
+    public float[] embedProductText() {
+        return provider.embed(text);
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.backend.benchmark;
+
+import com.example.backend.config.JwtConfig;
+import com.example.backend.dto.LoginRequest;
+import com.example.backend.dto.LoginResponse;
+import com.example.backend.entity.Role;
+import com.example.backend.entity.User;
+import com.example.backend.repository.RevokedTokenRepository;
+import com.example.backend.repository.RoleRepository;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.service.AuthService;
+import com.example.backend.service.JwtService;
+import com.example.backend.service.RevokedTokenService;
+import com.example.backend.service.TokenRevocationService;
+import com.example.backend.service.UserService;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.crypto.SecretKey;
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Database round trips per {@code /auth/login}. {@code legacyLogin} is the original {@code AuthService.login}:
+ * authenticate, load the user again for the tokens and a third time for the response, each by
+ * {@code findByUsername}, which costs a second select for the EAGER roles, so six statements in all.
+ * {@code login} is today's {@code AuthService.login}, which reuses the authenticated principal loaded with its
+ * roles by one join fetch.
+ * <p>
+ * The user repository is an in-memory stand-in that counts statements and parks {@code roundTripMicros} per
+ * statement; password checking is a plain comparison so BCrypt does not drown the difference. Round trips
+ * per login are printed at the end of each trial.
+ * <p>
+ * Run with: {@code java -cp target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main LoginRoundTripBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoginRoundTripBenchmark {
+
+    @Param({"0", "250"})
+    public int roundTripMicros;
+
+    private final AtomicLong roundTrips = new AtomicLong();
+    private final AtomicLong logins = new AtomicLong();
+
+    private LoginRequest request;
+    private UserRepository userRepository;
+    private AuthenticationManager legacyAuthenticationManager;
+    private UserDetailsService legacyUserDetailsService;
+    private JwtService jwtService;
+    private AuthService authService;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        user.setPassword("secret");
+        user.setIsActive(true);
+        user.setRoles(Set.of(new Role("USER", "Default user role")));
+        request = new LoginRequest("alice", "secret");
+
+        userRepository = countingRepository(user);
+        SecretKey key = Jwts.SIG.HS256.key().build();
+        JwtConfig jwtConfig = new JwtConfig() {
+            @Override
+            public SecretKey jwtSecretKey() {
+                return key;
+            }
+
+            @Override
+            public Long getJwtExpiration() {
+                return 86_400_000L;
+            }
+
+            @Override
+            public Long getRefreshExpiration() {
+                return 604_800_000L;
+            }
+        };
+        TokenRevocationService tokenRevocationService = new TokenRevocationService(userRepository, jwtConfig);
+        UserService userService = new UserService(userRepository, tokenRevocationService);
+        legacyUserDetailsService = username -> userRepository.findByUsername(username).orElseThrow();
+        jwtService = new JwtService(jwtConfig, new SimpleMeterRegistry(), 0);
+
+        PasswordEncoder plain = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+        legacyAuthenticationManager = authenticationManager(legacyUserDetailsService, plain);
+        RoleRepository roleRepository = (RoleRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RoleRepository.class}, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        RevokedTokenRepository revokedTokenRepository = (RevokedTokenRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{RevokedTokenRepository.class}, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        PlatformTransactionManager transactionManager = (PlatformTransactionManager) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{PlatformTransactionManager.class}, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        authService = new AuthService(userRepository, roleRepository, plain,
+                authenticationManager(userService, plain), jwtService, tokenRevocationService,
+                new RevokedTokenService(revokedTokenRepository, jwtConfig, 1_000), transactionManager);
+    }
+
+    private static AuthenticationManager authenticationManager(UserDetailsService userDetailsService,
+                                                               PasswordEncoder passwordEncoder) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
+        return new ProviderManager(provider);
+    }
+
+    @TearDown
+    public void report() {
+        System.out.printf("%n%d round trips over %d logins: %.2f per login%n", roundTrips.get(), logins.get(),
+                (double) roundTrips.get() / Math.max(1, logins.get()));
+        roundTrips.set(0);
+        logins.set(0);
+    }
+
+    @Benchmark
+    public LoginResponse legacyLogin() {
+        logins.incrementAndGet();
+        legacyAuthenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));
+        UserDetails userDetails = legacyUserDetailsService.loadUserByUsername(request.getUsername());
+        String accessToken = jwtService.generateToken(userDetails);
+        String refreshToken = jwtService.generateRefreshToken(userDetails);
+        User user = userRepository.findByUsername(request.getUsername()).orElseThrow();
+        Set<String> roles = user.getRoles().stream().map(Role::getName).collect(Collectors.toSet());
+        return new LoginResponse(accessToken, refreshToken, user.getId(), user.getUsername(), user.getEmail(), roles);
+    }
+
+    @Benchmark
+    public LoginResponse login() {
+        logins.incrementAndGet();
+        return authService.login(request);
+    }
+
+    // findByUsername is a select for the user plus one for its EAGER roles; the join fetch is one select
+    private UserRepository countingRepository(User user) {
+        return (UserRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findByUsername" -> {
+                        roundTrip(2);
+                        yield Optional.of(user);
+                    }
+                    case "findWithRolesByUsername" -> {
+                        roundTrip(1);
+                        yield Optional.of(user);
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private void roundTrip(int statements) {
+        roundTrips.addAndGet(statements);
+        if (roundTripMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos((long) roundTripMicros * statements));
+        }
+    }
+}
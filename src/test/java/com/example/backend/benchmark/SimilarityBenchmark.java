@@ -0,0 +1,99 @@
+package com.example.backend.benchmark;
+
+import com.example.backend.search.SimilarityKernel;
+import com.example.backend.search.SimilarityKernels;
+import com.example.backend.search.Vectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Similarity throughput at embedding size. {@code legacyListCosine} is the original
+ * {@code ProductService.cosineSimilarity} over {@code List<Double>}; the others are the kernels used today.
+ * <p>
+ * Run with: {@code java -cp target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main SimilarityBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class SimilarityBenchmark {
+
+    @Param({"3072"})
+    public int dimension;
+
+    private List<Double> listA;
+    private List<Double> listB;
+    private float[] unitA;
+    private float[] unitB;
+    private byte[] int8A;
+    private byte[] int8B;
+
+    private final SimilarityKernel scalar = SimilarityKernels.scalar();
+    private final SimilarityKernel simd = SimilarityKernels.get();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        float[] a = new float[dimension];
+        float[] b = new float[dimension];
+        listA = new ArrayList<>(dimension);
+        listB = new ArrayList<>(dimension);
+        for (int i = 0; i < dimension; i++) {
+            a[i] = (float) random.nextGaussian();
+            b[i] = (float) random.nextGaussian();
+            listA.add((double) a[i]);
+            listB.add((double) b[i]);
+        }
+        unitA = Vectors.normalize(a);
+        unitB = Vectors.normalize(b);
+        int8A = Vectors.quantizeInt8(unitA);
+        int8B = Vectors.quantizeInt8(unitB);
+    }
+
+    @Benchmark
+    public double legacyListCosine() {
+        double dot = 0, norm1 = 0, norm2 = 0;
+        for (int i = 0; i < listA.size(); i++) {
+            dot += listA.get(i) * listB.get(i);
+            norm1 += listA.get(i) * listA.get(i);
+            norm2 += listB.get(i) * listB.get(i);
+        }
+        return dot / (Math.sqrt(norm1) * Math.sqrt(norm2));
+    }
+
+    @Benchmark
+    public float scalarFloat32Dot() {
+        return scalar.dot(unitA, unitB);
+    }
+
+    @Benchmark
+    public float simdFloat32Dot() {
+        return simd.dot(unitA, unitB);
+    }
+
+    @Benchmark
+    public int scalarInt8Dot() {
+        return scalar.dot(int8A, int8B);
+    }
+
+    @Benchmark
+    public int simdInt8Dot() {
+        return simd.dot(int8A, int8B);
+    }
+}
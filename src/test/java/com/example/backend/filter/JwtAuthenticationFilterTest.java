@@ -0,0 +1,52 @@
+package com.example.backend.filter;
+
+import com.example.backend.entity.Role;
+import com.example.backend.entity.User;
+import com.example.backend.service.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Set;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class JwtAuthenticationFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private JwtService.TokenPair tokens;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("alice");
+        user.setIsActive(true);
+        user.setRoles(Set.of(new Role("USER", "Default user role")));
+        tokens = jwtService.generateTokens(user);
+    }
+
+    @Test
+    void shouldAuthenticateWithAnAccessToken() throws Exception {
+        mockMvc.perform(get("/products").header("Authorization", "Bearer " + tokens.accessToken()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldRejectARefreshTokenAsBearer() throws Exception {
+        mockMvc.perform(get("/products").header("Authorization", "Bearer " + tokens.refreshToken()))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.FloatVectorConverter;
+import com.example.backend.entity.Product;
+import com.example.backend.entity.ProductEmbedding;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Runs the Flyway migrations on PostgreSQL, so the database search mode is checked against the SQL it really
+ * executes. Skipped where Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class ProductEmbeddingRepositoryTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductEmbeddingRepository productEmbeddingRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void shouldDecodeEmbeddingsLikeFloatVectorConverter() {
+        // Normal, negative, denormal, extreme and zero components
+        float[] vector = {1.5f, -0.25f, Float.MIN_VALUE, -1e-40f, Float.MAX_VALUE, 0f, 123.456f};
+        byte[] bytes = new FloatVectorConverter().convertToDatabaseColumn(vector);
+
+        for (int i = 0; i < vector.length; i++) {
+            float[] unit = new float[vector.length];
+            unit[i] = 1f;
+            Number component = (Number) entityManager
+                    .createNativeQuery("SELECT float4_le_dot(:bytes, CAST(:query AS real[]))")
+                    .setParameter("bytes", bytes)
+                    .setParameter("query", arrayLiteral(unit))
+                    .getSingleResult();
+            assertThat(component.doubleValue()).as("component %d", i).isEqualTo((double) vector[i]);
+        }
+    }
+
+    @Test
+    void shouldRankActiveProductsByDotProduct() {
+        Product lamp = save("Desk lamp", "Lighting", true, new float[]{0.8f, 0.6f});
+        Product bulb = save("LED bulb", "Lighting", true, new float[]{0.6f, 0.8f});
+        Product chair = save("Desk chair", "Furniture", true, new float[]{1f, 0f});
+        save("Retired lamp", "Lighting", false, new float[]{1f, 0f});
+
+        List<Object[]> all = productEmbeddingRepository.findTopKByDotProduct("{1,0}", 10, -1, null, null, null,
+                false);
+        List<Object[]> lighting = productEmbeddingRepository.findTopKByDotProduct("{1,0}", 10, 0.7, "Lighting",
+                null, null, false);
+
+        assertThat(all).extracting(row -> ((Number) row[0]).longValue())
+                .containsExactly(chair.getId(), lamp.getId(), bulb.getId());
+        assertThat(((Number) all.get(1)[1]).doubleValue()).isCloseTo(0.8, within(1e-6));
+        assertThat(lighting).extracting(row -> ((Number) row[0]).longValue()).containsExactly(lamp.getId());
+    }
+
+    private Product save(String name, String category, boolean active, float[] embedding) {
+        Product product = new Product(name, name, new BigDecimal("10.00"), category);
+        product.setIsActive(active);
+        product = productRepository.saveAndFlush(product);
+        productEmbeddingRepository.saveAndFlush(new ProductEmbedding(product.getId(), embedding));
+        return product;
+    }
+
+    private static String arrayLiteral(float[] vector) {
+        StringBuilder literal = new StringBuilder("{");
+        for (int i = 0; i < vector.length; i++) {
+            literal.append(i > 0 ? "," : "").append(vector[i]);
+        }
+        return literal.append('}').toString();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.backend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttributeIndexTest {
+
+    private static final String[] CATEGORIES = {"Audio", "Home", "Books", "Toys"};
+
+    @Test
+    void shouldMatchBruteForceFiltering() {
+        Random random = new Random(3);
+        AttributeIndex index = new AttributeIndex();
+        List<Object[]> products = new ArrayList<>();
+        for (long id = 1; id <= 5000; id++) {
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            BigDecimal price = BigDecimal.valueOf(random.nextInt(100_000), 2);
+            int stock = random.nextInt(3);
+            boolean active = random.nextInt(10) > 0;
+            index.put(id, category, price, stock, active);
+            products.add(new Object[]{id, category, price, stock, active});
+        }
+
+        BigDecimal min = new BigDecimal("123.45");
+        BigDecimal max = new BigDecimal("480.00");
+        FilterBitmap filter = index.filter("Home", min, max, true);
+
+        List<Long> expected = new ArrayList<>();
+        for (Object[] p : products) {
+            BigDecimal price = (BigDecimal) p[2];
+            if ((boolean) p[4] && p[1].equals("Home") && (int) p[3] > 0
+                    && price.compareTo(min) >= 0 && price.compareTo(max) <= 0) {
+                expected.add((long) p[0]);
+            }
+        }
+        List<Long> actual = new ArrayList<>();
+        filter.forEachId(actual::add);
+
+        assertThat(expected).isNotEmpty();
+        assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(filter.cardinality()).isEqualTo(expected.size());
+        assertThat(filter.test(expected.get(0))).isTrue();
+    }
+
+    @Test
+    void shouldReflectUpdatesAndRemovals() {
+        AttributeIndex index = new AttributeIndex();
+        index.put(1, "Audio", new BigDecimal("10.00"), 5, true);
+        index.put(2, "Audio", new BigDecimal("20.00"), 0, true);
+        index.put(3, "Audio", new BigDecimal("30.00"), 5, false);
+
+        assertThat(index.filter("Audio", null, null, null).cardinality()).isEqualTo(2);
+        assertThat(index.filter("Audio", null, null, true).test(2)).isFalse();
+
+        index.put(1, "Home", new BigDecimal("10.00"), 5, true);
+        index.remove(2);
+        index.put(4, "Audio", new BigDecimal("0.00"), 1, true);
+
+        assertThat(index.filter("Audio", null, null, null).test(1)).isFalse();
+        assertThat(index.filter("Home", new BigDecimal("10"), new BigDecimal("10"), null).test(1)).isTrue();
+        assertThat(index.filter("Audio", null, new BigDecimal("5"), null).test(4)).isTrue();
+        assertThat(index.filter("Garden", null, null, null).cardinality()).isZero();
+        assertThat(index.size()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.backend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class Bm25IndexTest {
+
+    @Test
+    void shouldRankNameMatchesAboveDescriptionMatches() {
+        Bm25Index index = new Bm25Index();
+        index.add(1, "Wireless Headphones", "Over-ear, noise cancelling", "Audio");
+        index.add(2, "Phone Case", "Fits most phones; pairs well with headphones", "Accessories");
+        index.add(3, "Desk Lamp", "LED, dimmable", "Home");
+
+        List<SearchHit> hits = index.search("headphone", 10);
+
+        assertThat(hits).extracting(SearchHit::id).containsExactly(1L, 2L);
+        assertThat(index.search("SKU-42 lamp", 10)).extracting(SearchHit::id).containsExactly(3L);
+        assertThat(index.search("", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldReplaceAndRemoveDocumentsAcrossCompaction() {
+        Bm25Index index = new Bm25Index();
+        for (long id = 1; id <= 3000; id++) {
+            index.add(id, "item " + id, "common filler text", "misc");
+        }
+        // Replacing every document leaves 3000 tombstones, enough to trigger a compaction
+        for (long id = 1; id <= 3000; id++) {
+            index.add(id, "item " + id + (id == 42 ? " teapot" : ""), "common filler text", "misc");
+        }
+        index.remove(7);
+
+        assertThat(index.size()).isEqualTo(2999);
+        assertThat(index.search("teapot", 5)).extracting(SearchHit::id).containsExactly(42L);
+        assertThat(index.search("7", 5)).isEmpty();
+        assertThat(index.search("common", 5000)).hasSize(2999);
+
+        long before = index.postingBytes();
+        index.compact();
+        assertThat(index.postingBytes()).isLessThanOrEqualTo(before);
+        assertThat(index.search("teapot", 5)).extracting(SearchHit::id).containsExactly(42L);
+    }
+
+    @Test
+    void shouldRoundTripPostings() {
+        PostingList list = new PostingList();
+        int[] docs = {0, 1, 5, 130, 20_000, 3_000_000};
+        for (int doc : docs) {
+            list.add(doc, doc % 300 + 1);
+        }
+        list.trim();
+
+        List<int[]> read = new ArrayList<>();
+        list.forEach((doc, frequency) -> read.add(new int[]{doc, frequency}));
+
+        assertThat(list.count()).isEqualTo(docs.length);
+        assertThat(read).hasSize(docs.length);
+        for (int i = 0; i < docs.length; i++) {
+            assertThat(read.get(i)).containsExactly(docs[i], docs[i] % 300 + 1);
+        }
+    }
+
+    @Test
+    void shouldFuseRankingsByReciprocalRank() {
+        List<SearchHit> lexical = List.of(new SearchHit(1, 9.0), new SearchHit(2, 5.0), new SearchHit(3, 1.0));
+        List<SearchHit> vector = List.of(new SearchHit(2, 0.9), new SearchHit(4, 0.8));
+
+        List<SearchHit> fused = RankFusion.reciprocalRank(List.of(lexical, vector), 3, RankFusion.DEFAULT_RANK_CONSTANT);
+
+        // 2 appears in both rankings, so it beats 1 even though 1 is first lexically
+        assertThat(fused).extracting(SearchHit::id).containsExactly(2L, 1L, 4L);
+        assertThat(fused.get(0).score()).isEqualTo(1.0 / 62 + 1.0 / 61, offset(1e-9));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.backend.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExactSearchEngineTest {
+
+    private static final int DIMENSION = 16;
+
+    @TempDir
+    Path tempDir;
+
+    private final ExactSearchEngine engine = new ExactSearchEngine(4);
+    private final Random random = new Random(11);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        engine.close();
+    }
+
+    @Test
+    void shouldMatchBruteForceForAnyParallelism() throws IOException {
+        int count = 10 * ExactSearchEngine.MIN_CHUNK_SLOTS + 17;
+        List<float[]> vectors = new ArrayList<>();
+
+        try (MappedVectorStore store = MappedVectorStore.create(tempDir.resolve("embeddings.bin"), DIMENSION)) {
+            for (int i = 0; i < count; i++) {
+                float[] vector = Vectors.normalize(randomVector());
+                vectors.add(vector);
+                store.put(i + 1, vector);
+            }
+            store.remove(5L);
+            float[] query = Vectors.normalize(randomVector());
+
+            List<Long> expected = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                if (i + 1 != 5) {
+                    expected.add((long) i + 1);
+                }
+            }
+            expected.sort(Comparator.comparingDouble((Long id) -> Vectors.dot(query, vectors.get((int) (id - 1)))).reversed());
+
+            for (int parallelism : new int[]{1, 3, 4, 64}) {
+                List<SearchHit> hits = engine.search(store, query, 25, -1, parallelism);
+
+                assertThat(hits).extracting(SearchHit::id).containsExactlyElementsOf(expected.subList(0, 25));
+            }
+        }
+    }
+
+    @Test
+    void shouldOnlyReturnFilteredIds() throws IOException {
+        AttributeIndex attributes = new AttributeIndex();
+        try (MappedVectorStore store = MappedVectorStore.create(tempDir.resolve("embeddings.bin"), DIMENSION)) {
+            for (int i = 1; i <= 4 * ExactSearchEngine.MIN_CHUNK_SLOTS; i++) {
+                store.put(i, Vectors.normalize(randomVector()));
+                // Every 3rd product is in "a", every 50th in "b": one scanned, one scored as a subset
+                attributes.put(i, i % 50 == 0 ? "b" : i % 3 == 0 ? "a" : "c", BigDecimal.ONE, 1, true);
+            }
+            float[] query = Vectors.normalize(randomVector());
+
+            for (String category : new String[]{"a", "b"}) {
+                FilterBitmap filter = attributes.filter(category, null, null, null);
+                List<SearchHit> unfiltered = engine.search(store, query, store.size(), -1, 4);
+                List<Long> expected = unfiltered.stream().map(SearchHit::id).filter(filter::test).limit(10).toList();
+
+                List<SearchHit> hits = engine.search(store, query, 10, -1, 4, filter);
+
+                assertThat(hits).extracting(SearchHit::id).containsExactlyElementsOf(expected);
+            }
+        }
+    }
+
+    @Test
+    void shouldApplyMinScore() throws IOException {
+        try (MappedVectorStore store = MappedVectorStore.create(tempDir.resolve("embeddings.bin"), DIMENSION)) {
+            for (int i = 0; i < 100; i++) {
+                store.put(i + 1, Vectors.normalize(randomVector()));
+            }
+            float[] query = Vectors.normalize(randomVector());
+
+            List<SearchHit> hits = engine.search(store, query, 100, 0.3, 2);
+
+            assertThat(hits).isNotEmpty().hasSizeLessThan(100);
+            assertThat(hits).allSatisfy(hit -> assertThat(hit.score()).isGreaterThanOrEqualTo(0.3));
+        }
+    }
+
+    @Test
+    void shouldKeepBestScoresInTopK() {
+        TopK top = new TopK(3);
+        float[] scores = {0.1f, 0.9f, 0.5f, 0.3f, 0.7f, 0.2f};
+        for (int i = 0; i < scores.length; i++) {
+            top.offer(i, scores[i]);
+        }
+        TopK other = new TopK(3);
+        other.offer(10, 0.8f);
+        top.merge(other);
+
+        assertThat(top.toHits()).extracting(SearchHit::id).containsExactly(1L, 10L, 4L);
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.backend.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HnswVectorIndexTest {
+
+    private static final int DIMENSION = 32;
+    private static final int SIZE = 2000;
+
+    @TempDir
+    Path tempDir;
+
+    private final Random random = new Random(42);
+    private float[][] vectors;
+    private HnswVectorIndex index;
+
+    @BeforeEach
+    void setUp() {
+        vectors = new float[SIZE][];
+        index = new HnswVectorIndex(16, 200, 100, new Random(7));
+        for (int i = 0; i < SIZE; i++) {
+            vectors[i] = randomVector();
+            index.add(i, vectors[i]);
+        }
+    }
+
+    @Test
+    void shouldMatchExactSearchRecall() {
+        int queries = 50;
+        int found = 0;
+
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector();
+            Set<Long> expected = exactTopK(query, 10);
+            Set<Long> actual = index.search(query, 10, -1).stream()
+                    .map(SearchHit::id)
+                    .collect(Collectors.toSet());
+            actual.retainAll(expected);
+            found += actual.size();
+        }
+
+        double recall = found / (queries * 10.0);
+        assertThat(recall).isGreaterThan(0.9);
+    }
+
+    @Test
+    void shouldReturnHitsOrderedByScore() {
+        List<SearchHit> hits = index.search(randomVector(), 10, -1);
+
+        assertThat(hits).hasSize(10);
+        assertThat(hits).isSortedAccordingTo(Comparator.comparingDouble(SearchHit::score).reversed());
+    }
+
+    @Test
+    void shouldNotReturnRemovedIds() {
+        float[] query = vectors[123];
+
+        assertThat(index.search(query, 1, -1).get(0).id()).isEqualTo(123L);
+
+        assertThat(index.remove(123)).isTrue();
+
+        assertThat(index.size()).isEqualTo(SIZE - 1);
+        assertThat(index.search(query, 10, -1)).extracting(SearchHit::id).doesNotContain(123L);
+    }
+
+    @Test
+    void shouldCountTombstonesLeftByRemovalsAndReplacements() {
+        index.remove(1);
+        index.add(2, randomVector());
+
+        assertThat(index.tombstones()).isEqualTo(2);
+        assertThat(index.holds(3, vectors[3])).isTrue();
+        assertThat(index.holds(2, vectors[2])).isFalse();
+        assertThat(index.holds(1, vectors[1])).isFalse();
+    }
+
+    @Test
+    void shouldOnlyReturnIdsAcceptedByFilter() {
+        float[] query = vectors[10];
+
+        List<SearchHit> hits = index.search(query, 10, -1, id -> id % 7 == 3);
+
+        assertThat(hits).hasSize(10);
+        assertThat(hits).allSatisfy(hit -> assertThat(hit.id() % 7).isEqualTo(3L));
+        assertThat(hits.get(0).id()).isEqualTo(exactBest(query, id -> id % 7 == 3));
+    }
+
+    @Test
+    void shouldApplyMinScore() {
+        List<SearchHit> hits = index.search(vectors[5], 10, 0.99);
+
+        assertThat(hits).extracting(SearchHit::id).containsExactly(5L);
+    }
+
+    @Test
+    void shouldKeepRecallWithConcurrentInsertsAndSearches() throws Exception {
+        HnswVectorIndex concurrent = new HnswVectorIndex(16, 200, 100, new Random(7));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int first = t;
+                writers.add(executor.submit(() -> {
+                    for (int i = first; i < SIZE; i += 4) {
+                        concurrent.add(i, vectors[i]);
+                        concurrent.search(vectors[i], 5, -1);
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int queries = 50;
+        int found = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector();
+            Set<Long> expected = exactTopK(query, 10);
+            Set<Long> actual = concurrent.search(query, 10, -1).stream()
+                    .map(SearchHit::id)
+                    .collect(Collectors.toSet());
+            actual.retainAll(expected);
+            found += actual.size();
+        }
+
+        assertThat(concurrent.size()).isEqualTo(SIZE);
+        assertThat(found / (queries * 10.0)).isGreaterThan(0.9);
+    }
+
+    private long exactBest(float[] query, LongPredicate filter) {
+        float[] normalizedQuery = Vectors.normalize(query);
+        return IntStream.range(0, SIZE)
+                .filter(i -> filter.test(i))
+                .boxed()
+                .max(Comparator.comparingDouble((Integer i) -> Vectors.dot(normalizedQuery, Vectors.normalize(vectors[i]))))
+                .orElseThrow()
+                .longValue();
+    }
+
+    private Set<Long> exactTopK(float[] query, int k) {
+        float[] normalizedQuery = Vectors.normalize(query);
+        return IntStream.range(0, SIZE)
+                .boxed()
+                .sorted(Comparator.comparingDouble(
+                        (Integer i) -> Vectors.dot(normalizedQuery, Vectors.normalize(vectors[i]))).reversed())
+                .limit(k)
+                .map(Integer::longValue)
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    void shouldRestoreSnapshotWithWatermark() throws IOException {
+        index.remove(3L);
+        Path file = tempDir.resolve("hnsw.snap");
+        SnapshotWatermark watermark =
+                new SnapshotWatermark(LocalDateTime.of(2026, 5, 1, 12, 30, 15, 123_456_000), 1999);
+
+        index.writeSnapshot(file, watermark);
+        HnswVectorIndex.Snapshot snapshot = HnswVectorIndex.readSnapshot(file);
+
+        assertThat(snapshot.watermark()).isEqualTo(watermark);
+        assertThat(snapshot.index().size()).isEqualTo(SIZE - 1);
+        assertThat(snapshot.index().dimension()).isEqualTo(DIMENSION);
+        for (int q = 0; q < 20; q++) {
+            float[] query = randomVector();
+            assertThat(snapshot.index().search(query, 10, -1)).isEqualTo(index.search(query, 10, -1));
+        }
+        snapshot.index().add(SIZE, vectors[0]);
+        assertThat(snapshot.index().search(vectors[0], 2, -1)).extracting(SearchHit::id)
+                .containsExactlyInAnyOrder(0L, (long) SIZE);
+    }
+
+    @Test
+    void shouldRejectCorruptSnapshot() throws IOException {
+        Path file = tempDir.resolve("hnsw.snap");
+        index.writeSnapshot(file, SnapshotWatermark.NONE);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        assertThatThrownBy(() -> HnswVectorIndex.readSnapshot(file)).isInstanceOf(IOException.class);
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
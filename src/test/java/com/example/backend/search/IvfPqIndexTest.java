@@ -0,0 +1,113 @@
+package com.example.backend.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IvfPqIndexTest {
+
+    private static final int DIMENSION = 16;
+    private static final IvfPqIndex.Params PARAMS = new IvfPqIndex.Params(8, 4, 1000, 8);
+
+    @TempDir
+    Path tempDir;
+
+    private final Random random = new Random(17);
+
+    @Test
+    void shouldFindExactNeighboursAmongCandidatesWhenEveryListIsProbed() throws Exception {
+        List<float[]> vectors = randomVectors(1000);
+        Path file = tempDir.resolve("ivf-pq.bin");
+
+        try (IvfPqIndex index = IvfPqIndex.build(file, DIMENSION, PARAMS, 8, source(vectors), new Random(1));
+             MappedVectorStore store = MappedVectorStore.create(tempDir.resolve("embeddings.bin"), DIMENSION);
+             ExactSearchEngine engine = new ExactSearchEngine(1)) {
+            for (int i = 0; i < vectors.size(); i++) {
+                store.put(i + 1, vectors.get(i));
+            }
+            int found = 0;
+            for (int q = 0; q < 20; q++) {
+                float[] query = Vectors.normalize(randomVector());
+                Set<Long> expected = engine.search(store, query, 10, -1, 1).stream()
+                        .map(SearchHit::id).collect(Collectors.toSet());
+                found += (int) index.search(query, 100, Double.NEGATIVE_INFINITY, null, index.lists()).stream()
+                        .filter(hit -> expected.contains(hit.id())).count();
+            }
+
+            assertThat(index.size()).isEqualTo(1000);
+            assertThat(found / 200.0).isGreaterThanOrEqualTo(0.9);
+        }
+        assertThat(Files.exists(tempDir.resolve("ivf-pq.bin.records"))).isFalse();
+    }
+
+    @Test
+    void shouldReopenWrittenIndex() throws IOException {
+        List<float[]> vectors = randomVectors(300);
+        Path file = tempDir.resolve("ivf-pq.bin");
+        IvfPqIndex.build(file, DIMENSION, PARAMS, 8, source(vectors), new Random(1)).close();
+
+        try (IvfPqIndex index = IvfPqIndex.open(file, DIMENSION, 8)) {
+            assertThat(index.size()).isEqualTo(300);
+            assertThat(index.lists()).isEqualTo(8);
+            assertThat(index.search(vectors.get(41), 1, -1).get(0).id()).isEqualTo(42L);
+        }
+        assertThatThrownBy(() -> IvfPqIndex.open(file, DIMENSION * 2, 8)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldOverlayWritesMadeAfterTheBuild() throws IOException {
+        List<float[]> vectors = randomVectors(300);
+
+        try (IvfPqIndex index = IvfPqIndex.build(tempDir.resolve("ivf-pq.bin"), DIMENSION, PARAMS, 8,
+                source(vectors), new Random(1))) {
+            float[] moved = Vectors.normalize(randomVector());
+
+            assertThat(index.remove(5L)).isTrue();
+            assertThat(index.remove(5L)).isFalse();
+            index.add(7L, moved);
+            index.add(1000L, vectors.get(4));
+
+            assertThat(index.size()).isEqualTo(300);
+            assertThat(index.overlaySize()).isEqualTo(2);
+            assertThat(index.search(vectors.get(4), 1, -1).get(0).id()).isEqualTo(1000L);
+            assertThat(index.search(moved, 1, -1).get(0).id()).isEqualTo(7L);
+        }
+    }
+
+    private Consumer<BiConsumer<Long, float[]>> source(List<float[]> vectors) {
+        return consumer -> {
+            for (int i = 0; i < vectors.size(); i++) {
+                consumer.accept((long) i + 1, vectors.get(i));
+            }
+        };
+    }
+
+    private List<float[]> randomVectors(int count) {
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            vectors.add(Vectors.normalize(randomVector()));
+        }
+        return vectors;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
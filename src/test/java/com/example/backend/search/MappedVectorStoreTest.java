@@ -0,0 +1,64 @@
+package com.example.backend.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedVectorStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldPersistVectorsAcrossReopen() throws IOException {
+        Path file = tempDir.resolve("embeddings.bin");
+
+        try (MappedVectorStore store = MappedVectorStore.create(file, 3)) {
+            store.put(1L, new float[]{1f, 2f, 3f});
+            store.put(2L, new float[]{4f, 5f, 6f});
+            store.put(1L, new float[]{7f, 8f, 9f});
+        }
+
+        try (MappedVectorStore store = MappedVectorStore.open(file, 3)) {
+            float[] vector = new float[3];
+
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.get(1L, vector)).isTrue();
+            assertThat(vector).containsExactly(7f, 8f, 9f);
+            assertThat(store.get(2L, vector)).isTrue();
+            assertThat(vector).containsExactly(4f, 5f, 6f);
+        }
+    }
+
+    @Test
+    void shouldReuseFreedSlots() throws IOException {
+        try (MappedVectorStore store = MappedVectorStore.create(tempDir.resolve("embeddings.bin"), 2)) {
+            store.put(1L, new float[]{1f, 1f});
+            store.put(2L, new float[]{2f, 2f});
+
+            assertThat(store.remove(1L)).isTrue();
+            store.put(3L, new float[]{3f, 3f});
+
+            assertThat(store.slotCount()).isEqualTo(2);
+            assertThat(store.contains(1L)).isFalse();
+            assertThat(store.idAt(0)).isEqualTo(3L);
+        }
+    }
+
+    @Test
+    void shouldRejectStoreWithDifferentDimension() throws IOException {
+        Path file = tempDir.resolve("embeddings.bin");
+        MappedVectorStore.create(file, 4).close();
+
+        assertThatThrownBy(() -> MappedVectorStore.open(file, 3))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("dimension");
+        assertThat(Files.exists(file)).isTrue();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.backend.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PrefixVectorIndexTest {
+
+    private static final int DIMENSION = 32;
+
+    @TempDir
+    Path tempDir;
+
+    private final Random random = new Random(5);
+
+    @Test
+    void shouldMatchExactSearchWhenEverythingIsReranked() throws Exception {
+        PrefixVectorIndex index = new PrefixVectorIndex(8);
+
+        try (MappedVectorStore store = MappedVectorStore.create(tempDir.resolve("embeddings.bin"), DIMENSION);
+             ExactSearchEngine engine = new ExactSearchEngine(1)) {
+            for (int i = 1; i <= 2000; i++) {
+                float[] vector = Vectors.normalize(randomVector());
+                store.put(i, vector);
+                index.put(i, vector);
+            }
+            float[] query = Vectors.normalize(randomVector());
+
+            List<SearchHit> expected = engine.search(store, query, 10, -1, 1);
+            List<SearchHit> actual = index.search(store, query, 10, 2000, -1, null);
+
+            assertThat(actual).extracting(SearchHit::id)
+                    .containsExactlyElementsOf(expected.stream().map(SearchHit::id).toList());
+        }
+    }
+
+    @Test
+    void shouldSkipRemovedAndFilteredIds() throws IOException {
+        PrefixVectorIndex index = new PrefixVectorIndex(2);
+
+        try (MappedVectorStore store = MappedVectorStore.create(tempDir.resolve("embeddings.bin"), 4)) {
+            float[] near = Vectors.normalize(new float[]{1f, 0f, 0f, 0f});
+            float[] far = Vectors.normalize(new float[]{0f, 1f, 0f, 0f});
+            for (long id = 1; id <= 3; id++) {
+                store.put(id, id == 3 ? far : near);
+                index.put(id, id == 3 ? far : near);
+            }
+            index.remove(1L);
+
+            List<SearchHit> hits = index.search(store, near, 3, 3, -1, id -> id != 2L);
+
+            assertThat(index.size()).isEqualTo(2);
+            assertThat(hits).extracting(SearchHit::id).containsExactly(3L);
+        }
+    }
+
+    @Test
+    void shouldRenormalisePrefixes() {
+        float[] prefix = Vectors.prefix(new float[]{3f, 4f, 12f}, 2);
+
+        assertThat(prefix).containsExactly(new float[]{0.6f, 0.8f}, within(1e-6f));
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
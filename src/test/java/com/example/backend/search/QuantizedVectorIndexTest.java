@@ -0,0 +1,113 @@
+package com.example.backend.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class QuantizedVectorIndexTest {
+
+    private static final int DIMENSION = 64;
+    private static final int COUNT = 2000;
+
+    @TempDir
+    Path tempDir;
+
+    private final Random random = new Random(13);
+
+    @Test
+    void shouldKeepRecallWithInt8CodesAndExactReranking() throws Exception {
+        List<float[]> vectors = randomVectors();
+        QuantizedVectorIndex index = QuantizedVectorIndex.int8(
+                ScalarQuantizer.fit(DIMENSION, sink -> vectors.forEach(sink)));
+
+        assertThat(recallAt10(index, vectors, 50)).isGreaterThanOrEqualTo(0.95);
+        assertThat(index.bytesPerVector()).isEqualTo(DIMENSION + Long.BYTES);
+    }
+
+    @Test
+    void shouldFindNearestNeighboursWithBinaryCodesAndDeepReranking() throws Exception {
+        List<float[]> vectors = randomVectors();
+        QuantizedVectorIndex index = QuantizedVectorIndex.binary(DIMENSION);
+
+        assertThat(recallAt10(index, vectors, 400)).isGreaterThanOrEqualTo(0.8);
+        assertThat(index.bytesPerVector()).isEqualTo(Long.BYTES + Long.BYTES);
+    }
+
+    @Test
+    void shouldApproximateDotProductWithPerDimensionRanges() {
+        List<float[]> vectors = randomVectors();
+        ScalarQuantizer quantizer = ScalarQuantizer.fit(DIMENSION, sink -> vectors.forEach(sink));
+        byte[] codes = new byte[DIMENSION];
+        float[] query = vectors.get(0);
+        float[] target = vectors.get(1);
+
+        quantizer.encode(target, codes, 0);
+
+        assertThat(quantizer.query(query).score(codes, 0)).isCloseTo(Vectors.dot(query, target), within(0.05f));
+    }
+
+
+    @Test
+    void shouldCountOnlyLiveVectorsInBytes() {
+        QuantizedVectorIndex index = QuantizedVectorIndex.binary(DIMENSION);
+        for (long id = 1; id <= 3; id++) {
+            index.put(id, randomVector());
+        }
+        index.remove(2L);
+
+        assertThat(index.bytes()).isEqualTo(2 * index.bytesPerVector());
+    }
+
+    @Test
+    void shouldNameThePropertyAndAllowedValuesForAnUnknownMode() {
+        assertThat(Quantization.from(" Int8 ")).isEqualTo(Quantization.INT8);
+        assertThat(Quantization.from("")).isEqualTo(Quantization.NONE);
+        assertThatThrownBy(() -> Quantization.from("pq"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown app.search.quantization.mode 'pq'; expected one of none, int8, binary");
+    }
+    private double recallAt10(QuantizedVectorIndex index, List<float[]> vectors, int rerankDepth) throws Exception {
+        try (MappedVectorStore store = MappedVectorStore.create(tempDir.resolve("embeddings.bin"), DIMENSION);
+             ExactSearchEngine engine = new ExactSearchEngine(1)) {
+            for (int i = 0; i < vectors.size(); i++) {
+                store.put(i + 1, vectors.get(i));
+                index.put(i + 1, vectors.get(i));
+            }
+            int found = 0;
+            for (int q = 0; q < 20; q++) {
+                float[] query = Vectors.normalize(randomVector());
+                Set<Long> expected = engine.search(store, query, 10, -1, 1).stream()
+                        .map(SearchHit::id).collect(Collectors.toSet());
+                found += (int) index.search(store, query, 10, rerankDepth, -1, null).stream()
+                        .filter(hit -> expected.contains(hit.id())).count();
+            }
+            return found / 200.0;
+        }
+    }
+
+    private List<float[]> randomVectors() {
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++) {
+            vectors.add(Vectors.normalize(randomVector()));
+        }
+        return vectors;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
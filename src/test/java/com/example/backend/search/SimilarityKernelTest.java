@@ -0,0 +1,59 @@
+package com.example.backend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SimilarityKernelTest {
+
+    private final SimilarityKernel scalar = SimilarityKernels.scalar();
+    private final SimilarityKernel selected = SimilarityKernels.get();
+    private final Random random = new Random(3);
+
+    @Test
+    void shouldAgreeWithScalarKernelOnFloatVectors() {
+        // 3071 exercises the tail loop after the vector lanes
+        for (int dimension : new int[]{7, 256, 3071, 3072}) {
+            float[] a = randomVector(dimension);
+            float[] b = randomVector(dimension);
+
+            assertThat(selected.dot(a, b)).isCloseTo(scalar.dot(a, b), within(1e-3f));
+            assertThat(selected.dot(a, b, dimension / 2)).isCloseTo(scalar.dot(a, b, dimension / 2), within(1e-3f));
+            assertThat(selected.dot(a, b, 3, dimension / 2)).isCloseTo(scalar.dot(a, b, 3, dimension / 2), within(1e-3f));
+        }
+    }
+
+    @Test
+    void shouldAgreeWithScalarKernelOnInt8Vectors() {
+        byte[] a = Vectors.quantizeInt8(Vectors.normalize(randomVector(3071)));
+        byte[] b = Vectors.quantizeInt8(Vectors.normalize(randomVector(3071)));
+
+        assertThat(selected.dot(a, b)).isEqualTo(scalar.dot(a, b));
+        assertThat(selected.dot(a, b, 5, 3000)).isEqualTo(scalar.dot(a, b, 5, 3000));
+    }
+
+    @Test
+    void shouldApproximateCosineWithInt8Quantisation() {
+        float[] a = Vectors.normalize(randomVector(3072));
+        float[] b = Vectors.normalize(randomVector(3072));
+        float[] c = a.clone();
+        for (int i = 0; i < c.length; i++) {
+            c[i] += 0.01f * b[i];
+        }
+        c = Vectors.normalize(c);
+
+        assertThat(Vectors.dotInt8(Vectors.quantizeInt8(a), Vectors.quantizeInt8(c)))
+                .isCloseTo(Vectors.dot(a, c), within(0.05f));
+    }
+
+    private float[] randomVector(int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.LoginRequest;
+import com.example.backend.dto.LoginResponse;
+import com.example.backend.dto.RegisterRequest;
+import com.example.backend.entity.RevokedToken;
+import com.example.backend.entity.Role;
+import com.example.backend.entity.User;
+import com.example.backend.exception.BadRequestException;
+import com.example.backend.repository.RoleRepository;
+import com.example.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AuthServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RoleRepository roleRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private AuthenticationManager authenticationManager;
+
+    @Mock
+    private JwtService jwtService;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private RevokedTokenService revokedTokenService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private AuthService authService;
+
+    private User user;
+    private JwtService.VerifiedToken refreshToken;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        user.setIsActive(true);
+        user.setRoles(Set.of(new Role("USER", "Default user role")));
+        Instant issuedAt = Instant.now().minusSeconds(60);
+        refreshToken = new JwtService.VerifiedToken("jti-1", "alice", issuedAt, issuedAt.plusSeconds(3600), List.of());
+    }
+
+    @Test
+    void shouldHashThePasswordBeforeOpeningATransaction() {
+        when(passwordEncoder.encode("secret")).thenReturn("hash");
+        when(roleRepository.findByName("USER")).thenReturn(Optional.of(new Role("USER", "Default user role")));
+        when(userRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        authService.register(new RegisterRequest("bob", "bob@example.com", "secret", "Bob", "Smith"));
+
+        InOrder order = inOrder(passwordEncoder, transactionManager, userRepository);
+        order.verify(passwordEncoder).encode("secret");
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(userRepository).save(any());
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void shouldBuildLoginResponseFromTheAuthenticatedPrincipal() {
+        when(authenticationManager.authenticate(any()))
+                .thenReturn(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        when(jwtService.generateTokens(user)).thenReturn(new JwtService.TokenPair("access", "refresh"));
+
+        LoginResponse response = authService.login(new LoginRequest("alice", "secret"));
+
+        assertThat(response.getAccessToken()).isEqualTo("access");
+        assertThat(response.getRefreshToken()).isEqualTo("refresh");
+        assertThat(response.getUsername()).isEqualTo("alice");
+        assertThat(response.getRoles()).containsExactly("USER");
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void shouldRotateRefreshTokenWithOneLookup() {
+        when(jwtService.verify("refresh-token")).thenReturn(refreshToken);
+        when(userRepository.findWithRolesByUsername("alice")).thenReturn(Optional.of(user));
+        when(revokedTokenService.revoke("jti-1", "alice", refreshToken.expiresAt(), RevokedToken.Reason.ROTATED))
+                .thenReturn(true);
+        when(jwtService.generateTokens(user)).thenReturn(new JwtService.TokenPair("access", "refresh"));
+
+        LoginResponse response = authService.refreshToken("refresh-token");
+
+        assertThat(response.getAccessToken()).isEqualTo("access");
+        assertThat(response.getRefreshToken()).isEqualTo("refresh");
+        assertThat(response.getUserId()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldRevokeEveryTokenWhenARotatedRefreshTokenIsReused() {
+        when(jwtService.verify("refresh-token")).thenReturn(refreshToken);
+        when(userRepository.findWithRolesByUsername("alice")).thenReturn(Optional.of(user));
+        when(revokedTokenService.isRevoked("jti-1")).thenReturn(true);
+
+        assertThatThrownBy(() -> authService.refreshToken("refresh-token"))
+                .isInstanceOf(BadRequestException.class);
+        assertThat(user.getTokensValidAfter()).isNotNull();
+        verify(tokenRevocationService).revokeIssuedBefore(eq("alice"), any());
+        verify(jwtService, never()).generateTokens(any());
+    }
+
+    @Test
+    void shouldRejectTokensWithoutAnId() {
+        JwtService.VerifiedToken accessToken = new JwtService.VerifiedToken(null, "alice", refreshToken.issuedAt(),
+                refreshToken.expiresAt(), List.of());
+        when(jwtService.verify("access-token")).thenReturn(accessToken);
+
+        assertThatThrownBy(() -> authService.refreshToken("access-token"))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(userRepository, revokedTokenService);
+    }
+
+    @Test
+    void shouldRejectRefreshForDeactivatedUser() {
+        user.setIsActive(false);
+        when(jwtService.verify("refresh-token")).thenReturn(refreshToken);
+        when(userRepository.findWithRolesByUsername("alice")).thenReturn(Optional.of(user));
+
+        assertThatThrownBy(() -> authService.refreshToken("refresh-token"))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void shouldRevokeRefreshTokenOnLogout() {
+        when(jwtService.verify("refresh-token")).thenReturn(refreshToken);
+
+        authService.logout("refresh-token");
+
+        verify(revokedTokenService).revoke("jti-1", "alice", refreshToken.expiresAt(), RevokedToken.Reason.LOGOUT);
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.EmbeddingJob;
+import com.example.backend.entity.EmbeddingStatus;
+import com.example.backend.entity.Product;
+import com.example.backend.entity.ProductEmbedding;
+import com.example.backend.repository.EmbeddingJobRepository;
+import com.example.backend.repository.ProductEmbeddingRepository;
+import com.example.backend.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddingJobWorkerTest {
+
+    private static final String MODEL = "test-model";
+
+    @Mock
+    private EmbeddingJobRepository embeddingJobRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductEmbeddingRepository productEmbeddingRepository;
+
+    @Mock
+    private EmbeddingProvider embeddingProvider;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private EmbeddingJobWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        worker = new EmbeddingJobWorker(embeddingJobRepository, productRepository, productEmbeddingRepository,
+                embeddingProvider, eventPublisher, transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(worker, "batchSize", 32);
+        ReflectionTestUtils.setField(worker, "lease", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(worker, "maxAttempts", 3);
+        ReflectionTestUtils.setField(worker, "initialBackoff", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(worker, "maxBackoff", Duration.ofMinutes(10));
+    }
+
+    @Test
+    void shouldLeaseClaimedJobsAndWriteThemBack() {
+        EmbeddingJob job = job(0);
+        Product product = product("Desk lamp");
+        claim(job, product);
+        when(embeddingProvider.generateEmbeddings(List.of(EmbeddingTexts.textOf(product))))
+                .thenReturn(CompletableFuture.completedFuture(List.of(new float[]{3f, 4f})));
+        when(productRepository.lockAllById(any())).thenReturn(List.of(product));
+        when(productEmbeddingRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(embeddingJobRepository.findQueuedProductIds(any())).thenReturn(List.of());
+
+        LocalDateTime before = LocalDateTime.now();
+        assertThat(worker.processBatch()).isEqualTo(1);
+
+        assertThat(job.getAttempts()).isEqualTo(1);
+        assertThat(job.getNextAttemptAt()).isAfterOrEqualTo(before.plusMinutes(2));
+        ArgumentCaptor<List<ProductEmbedding>> saved = ArgumentCaptor.captor();
+        verify(productEmbeddingRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).singleElement().satisfies(embedding -> {
+            assertThat(embedding.getProductId()).isEqualTo(1L);
+            assertThat(embedding.getEmbedding()).containsExactly(0.6f, 0.8f);
+            assertThat(embedding.getContentFingerprint())
+                    .isEqualTo(EmbeddingTexts.fingerprint(EmbeddingTexts.textOf(product), MODEL));
+        });
+        verify(embeddingJobRepository).deleteAllByIdInBatch(List.of(10L));
+        assertThat(product.getEmbeddingStatus()).isEqualTo(EmbeddingStatus.READY);
+    }
+
+    @Test
+    void shouldKeepTheJobOfAProductEditedWhileItWasEmbedded() {
+        EmbeddingJob job = job(0);
+        Product product = product("Desk lamp");
+        claim(job, product);
+        when(embeddingProvider.generateEmbeddings(anyList()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(new float[]{1f, 0f})));
+        // The edit commits while the API call is in flight
+        Product edited = product("Floor lamp");
+        when(productRepository.lockAllById(any())).thenReturn(List.of(edited));
+
+        worker.processBatch();
+
+        verify(productEmbeddingRepository).saveAll(List.of());
+        verify(embeddingJobRepository).deleteAllByIdInBatch(List.of());
+        verify(embeddingJobRepository).release(eq(List.of(10L)), any());
+        verify(embeddingJobRepository, never()).findQueuedProductIds(any());
+        assertThat(edited.getEmbeddingStatus()).isEqualTo(EmbeddingStatus.PENDING);
+    }
+
+    @Test
+    void shouldStayPendingWhileANewerJobIsQueued() {
+        EmbeddingJob job = job(0);
+        Product product = product("Desk lamp");
+        claim(job, product);
+        when(embeddingProvider.generateEmbeddings(anyList()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(new float[]{1f, 0f})));
+        when(productRepository.lockAllById(any())).thenReturn(List.of(product));
+        when(productEmbeddingRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(embeddingJobRepository.findQueuedProductIds(any())).thenReturn(List.of(1L));
+
+        worker.processBatch();
+
+        verify(embeddingJobRepository).deleteAllByIdInBatch(List.of(10L));
+        assertThat(product.getEmbeddingStatus()).isEqualTo(EmbeddingStatus.PENDING);
+    }
+
+    @Test
+    void shouldBackOffAfterAFailedAttempt() {
+        EmbeddingJob job = job(0);
+        claim(job, product("Desk lamp"));
+        when(embeddingProvider.generateEmbeddings(anyList()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("rate limited")));
+        when(embeddingJobRepository.findById(10L)).thenReturn(Optional.of(job));
+
+        LocalDateTime before = LocalDateTime.now();
+        worker.processBatch();
+
+        // 5s with +/-20% jitter
+        assertThat(job.getNextAttemptAt()).isBetween(before.plusSeconds(4), LocalDateTime.now().plusSeconds(6));
+        assertThat(job.getLastError()).contains("rate limited");
+        verify(embeddingJobRepository, never()).delete(any());
+        verify(productEmbeddingRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void shouldMarkTheProductFailedOnceAttemptsRunOut() {
+        EmbeddingJob job = job(2);
+        Product product = product("Desk lamp");
+        claim(job, product);
+        when(embeddingProvider.generateEmbeddings(anyList()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("rate limited")));
+        when(embeddingJobRepository.findById(10L)).thenReturn(Optional.of(job));
+
+        worker.processBatch();
+
+        verify(embeddingJobRepository).delete(job);
+        assertThat(product.getEmbeddingStatus()).isEqualTo(EmbeddingStatus.FAILED);
+    }
+
+    @Test
+    void shouldDoubleTheBackoffUpToTheCap() {
+        assertThat(worker.backoff(1)).isBetween(Duration.ofSeconds(4), Duration.ofSeconds(6));
+        assertThat(worker.backoff(3)).isBetween(Duration.ofSeconds(16), Duration.ofSeconds(24));
+        assertThat(worker.backoff(30)).isBetween(Duration.ofMinutes(8), Duration.ofMinutes(12));
+    }
+
+    private void claim(EmbeddingJob job, Product product) {
+        when(embeddingProvider.modelId()).thenReturn(MODEL);
+        when(embeddingJobRepository.lockDueJobs(any(), eq(32))).thenReturn(List.of(job));
+        when(productRepository.findAllById(List.of(1L))).thenReturn(List.of(product));
+        when(productEmbeddingRepository.findContentFingerprints(any())).thenReturn(List.of());
+    }
+
+    private static EmbeddingJob job(int attempts) {
+        EmbeddingJob job = new EmbeddingJob(1L);
+        job.setId(10L);
+        job.setAttempts(attempts);
+        return job;
+    }
+
+    private static Product product(String name) {
+        Product product = new Product(name, "Adjustable, warm white", new BigDecimal("39.90"), "Lighting");
+        product.setId(1L);
+        return product;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.ProductEmbedding;
+import com.example.backend.repository.ProductEmbeddingRepository;
+import com.example.backend.search.ExactSearchEngine;
+import com.example.backend.search.MappedVectorStore;
+import com.example.backend.search.SnapshotWatermark;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddingStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private ProductEmbeddingRepository productEmbeddingRepository;
+
+    private ExactSearchEngine exactSearchEngine;
+    private EmbeddingStore embeddingStore;
+    private Path file;
+
+    @BeforeEach
+    void setUp() {
+        file = tempDir.resolve("embeddings.bin");
+        exactSearchEngine = new ExactSearchEngine(1);
+        embeddingStore = new EmbeddingStore(productEmbeddingRepository, exactSearchEngine, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(embeddingStore, "path", file);
+        ReflectionTestUtils.setField(embeddingStore, "dimension", 2);
+        ReflectionTestUtils.setField(embeddingStore, "prefixDimension", 0);
+        ReflectionTestUtils.setField(embeddingStore, "quantizationMode", "none");
+        ReflectionTestUtils.setField(embeddingStore, "replayOverlap", Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        embeddingStore.close();
+        exactSearchEngine.close();
+    }
+
+    @Test
+    void shouldReconcileAnExistingFileWithTheDatabase() throws IOException {
+        LocalDateTime recorded = LocalDateTime.of(2026, 1, 1, 12, 0);
+        try (MappedVectorStore stale = MappedVectorStore.create(file, 2)) {
+            stale.put(1L, new float[]{1f, 0f});
+            stale.put(2L, new float[]{0f, 1f});
+            stale.setWatermark(new SnapshotWatermark(recorded, 2L));
+        }
+        LocalDateTime latest = recorded.plusHours(1);
+        ProductEmbedding updated = new ProductEmbedding(1L, new float[]{0f, 1f});
+        updated.setUpdatedAt(latest);
+        List<Object[]> watermarks = List.<Object[]>of(new Object[]{latest, 1L});
+        when(productEmbeddingRepository.findLatestWatermarks(any())).thenReturn(watermarks);
+        when(productEmbeddingRepository.findWrittenAfter(eq(recorded.minusMinutes(5)), eq(0L), any()))
+                .thenReturn(List.of(updated));
+        when(productEmbeddingRepository.findProductIdsAfter(eq(0L), any())).thenReturn(List.of(1L, 3L));
+        when(productEmbeddingRepository.findAllById(List.of(3L)))
+                .thenReturn(List.of(new ProductEmbedding(3L, new float[]{1f, 0f})));
+
+        embeddingStore.open();
+
+        Map<Long, float[]> stored = new HashMap<>();
+        embeddingStore.forEach((id, vector) -> stored.put(id, vector.clone()));
+        assertThat(embeddingStore.ids()).containsExactly(1L, 3L);
+        assertThat(stored.get(1L)).containsExactly(0f, 1f);
+        embeddingStore.close();
+        try (MappedVectorStore reopened = MappedVectorStore.open(file, 2)) {
+            assertThat(reopened.watermark()).isEqualTo(new SnapshotWatermark(latest, 1L));
+        }
+    }
+
+    @Test
+    void shouldKeepWritesMadeWhileTheStoreIsRebuilt() throws IOException {
+        when(productEmbeddingRepository.findLatestWatermarks(any())).thenReturn(List.of());
+        when(productEmbeddingRepository.findAll(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(new ProductEmbedding(1L, new float[]{1f, 0f}))))
+                .thenAnswer(invocation -> {
+                    // Committed on another thread while the rebuild pages through the table
+                    embeddingStore.put(7L, new float[]{0f, 1f});
+                    embeddingStore.remove(1L);
+                    return new PageImpl<>(List.of(new ProductEmbedding(1L, new float[]{1f, 0f})));
+                });
+        when(productEmbeddingRepository.findAllById(anyList()))
+                .thenReturn(List.of(new ProductEmbedding(7L, new float[]{0f, 1f})));
+        embeddingStore.rebuild();
+
+        embeddingStore.rebuild();
+
+        Map<Long, float[]> stored = new HashMap<>();
+        embeddingStore.forEach((id, vector) -> stored.put(id, vector.clone()));
+        assertThat(stored).containsOnlyKeys(7L);
+        assertThat(stored.get(7L)).containsExactly(0f, 1f);
+    }
+}
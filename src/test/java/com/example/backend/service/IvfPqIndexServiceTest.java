@@ -0,0 +1,153 @@
+package com.example.backend.service;
+
+import com.example.backend.search.IvfPqIndex;
+import com.example.backend.search.SearchHit;
+import com.example.backend.search.Vectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IvfPqIndexServiceTest {
+
+    private static final int DIMENSION = 8;
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private EmbeddingStore embeddingStore;
+
+    private final Random random = new Random(23);
+    private final Map<Long, float[]> vectors = new TreeMap<>();
+    private IvfPqIndexService service;
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= 200; id++) {
+            vectors.put(id, randomVector());
+        }
+        service = new IvfPqIndexService(embeddingStore);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "path", tempDir.resolve("ivf-pq.bin"));
+        ReflectionTestUtils.setField(service, "dimension", DIMENSION);
+        ReflectionTestUtils.setField(service, "lists", 4);
+        ReflectionTestUtils.setField(service, "subspaces", 2);
+        ReflectionTestUtils.setField(service, "nprobe", 4);
+        ReflectionTestUtils.setField(service, "trainingSample", 200);
+        ReflectionTestUtils.setField(service, "iterations", 4);
+        ReflectionTestUtils.setField(service, "rerankDepth", 10);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        service.close();
+    }
+
+    @Test
+    void shouldKeepServingSearchesHeldOnTheReplacedIndex() throws InterruptedException {
+        streamVectors(null);
+        build();
+        IvfPqIndex previous = (IvfPqIndex) ReflectionTestUtils.getField(service, "index");
+
+        build();
+
+        assertThat(ReflectionTestUtils.getField(service, "index")).isNotSameAs(previous);
+        // Every list is probed, so each one is read through the closed index's mappings
+        assertThat(previous.search(vectors.get(42L), 200, Double.NEGATIVE_INFINITY, null, previous.lists()))
+                .hasSize(200);
+    }
+
+    @Test
+    void shouldReplayWritesMadeDuringABuildOntoTheNewIndex() throws InterruptedException {
+        CountDownLatch buildStarted = new CountDownLatch(1);
+        CountDownLatch writesDone = new CountDownLatch(1);
+        streamVectors(() -> {
+            buildStarted.countDown();
+            await(writesDone);
+        });
+        float[] added = randomVector();
+        when(embeddingStore.get(anyLong())).thenAnswer(invocation -> {
+            long id = invocation.getArgument(0);
+            return id == 201L ? added : id == 5L ? null : vectors.get(id);
+        });
+
+        assertThat(service.rebuildAsync()).isTrue();
+        await(buildStarted);
+        assertThat(service.rebuildAsync()).isFalse();
+        service.index(201L, added);
+        service.remove(5L);
+        writesDone.countDown();
+        awaitBuild();
+
+        IvfPqIndex rebuilt = (IvfPqIndex) ReflectionTestUtils.getField(service, "index");
+        assertThat(rebuilt.size()).isEqualTo(200);
+        // Every list is probed and every live vector returned
+        assertThat(rebuilt.search(added, 300, Double.NEGATIVE_INFINITY, null, rebuilt.lists()))
+                .extracting(SearchHit::id).hasSize(200).contains(201L).doesNotContain(5L);
+    }
+
+    private void build() throws InterruptedException {
+        assertThat(service.rebuildAsync()).isTrue();
+        awaitBuild();
+    }
+
+    private void awaitBuild() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (service.status().building() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(service.status().building()).isFalse();
+        assertThat(service.status().lastError()).isNull();
+    }
+
+    // forEach is called twice per build, to sample and to encode; onFirstCall runs before the first one streams
+    private void streamVectors(Runnable onFirstCall) {
+        boolean[] called = new boolean[1];
+        doAnswer(invocation -> {
+            if (onFirstCall != null && !called[0]) {
+                called[0] = true;
+                onFirstCall.run();
+            }
+            BiConsumer<Long, float[]> consumer = invocation.getArgument(0);
+            vectors.forEach(consumer);
+            return null;
+        }).when(embeddingStore).forEach(any());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(30, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return Vectors.normalize(vector);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.backend.service;
+
+import com.example.backend.config.JwtConfig;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JwtServiceTest {
+
+    @Mock
+    private JwtConfig jwtConfig;
+
+    private JwtService jwtService;
+    private UserDetails alice;
+
+    @BeforeEach
+    void setUp() {
+        when(jwtConfig.jwtSecretKey()).thenReturn(Jwts.SIG.HS256.key().build());
+        lenient().when(jwtConfig.getJwtExpiration()).thenReturn(3_600_000L);
+        jwtService = new JwtService(jwtConfig, new SimpleMeterRegistry(), 100);
+        alice = User.withUsername("alice").password("x").authorities("ROLE_USER", "ROLE_ADMIN").build();
+    }
+
+    @Test
+    void shouldVerifySubjectAndAuthoritiesOnce() {
+        String token = jwtService.generateToken(alice);
+
+        JwtService.VerifiedToken verified = jwtService.verify(token);
+
+        assertThat(verified.subject()).isEqualTo("alice");
+        assertThat(verified.authorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+        assertThat(verified.expiresAt()).isAfter(verified.issuedAt());
+        assertThat(jwtService.verify(token)).isSameAs(verified);
+        assertThat(jwtService.cachedTokens()).isEqualTo(1);
+        assertThat(jwtService.isTokenValid(token, alice)).isTrue();
+    }
+
+    @Test
+    void shouldRejectTamperedTokensWithoutCachingThem() {
+        String token = jwtService.generateToken(alice);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThatThrownBy(() -> jwtService.verify(tampered)).isInstanceOf(JwtException.class);
+        assertThat(jwtService.cachedTokens()).isZero();
+        assertThat(jwtService.isTokenValid(tampered, alice)).isFalse();
+    }
+
+    @Test
+    void shouldRejectExpiredTokens() {
+        when(jwtConfig.getJwtExpiration()).thenReturn(-1_000L);
+        String token = jwtService.generateToken(alice);
+
+        assertThatThrownBy(() -> jwtService.verify(token)).isInstanceOf(ExpiredJwtException.class);
+        assertThat(jwtService.cachedTokens()).isZero();
+    }
+
+    @Test
+    void shouldNotMatchAnotherUser() {
+        String token = jwtService.generateToken(alice);
+        UserDetails bob = User.withUsername("bob").password("x")
+                .authorities(List.of(new SimpleGrantedAuthority("ROLE_USER"))).build();
+
+        assertThat(jwtService.isTokenValid(token, bob)).isFalse();
+    }
+}
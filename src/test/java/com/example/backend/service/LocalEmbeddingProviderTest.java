@@ -0,0 +1,35 @@
+package com.example.backend.service;
+
+import com.example.backend.search.Vectors;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalEmbeddingProviderTest {
+
+    private final LocalEmbeddingProvider provider = new LocalEmbeddingProvider(256);
+
+    @Test
+    void shouldProduceDeterministicUnitVectors() {
+        float[] first = provider.embed("Wireless Bluetooth headphones");
+        float[] second = provider.embed("wireless   bluetooth HEADPHONES");
+
+        assertThat(first).hasSize(256);
+        assertThat(Vectors.isNormalized(first)).isTrue();
+        assertThat(second).containsExactly(first);
+    }
+
+    @Test
+    void shouldScoreOverlappingTextsHigherThanUnrelatedOnes() {
+        float[] query = provider.embed("wireless headphone");
+        float[] related = provider.embed("Noise cancelling wireless headphones");
+        float[] unrelated = provider.embed("Stainless steel kitchen knife set");
+
+        assertThat(Vectors.dot(query, related)).isGreaterThan(Vectors.dot(query, unrelated) + 0.2f);
+    }
+
+    @Test
+    void shouldEmbedEmptyTextAsZeroVector() {
+        assertThat(provider.embed("  ")).containsOnly(0f);
+    }
+}
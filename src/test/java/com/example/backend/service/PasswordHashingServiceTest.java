@@ -0,0 +1,78 @@
+package com.example.backend.service;
+
+import com.example.backend.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingServiceTest {
+
+    @Test
+    void shouldHashAndVerifyOnThePool() {
+        PasswordHashingService service = new PasswordHashingService(new SimpleMeterRegistry(), 4, 2, 4);
+
+        String hash = service.encode("secret");
+
+        assertThat(hash).startsWith("$2a$04$");
+        assertThat(service.matches("secret", hash)).isTrue();
+        assertThat(service.matches("wrong", hash)).isFalse();
+        service.stop();
+    }
+
+    @Test
+    void shouldUpgradeHashesAtAnotherCost() {
+        PasswordHashingService service = new PasswordHashingService(new SimpleMeterRegistry(), 5, 1, 1);
+
+        assertThat(service.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret"))).isTrue();
+        assertThat(service.upgradeEncoding(new BCryptPasswordEncoder(5).encode("secret"))).isFalse();
+        assertThat(service.upgradeEncoding("{noop}secret")).isFalse();
+        assertThat(service.upgradeEncoding(null)).isFalse();
+        service.stop();
+    }
+
+    @Test
+    void shouldRejectImmediatelyWhenTheQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blocking = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash:" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encodedPassword.equals(encode(rawPassword));
+            }
+        };
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PasswordHashingService service = new PasswordHashingService(blocking, 12, 1, 1, meterRegistry);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> service.encode("a"));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> service.encode("b"));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (meterRegistry.get("password.hash.queued").gauge().value() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThatThrownBy(() -> service.encode("c")).isInstanceOf(ServiceUnavailableException.class);
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash:a");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash:b");
+        assertThat(meterRegistry.get("password.hash.rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("password.hash.wait").timer().count()).isEqualTo(2);
+        service.stop();
+    }
+}
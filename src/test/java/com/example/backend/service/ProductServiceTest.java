@@ -0,0 +1,163 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.ProductDto;
+import com.example.backend.entity.EmbeddingJob;
+import com.example.backend.entity.EmbeddingStatus;
+import com.example.backend.entity.Product;
+import com.example.backend.repository.EmbeddingJobRepository;
+import com.example.backend.repository.ProductEmbeddingRepository;
+import com.example.backend.repository.ProductRepository;
+import com.example.backend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductServiceTest {
+
+    private static final String MODEL = "test-model";
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductEmbeddingRepository productEmbeddingRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EmbeddingStore embeddingStore;
+
+    @Mock
+    private VectorIndexService vectorIndexService;
+
+    @Mock
+    private IvfPqIndexService ivfPqIndexService;
+
+    @Mock
+    private LexicalIndexService lexicalIndexService;
+
+    @Mock
+    private AttributeIndexService attributeIndexService;
+
+    @Mock
+    private SearchCursorService searchCursorService;
+
+    @Mock
+    private EmbeddingJobRepository embeddingJobRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EmbeddingProvider embeddingProvider;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        productService = new ProductService(productRepository, productEmbeddingRepository, userRepository,
+                embeddingStore, vectorIndexService, ivfPqIndexService, lexicalIndexService, attributeIndexService,
+                searchCursorService, embeddingJobRepository, eventPublisher, meterRegistry);
+        ReflectionTestUtils.setField(productService, "embeddingProvider", embeddingProvider);
+        when(embeddingProvider.modelId()).thenReturn(MODEL);
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void shouldNotReembedWhenOnlyThePriceChanges() {
+        Product product = product(EmbeddingStatus.READY);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productEmbeddingRepository.findContentFingerprint(1L))
+                .thenReturn(Optional.of(fingerprint("Desk lamp", "Warm white")));
+
+        productService.updateProduct(1L, update("Desk lamp", "Warm white", "24.90"));
+
+        verify(embeddingJobRepository, never()).save(any());
+        assertThat(product.getEmbeddingStatus()).isEqualTo(EmbeddingStatus.READY);
+        assertThat(reembeds("skipped")).isEqualTo(1);
+        assertThat(reembeds("performed")).isZero();
+    }
+
+    @Test
+    void shouldQueueAReembedWhenTheTextChanges() {
+        Product product = product(EmbeddingStatus.READY);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productEmbeddingRepository.findContentFingerprint(1L))
+                .thenReturn(Optional.of(fingerprint("Desk lamp", "Warm white")));
+
+        ProductDto updated = productService.updateProduct(1L, update("Desk lamp", "Daylight white", "39.90"));
+
+        verify(embeddingJobRepository).save(any(EmbeddingJob.class));
+        assertThat(updated.getEmbeddingStatus()).isEqualTo("PENDING");
+        assertThat(reembeds("performed")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotQueueASecondJobWhileTheFirstIsPending() {
+        // Created, or edited again, before its job ran: no embedding with this text yet
+        Product product = product(EmbeddingStatus.PENDING);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productEmbeddingRepository.findContentFingerprint(1L)).thenReturn(Optional.empty());
+        when(productEmbeddingRepository.existsById(1L)).thenReturn(false);
+
+        productService.updateProduct(1L, update("Desk lamp", "Warm white", "24.90"));
+
+        verify(embeddingJobRepository, never()).save(any());
+        assertThat(reembeds("skipped")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCompareTheTextOfEmbeddingsWrittenWithoutAFingerprint() {
+        Product product = product(EmbeddingStatus.READY);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productEmbeddingRepository.findContentFingerprint(1L)).thenReturn(Optional.empty());
+        when(productEmbeddingRepository.existsById(1L)).thenReturn(true);
+
+        productService.updateProduct(1L, update("Desk lamp", "Warm white", "24.90"));
+
+        verify(embeddingJobRepository, never()).save(any());
+        assertThat(reembeds("skipped")).isEqualTo(1);
+    }
+
+    private double reembeds(String outcome) {
+        return meterRegistry.get("embedding.reembeds").tag("outcome", outcome).counter().count();
+    }
+
+    private static Product product(EmbeddingStatus status) {
+        Product product = new Product("Desk lamp", "Warm white", new BigDecimal("39.90"), "Lighting");
+        product.setId(1L);
+        product.setEmbeddingStatus(status);
+        return product;
+    }
+
+    private static ProductDto update(String name, String description, String price) {
+        ProductDto dto = new ProductDto();
+        dto.setName(name);
+        dto.setDescription(description);
+        dto.setPrice(new BigDecimal(price));
+        dto.setCategory("Lighting");
+        dto.setStockQuantity(5);
+        return dto;
+    }
+
+    private static String fingerprint(String name, String description) {
+        return EmbeddingTexts.fingerprint(name + " " + description, MODEL);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RapidApiEmbeddingServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private List<List<String>> requests;
+    private List<CompletableFuture<List<float[]>>> calls;
+    private RapidApiEmbeddingService embeddingService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        requests = new ArrayList<>();
+        calls = new ArrayList<>();
+        embeddingService = new RapidApiEmbeddingService(meterRegistry, 100, Duration.ofMinutes(5)) {
+            @Override
+            protected CompletableFuture<List<float[]>> fetchEmbeddings(List<String> inputs) {
+                CompletableFuture<List<float[]>> call = new CompletableFuture<>();
+                requests.add(inputs);
+                calls.add(call);
+                return call;
+            }
+        };
+        ReflectionTestUtils.setField(embeddingService, "batchMaxSize", 2);
+        ReflectionTestUtils.setField(embeddingService, "batchMaxTokens", 1000);
+        ReflectionTestUtils.setField(embeddingService, "batchConcurrency", 2);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        embeddingService.close();
+    }
+
+    @Test
+    void shouldShareInFlightCallAndCacheResult() throws Exception {
+        CompletableFuture<float[]> first = embeddingService.generateEmbedding("Wireless headphones");
+        CompletableFuture<float[]> second = embeddingService.generateEmbedding("  wireless   HEADPHONES ");
+
+        assertThat(calls).hasSize(1);
+        calls.get(0).complete(List.of(new float[]{1f, 2f}));
+
+        assertThat(first.get()).containsExactly(1f, 2f);
+        assertThat(second.get()).containsExactly(1f, 2f);
+        assertThat(first.get()).isNotSameAs(second.get());
+
+        assertThat(embeddingService.generateEmbedding("wireless headphones").get()).containsExactly(1f, 2f);
+        assertThat(calls).hasSize(1);
+        assertThat(meterRegistry.counter("embedding.api.calls").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("embedding.api.calls.saved").count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCacheFailedCalls() {
+        CompletableFuture<float[]> failed = embeddingService.generateEmbedding("laptop");
+        calls.get(0).completeExceptionally(new IllegalStateException("rate limited"));
+
+        assertThat(failed).isCompletedExceptionally();
+
+        embeddingService.generateEmbedding("laptop");
+        assertThat(calls).hasSize(2);
+    }
+
+    @Test
+    void shouldBatchUncachedTextsWithBoundedConcurrency() throws Exception {
+        embeddingService.generateEmbedding("a");
+        calls.get(0).complete(List.of(new float[]{0f}));
+
+        CompletableFuture<List<float[]>> result =
+                embeddingService.generateEmbeddings(List.of("a", "b", "c", "B", "d", "e", "f"));
+
+        // "a" is cached and "B" shares "b"; two requests of at most two texts go out first
+        assertThat(requests).containsExactly(List.of("a"), List.of("b", "c"), List.of("d", "e"));
+        calls.get(1).complete(List.of(new float[]{2f}, new float[]{3f}));
+        assertThat(requests).hasSize(4).last().isEqualTo(List.of("f"));
+        calls.get(2).complete(List.of(new float[]{4f}, new float[]{5f}));
+        calls.get(3).complete(List.of(new float[]{6f}));
+
+        assertThat(result.get()).extracting(embedding -> embedding[0])
+                .containsExactly(0f, 2f, 3f, 2f, 4f, 5f, 6f);
+        assertThat(meterRegistry.counter("embedding.api.calls").count()).isEqualTo(4);
+        assertThat(meterRegistry.counter("embedding.api.calls.saved").count()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(6);
+    }
+}
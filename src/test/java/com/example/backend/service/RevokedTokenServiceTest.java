@@ -0,0 +1,112 @@
+package com.example.backend.service;
+
+import com.example.backend.config.JwtConfig;
+import com.example.backend.entity.RevokedToken;
+import com.example.backend.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RevokedTokenServiceTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Mock
+    private JwtConfig jwtConfig;
+
+    private RevokedTokenService revokedTokenService;
+
+    @BeforeEach
+    void setUp() {
+        when(jwtConfig.getRefreshExpiration()).thenReturn(604_800_000L);
+        revokedTokenService = new RevokedTokenService(revokedTokenRepository, jwtConfig, 4);
+        ReflectionTestUtils.setField(revokedTokenService, "pollInterval", Duration.ofSeconds(30));
+    }
+
+    @Test
+    void shouldAnswerFromMemoryOnceRevoked() {
+        when(revokedTokenRepository.insertIfAbsent(eq("jti-1"), eq("alice"), eq("ROTATED"), any(), any()))
+                .thenReturn(1, 0);
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+
+        assertThat(revokedTokenService.revoke("jti-1", "alice", expiresAt, RevokedToken.Reason.ROTATED)).isTrue();
+        assertThat(revokedTokenService.isRevoked("jti-1")).isTrue();
+        assertThat(revokedTokenService.isRevoked("jti-2")).isFalse();
+        // Already revoked, possibly by another node
+        assertThat(revokedTokenService.revoke("jti-1", "alice", expiresAt, RevokedToken.Reason.ROTATED)).isFalse();
+    }
+
+    @Test
+    void shouldRememberOnlyOnceTheTransactionCommits() {
+        when(revokedTokenRepository.insertIfAbsent(anyString(), anyString(), anyString(), any(), any())).thenReturn(1);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            revokedTokenService.revoke("jti-1", "alice", Instant.now().plusSeconds(3600), RevokedToken.Reason.ROTATED);
+
+            assertThat(revokedTokenService.isRevoked("jti-1")).isFalse();
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+            assertThat(revokedTokenService.isRevoked("jti-1")).isTrue();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldKeepEveryIdWhenGrowingPastTheExpectedCount() {
+        when(revokedTokenRepository.insertIfAbsent(anyString(), anyString(), anyString(), any(), any())).thenReturn(1);
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+        for (int i = 0; i < 100; i++) {
+            revokedTokenService.revoke("jti-" + i, "alice", expiresAt, RevokedToken.Reason.LOGOUT);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(revokedTokenService.isRevoked("jti-" + i)).isTrue();
+        }
+        assertThat(revokedTokenService.size()).isEqualTo(100);
+    }
+
+    @Test
+    void shouldPickUpRevocationsFromOtherNodes() {
+        List<Object[]> rows = List.<Object[]>of(new Object[]{"jti-1", LocalDateTime.now().plusHours(1)});
+        when(revokedTokenRepository.findRevokedSince(any(), any())).thenReturn(rows);
+
+        revokedTokenService.poll();
+
+        assertThat(revokedTokenService.isRevoked("jti-1")).isTrue();
+        verify(revokedTokenRepository, never()).deleteExpired(any());
+    }
+
+    @Test
+    void shouldDropIdsOnceTheirTokensExpire() {
+        when(revokedTokenRepository.insertIfAbsent(anyString(), anyString(), anyString(), any(), any())).thenReturn(1);
+        Instant now = Instant.now();
+        revokedTokenService.revoke("expired", "alice", now.minusSeconds(1), RevokedToken.Reason.ROTATED);
+        revokedTokenService.revoke("live", "alice", now.plusSeconds(3600), RevokedToken.Reason.ROTATED);
+
+        revokedTokenService.prune(now);
+
+        assertThat(revokedTokenService.isRevoked("expired")).isFalse();
+        assertThat(revokedTokenService.isRevoked("live")).isTrue();
+        verify(revokedTokenRepository).deleteExpired(any());
+    }
+}
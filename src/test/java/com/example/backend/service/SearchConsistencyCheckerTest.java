@@ -0,0 +1,128 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Product;
+import com.example.backend.entity.ProductEmbedding;
+import com.example.backend.repository.ProductEmbeddingRepository;
+import com.example.backend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SearchConsistencyCheckerTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductEmbeddingRepository productEmbeddingRepository;
+
+    @Mock
+    private EmbeddingStore embeddingStore;
+
+    @Mock
+    private VectorIndexService vectorIndexService;
+
+    @Mock
+    private LexicalIndexService lexicalIndexService;
+
+    @Mock
+    private AttributeIndexService attributeIndexService;
+
+    @Mock
+    private SearchIndexUpdater searchIndexUpdater;
+
+    @InjectMocks
+    private SearchConsistencyChecker checker;
+
+    private final ProductEmbedding first = new ProductEmbedding(1L, new float[]{1f, 0f});
+    private final ProductEmbedding third = new ProductEmbedding(3L, new float[]{0f, 1f});
+
+    @BeforeEach
+    void setUp() {
+        List<Object[]> products = List.of(new Object[]{1L, true}, new Object[]{2L, false}, new Object[]{3L, true});
+        when(productRepository.findIdsAndActiveAfter(eq(0L), any())).thenReturn(products);
+        when(productEmbeddingRepository.findProductIdsAfter(eq(0L), any())).thenReturn(List.of(1L, 3L));
+        when(lexicalIndexService.isReady()).thenReturn(true);
+        when(lexicalIndexService.ids()).thenReturn(new long[]{1L, 2L, 4L});
+        when(attributeIndexService.isReady()).thenReturn(true);
+        when(attributeIndexService.ids()).thenReturn(new long[]{1L, 2L, 3L});
+        when(attributeIndexService.activeIds()).thenReturn(new long[]{1L, 3L});
+        when(embeddingStore.isReady()).thenReturn(true);
+        when(embeddingStore.ids()).thenReturn(new long[]{1L, 3L});
+        when(productEmbeddingRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(first, third)));
+    }
+
+    @Test
+    void shouldReportMissingAndStaleIds() {
+        when(embeddingStore.holds(anyLong(), any())).thenReturn(true);
+
+        SearchConsistencyChecker.Report report = checker.check(false);
+
+        assertThat(report.consistent()).isFalse();
+        assertThat(report.repaired()).isZero();
+        assertThat(report.structures()).extracting(SearchConsistencyChecker.Drift::structure)
+                .containsExactly("lexical", "attributes", "attributes-active", "embedding-store");
+        SearchConsistencyChecker.Drift lexical = report.structures().get(0);
+        assertThat(lexical.expected()).isEqualTo(3);
+        assertThat(lexical.indexed()).isEqualTo(3);
+        assertThat(lexical.missingSample()).containsExactly(3L);
+        assertThat(lexical.staleSample()).containsExactly(4L);
+        assertThat(lexical.contentChecked()).isFalse();
+        assertThat(report.structures().get(3).contentChecked()).isTrue();
+        assertThat(report.structures().subList(1, 4)).allMatch(SearchConsistencyChecker.Drift::consistent);
+        verify(searchIndexUpdater, never()).applyProduct(any());
+    }
+
+    @Test
+    void shouldReindexExistingAndRemoveDeletedIdsOnRepair() {
+        Product product = new Product("Lamp", "Desk lamp", new BigDecimal("19.99"), "Home");
+        product.setId(3L);
+        product.setIsActive(true);
+        when(productRepository.findAllById(List.of(3L, 4L))).thenReturn(List.of(product));
+        when(embeddingStore.holds(anyLong(), any())).thenReturn(true);
+
+        SearchConsistencyChecker.Report report = checker.check(true);
+
+        assertThat(report.repaired()).isEqualTo(2);
+        verify(searchIndexUpdater).applyProduct(product);
+        verify(searchIndexUpdater).removeProduct(4L);
+    }
+
+    @Test
+    void shouldReportAndReloadOutdatedVectors() {
+        when(embeddingStore.holds(1L, first.getEmbedding())).thenReturn(true);
+        when(embeddingStore.holds(3L, third.getEmbedding())).thenReturn(false);
+        when(vectorIndexService.isReady()).thenReturn(true);
+        when(vectorIndexService.ids()).thenReturn(new long[]{1L, 3L});
+        when(vectorIndexService.holds(anyLong(), any())).thenReturn(true);
+        when(productEmbeddingRepository.findAllById(List.of(3L))).thenReturn(List.of(third));
+        when(productRepository.findAllById(List.of(3L, 4L))).thenReturn(List.of());
+
+        SearchConsistencyChecker.Report report = checker.check(true);
+
+        SearchConsistencyChecker.Drift store = report.structures().get(3);
+        assertThat(store.structure()).isEqualTo("embedding-store");
+        assertThat(store.missing()).isZero();
+        assertThat(store.outdated()).isEqualTo(1);
+        assertThat(store.outdatedSample()).containsExactly(3L);
+        assertThat(report.structures().get(4).consistent()).isTrue();
+        verify(searchIndexUpdater).applyEmbedding(third);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.backend.service;
+
+import com.example.backend.config.JwtConfig;
+import com.example.backend.dto.SemanticSearchRequest;
+import com.example.backend.exception.BadRequestException;
+import com.example.backend.search.SearchHit;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import javax.crypto.SecretKey;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchCursorServiceTest {
+
+    private final SecretKey key = Jwts.SIG.HS256.key().build();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SearchCursorService service = service(meterRegistry);
+
+    @Test
+    void shouldResolveCursorForItsOwnerOnly() {
+        SearchCursorService.Handle handle = handle("alice", 3072);
+        String id = service.open(handle);
+        String cursor = service.cursor(id, handle, 20);
+
+        SearchCursorService.Position position = service.resolve(cursor, "alice");
+
+        assertThat(position.handle()).isSameAs(handle);
+        assertThat(position.offset()).isEqualTo(20);
+        String tampered = cursor.substring(0, cursor.lastIndexOf('.')) + "." + "A".repeat(43);
+        for (String invalid : new String[]{id + ".20", tampered, "unknown.10", id, "!!." + cursor}) {
+            assertThatThrownBy(() -> service.resolve(invalid, "alice")).isInstanceOf(BadRequestException.class);
+        }
+        assertThatThrownBy(() -> service.resolve(cursor, "mallory")).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void shouldCarryTheRequestToNodesWithoutTheHandle() {
+        SemanticSearchRequest request = new SemanticSearchRequest("desk lamp", "two-stage");
+        request.setThreshold(0.4);
+        request.setCategory("Lighting");
+        request.setMaxPrice(new BigDecimal("49.90"));
+        request.setInStock(true);
+        SearchCursorService.Handle handle = new SearchCursorService.Handle("alice", request, new float[4],
+                List.of(new SearchHit(1, 0.9)), false);
+        String cursor = service.cursor(service.open(handle), handle, 10);
+
+        // Another node: same JWT secret, empty cache
+        SearchCursorService.Position position = service(new SimpleMeterRegistry()).resolve(cursor, "alice");
+
+        assertThat(position.handle()).isNull();
+        assertThat(position.offset()).isEqualTo(10);
+        assertThat(position.request()).usingRecursiveComparison().isEqualTo(request);
+    }
+
+    @Test
+    void shouldEvictHandlesBeyondMemoryBudget() {
+        // Each 3072-dimensional handle is about 16 KB, so a 64 KB budget holds a handful
+        for (int i = 0; i < 20; i++) {
+            service.open(handle("alice", 3072));
+        }
+        service.cleanUp();
+
+        assertThat(service.size()).isLessThan(20);
+        assertThat(meterRegistry.get("cache.evictions").tag("cache", "search.cursors").functionCounter().count())
+                .isPositive();
+    }
+
+    private SearchCursorService service(SimpleMeterRegistry registry) {
+        JwtConfig jwtConfig = new JwtConfig() {
+            @Override
+            public SecretKey jwtSecretKey() {
+                return key;
+            }
+        };
+        return new SearchCursorService(registry, jwtConfig, Duration.ofMinutes(5), DataSize.ofKilobytes(64));
+    }
+
+    private static SearchCursorService.Handle handle(String owner, int dimension) {
+        List<SearchHit> hits = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            hits.add(new SearchHit(i + 1, 1.0 - i / 100.0));
+        }
+        return new SearchCursorService.Handle(owner, new SemanticSearchRequest("query", null), new float[dimension],
+                hits, true);
+    }
+}
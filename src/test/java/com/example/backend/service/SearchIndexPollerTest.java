@@ -0,0 +1,80 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Product;
+import com.example.backend.entity.ProductEmbedding;
+import com.example.backend.repository.ProductEmbeddingRepository;
+import com.example.backend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SearchIndexPollerTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductEmbeddingRepository productEmbeddingRepository;
+
+    @Mock
+    private EmbeddingStore embeddingStore;
+
+    @Mock
+    private SearchIndexUpdater searchIndexUpdater;
+
+    @Mock
+    private SearchConsistencyChecker searchConsistencyChecker;
+
+    @InjectMocks
+    private SearchIndexPoller poller;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(poller, "pollInterval", Duration.ofSeconds(30));
+    }
+
+    @Test
+    void shouldApplyWritesFromOtherNodes() {
+        LocalDateTime updatedAt = LocalDateTime.now();
+        Product product = new Product();
+        product.setId(1L);
+        product.setUpdatedAt(updatedAt);
+        ProductEmbedding changed = new ProductEmbedding(1L, new float[]{1f, 0f});
+        changed.setUpdatedAt(updatedAt);
+        ProductEmbedding unchanged = new ProductEmbedding(2L, new float[]{0f, 1f});
+        unchanged.setUpdatedAt(updatedAt);
+        when(productRepository.findUpdatedAfter(any(), anyLong(), any())).thenReturn(List.of(product));
+        when(productEmbeddingRepository.findWrittenAfter(any(), anyLong(), any()))
+                .thenReturn(List.of(changed, unchanged));
+        when(embeddingStore.holds(1L, changed.getEmbedding())).thenReturn(false);
+        when(embeddingStore.holds(2L, unchanged.getEmbedding())).thenReturn(true);
+
+        poller.poll();
+
+        verify(searchIndexUpdater).applyProduct(product);
+        verify(searchIndexUpdater).applyEmbedding(changed);
+        verify(searchIndexUpdater, never()).applyEmbedding(unchanged);
+    }
+
+    @Test
+    void shouldRepairDriftForDeletions() {
+        poller.repair();
+
+        verify(searchConsistencyChecker).check(true);
+    }
+}
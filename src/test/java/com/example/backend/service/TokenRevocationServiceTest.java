@@ -0,0 +1,110 @@
+package com.example.backend.service;
+
+import com.example.backend.config.JwtConfig;
+import com.example.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private JwtConfig jwtConfig;
+
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        when(jwtConfig.getJwtExpiration()).thenReturn(86_400_000L);
+        when(jwtConfig.getRefreshExpiration()).thenReturn(604_800_000L);
+        tokenRevocationService = new TokenRevocationService(userRepository, jwtConfig);
+        ReflectionTestUtils.setField(tokenRevocationService, "pollInterval", Duration.ofSeconds(30));
+    }
+
+    @Test
+    void shouldRevokeOnlyTokensIssuedBeforeTheCutoff() {
+        Instant cutoff = Instant.parse("2026-05-01T12:00:00.600Z");
+        tokenRevocationService.revokeIssuedBefore("alice", cutoff);
+
+        assertThat(tokenRevocationService.isRevoked("alice", cutoff.minusSeconds(60))).isTrue();
+        assertThat(tokenRevocationService.isRevoked("alice", cutoff.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1)))
+                .isFalse();
+        assertThat(tokenRevocationService.isRevoked("bob", cutoff.minusSeconds(60))).isFalse();
+    }
+
+    @Test
+    void shouldRevokeTokensIssuedEarlierInTheSameSecond() {
+        Instant cutoff = Instant.parse("2026-05-01T12:00:00.600Z");
+        tokenRevocationService.revokeIssuedBefore("alice", cutoff);
+
+        // Issued at 12:00:00.200, before the cutoff, but iat only says 12:00:00
+        assertThat(tokenRevocationService.isRevoked("alice", cutoff.truncatedTo(ChronoUnit.SECONDS))).isTrue();
+    }
+
+    @Test
+    void shouldIssueNewTokensOnlyPastTheCutoffSecond() {
+        Instant cutoff = Instant.now();
+        tokenRevocationService.revokeIssuedBefore("alice", cutoff);
+
+        tokenRevocationService.awaitIssuable("alice");
+
+        assertThat(tokenRevocationService.isRevoked("alice", Instant.now().truncatedTo(ChronoUnit.SECONDS)))
+                .isFalse();
+    }
+
+    @Test
+    void shouldApplyACutoffOnlyOnceItsTransactionCommits() {
+        Instant cutoff = Instant.now();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            tokenRevocationService.revokeIssuedBefore("alice", cutoff);
+
+            assertThat(tokenRevocationService.isRevoked("alice", cutoff.minusSeconds(60))).isFalse();
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+            assertThat(tokenRevocationService.isRevoked("alice", cutoff.minusSeconds(60))).isTrue();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldKeepTheLatestCutoff() {
+        Instant cutoff = Instant.now();
+        tokenRevocationService.revokeIssuedBefore("alice", cutoff);
+        tokenRevocationService.revokeIssuedBefore("alice", cutoff.minusSeconds(3600));
+
+        assertThat(tokenRevocationService.isRevoked("alice", cutoff.minusSeconds(60))).isTrue();
+    }
+
+    @Test
+    void shouldPickUpCutoffsWrittenByOtherNodes() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(1);
+        List<Object[]> rows = List.<Object[]>of(new Object[]{"alice", cutoff});
+        when(userRepository.findTokenCutoffsSince(any())).thenReturn(rows);
+
+        tokenRevocationService.poll();
+
+        Instant issuedAt = cutoff.minusMinutes(5).atZone(ZoneId.systemDefault()).toInstant();
+        assertThat(tokenRevocationService.isRevoked("alice", issuedAt)).isTrue();
+    }
+}
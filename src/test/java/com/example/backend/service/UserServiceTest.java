@@ -12,12 +12,16 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
+import java.time.Instant;
 import java.util.Optional;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +30,9 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
     @InjectMocks
     private UserService userService;
 
@@ -44,7 +51,7 @@ class UserServiceTest {
     @Test
     void shouldLoadUserByUsername() {
         // Given
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userRepository.findWithRolesByUsername("testuser")).thenReturn(Optional.of(testUser));
 
         // When
         UserDetails userDetails = userService.loadUserByUsername("testuser");
@@ -59,7 +66,7 @@ class UserServiceTest {
     @Test
     void shouldThrowExceptionWhenUserNotFound() {
         // Given
-        when(userRepository.findByUsername(anyString())).thenReturn(Optional.empty());
+        when(userRepository.findWithRolesByUsername(anyString())).thenReturn(Optional.empty());
 
         // When & Then
         assertThatThrownBy(() -> userService.loadUserByUsername("nonexistent"))
@@ -83,4 +90,19 @@ class UserServiceTest {
         assertThat(userDto.getLastName()).isEqualTo("User");
         assertThat(userDto.getIsActive()).isTrue();
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldCutOffExistingTokensWhenDeactivatingUser() {
+        // Given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // When
+        userService.deactivateUser(1L);
+
+        // Then
+        assertThat(testUser.getIsActive()).isFalse();
+        assertThat(testUser.getTokensValidAfter()).isNotNull();
+        verify(tokenRevocationService).revokeIssuedBefore(eq("testuser"), any(Instant.class));
+        verify(userRepository).save(testUser);
+    }
+}